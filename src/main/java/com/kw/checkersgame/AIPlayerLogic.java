@@ -1,6 +1,8 @@
 package com.kw.checkersgame;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.SplittableRandom;
 
 /**
  * The AIPLayerLogic class has all the logic for an AI move in checkers.
@@ -8,6 +10,7 @@ import java.util.List;
  */
 public class AIPlayerLogic extends Logic {
     boolean active;
+    private final SplittableRandom random;
 
     /**
      * Constructs an AIPlayerLogic, which starts inactive.
@@ -15,6 +18,7 @@ public class AIPlayerLogic extends Logic {
     public AIPlayerLogic()
     {
         active = false;
+        random = new SplittableRandom();
     }
 
     /**
@@ -36,7 +40,7 @@ public class AIPlayerLogic extends Logic {
             if (killsAI.isEmpty())
             {
                 // choose a random move from available moves
-                int randomMove = (int)(Math.random() * movesAI.size());
+                int randomMove = random.nextInt(movesAI.size());
                 Position from = movesAI.get(randomMove);
                 List<Position> to = board.getMoves(from);
                 board.setLegalPos(to);
@@ -48,7 +52,7 @@ public class AIPlayerLogic extends Logic {
             else // if there are kills
             {
                 // choose a random move from available kills
-                int randomMove = (int)(Math.random() * killsAI.size());
+                int randomMove = random.nextInt(killsAI.size());
                 Position from = killsAI.get(randomMove);
                 List<Position> to = board.getMoves(from);
                 board.setLegalPos(to);
@@ -60,6 +64,33 @@ public class AIPlayerLogic extends Logic {
         }
     }
 
+    /**
+     * Starts thinking on the opponent's time, after this player has moved. Random moves need no thinking, so
+     * this player does nothing; searching players override it.
+     * @param board the current logic object, with the opponent to move
+     */
+    public void ponder(Logic board)
+    {
+    }
+
+    /**
+     * Stops any thinking started by ponder, for example when the game is reset or the AI is switched off.
+     */
+    public void stopPondering()
+    {
+    }
+
+    /**
+     * Makes a move chosen by an engine on the logic object, selecting the exact route for double jumps.
+     * @param board the current logic object being manipulated
+     * @param move the move encoded as in CompactBoard
+     * @return true if the move was found and made, false otherwise
+     */
+    protected boolean applyMove(Logic board, int move)
+    {
+        return board.playMove(move);
+    }
+
     /**
      * Returns whether the AI player is active.
      * @return true if the AI is active, false otherwise
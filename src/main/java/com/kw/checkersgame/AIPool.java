@@ -0,0 +1,65 @@
+package com.kw.checkersgame;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * This class is a fixed set of threads that choose AI moves for many games at once.
+ * Each thread keeps its own alpha-beta engine, so the memory and CPU spent on AI stay bounded however many
+ * games are being played; games wait in the pool's queue when every thread is busy. Each move is searched to a
+ * depth limit but never for longer than a fixed time, so one hard position cannot hold a thread.
+ */
+public class AIPool {
+    private final ExecutorService threads;
+    private final ThreadLocal<AlphaBetaEngine> engines;
+    private final int depth;
+    private final long moveMillis;
+
+    /**
+     * Creates a pool.
+     * @param threadCount the number of threads searching moves
+     * @param depth the number of plies each move is searched to
+     * @param moveMillis the longest time a move is searched for, counted from when a thread takes it up
+     * @param tableEntries the transposition table size of each thread's engine
+     */
+    public AIPool(int threadCount, int depth, long moveMillis, int tableEntries)
+    {
+        AtomicInteger count = new AtomicInteger();
+        threads = Executors.newFixedThreadPool(threadCount, r -> {
+            Thread t = new Thread(r, "ai-pool-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        // each engine gets its own evaluator, since an NnueEvaluator keeps state between calls
+        engines = ThreadLocal.withInitial(() -> new AlphaBetaEngine(Evaluator.configured(), tableEntries));
+        this.depth = depth;
+        this.moveMillis = moveMillis;
+    }
+
+    /**
+     * Chooses a move for the side to move on one of the pool's threads.
+     * @param pos the position to move in, which is not changed
+     * @param history the positions played so far, ending with pos, which is not changed
+     * @return a future holding the move encoded as in CompactBoard, or NO_MOVE if there is none
+     */
+    public CompletableFuture<Integer> chooseMove(CompactBoard pos, PositionHistory history)
+    {
+        CompactBoard position = new CompactBoard(pos);
+        PositionHistory played = new PositionHistory(history);
+        return CompletableFuture.supplyAsync(() -> {
+            TimeManager tm = TimeManager.fixed(moveMillis);
+            SearchInfo[] lines = engines.get().analyze(position, played, 1, tm, depth, null);
+            return lines.length == 0 ? AlphaBetaEngine.NO_MOVE : lines[0].getMove();
+        }, threads);
+    }
+
+    /**
+     * Stops the pool's threads once the moves already asked for are chosen.
+     */
+    public void shutdown()
+    {
+        threads.shutdown();
+    }
+}
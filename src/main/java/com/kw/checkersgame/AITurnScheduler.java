@@ -0,0 +1,92 @@
+package com.kw.checkersgame;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * This class plays the AI's turns as soon as they begin. It listens for turn changes on a game and, when it is
+ * dark's turn and the AI is active, makes the AI's move on its own thread, then hands the game to a callback
+ * so the screen can be updated without waiting for a click.
+ */
+public class AITurnScheduler implements TurnListener {
+    private final AIPlayerLogic aiPlayer;
+    private final Consumer<Logic> onMoved;
+    private final ExecutorService executor;
+    private final AtomicBoolean thinking;
+
+    /**
+     * Creates a scheduler. Add it to a game with Logic.addTurnListener.
+     * @param aiPlayer the AI that plays dark
+     * @param onMoved called on the AI thread after each AI move, with the game that was moved in
+     */
+    public AITurnScheduler(AIPlayerLogic aiPlayer, Consumer<Logic> onMoved)
+    {
+        this.aiPlayer = aiPlayer;
+        this.onMoved = onMoved;
+        executor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "ai-move");
+            thread.setDaemon(true);
+            return thread;
+        });
+        thinking = new AtomicBoolean();
+    }
+
+    /**
+     * Starts the AI's move if it is the AI's turn.
+     * @param game the game whose turn changed
+     * @param dark true if it is now dark's turn, false if it is light's turn
+     */
+    @Override
+    public void turnStarted(Logic game, boolean dark)
+    {
+        if (dark && aiPlayer.isActive() && !game.isGameOver() && thinking.compareAndSet(false, true))
+        {
+            executor.execute(() -> play(game));
+        }
+    }
+
+    /**
+     * Makes the AI's move, starts pondering on the reply, and reports the move.
+     * @param game the game to move in
+     */
+    private void play(Logic game)
+    {
+        try
+        {
+            long start = System.nanoTime();
+            aiPlayer.makeMove(game);
+            GameLog.event("ai_moved", "moveNumber", game.getSnapshot().getMoveNumber(),
+                    "micros", (System.nanoTime() - start) / 1000);
+
+            // keep thinking while the human decides on a reply
+            if (!game.isGameOver())
+            {
+                aiPlayer.ponder(game);
+            }
+        }
+        finally
+        {
+            thinking.set(false);
+        }
+        onMoved.accept(game);
+    }
+
+    /**
+     * Returns whether the AI is making a move right now.
+     * @return true while a move is being chosen, false otherwise
+     */
+    public boolean isThinking()
+    {
+        return thinking.get();
+    }
+
+    /**
+     * Stops the AI thread. Moves already started are finished first.
+     */
+    public void shutdown()
+    {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,589 @@
+package com.kw.checkersgame;
+
+import java.util.Arrays;
+
+/**
+ * This class searches for moves with iterative-deepening alpha-beta on a CompactBoard.
+ * Results are cached in a transposition table that is kept between searches, forced jumps are searched past
+ * the nominal depth, and draws by repetition or lack of progress are scored as 0.
+ */
+public class AlphaBetaEngine {
+    /** Returned by search when the position has no legal moves. */
+    public static final int NO_MOVE = -1;
+
+    /** Score of a won position, reduced by the number of plies it takes to win. */
+    public static final int WIN = 30000;
+
+    /** Deepest ply the search will reach, including forced jump extensions. */
+    public static final int MAX_PLY = 96;
+
+    /** Deepest iteration of iterative deepening, not counting extensions. */
+    public static final int MAX_DEPTH = 64;
+
+    private static final int INFINITY = WIN + 1;
+
+    // only results searched at least this deep are read from or written to a shared cache, which is slower to
+    // reach than the table and is better spent on results that took real work
+    private static final int SHARED_MIN_DEPTH = 3;
+
+    private final Evaluator evaluator;
+    private final TranspositionTable table;
+    private SharedSearchCache shared;
+    private final CompactBoard[] stack;
+    private final int[][] moves;
+    private PositionHistory history;
+    private TimeManager time;
+    private volatile boolean stopped;
+    private boolean aborted;
+    private long nodes;
+    private long start;
+
+    private long lastNanos;
+    private SearchInfo[] lastLines;
+
+    /**
+     * Creates an engine with the evaluator from Evaluator.configured and a table of about a million entries.
+     */
+    public AlphaBetaEngine()
+    {
+        this(Evaluator.configured(), 1 << 20);
+    }
+
+    /**
+     * Creates an engine.
+     * @param evaluator the evaluator scoring leaf positions
+     * @param tableEntries the number of transposition table entries
+     */
+    public AlphaBetaEngine(Evaluator evaluator, int tableEntries)
+    {
+        this.evaluator = evaluator;
+        table = new TranspositionTable(tableEntries);
+        stack = new CompactBoard[MAX_PLY + 1];
+        moves = new int[MAX_PLY + 1][CompactBoard.MAX_MOVES];
+        for (int i = 0; i < stack.length; i++)
+        {
+            stack[i] = new CompactBoard();
+        }
+        lastLines = new SearchInfo[0];
+    }
+
+    /**
+     * Returns the evaluator scoring leaf positions. It may keep state, so only the thread searching with this
+     * engine should use it.
+     * @return the evaluator
+     */
+    public Evaluator getEvaluator()
+    {
+        return evaluator;
+    }
+
+    /**
+     * Searches a position until the time manager stops it and returns the best move.
+     * @param pos the position to search, which is not changed
+     * @param gameHistory the positions played so far, ending with pos, or null if unknown
+     * @param tm the time manager limiting the search, or null to search until stop is called
+     * @return the best move encoded as in CompactBoard, or NO_MOVE if there is none
+     */
+    public synchronized int search(CompactBoard pos, PositionHistory gameHistory, TimeManager tm)
+    {
+        iterate(pos, gameHistory, tm, MAX_DEPTH, 1, null);
+        return lastLines.length == 0 ? NO_MOVE : lastLines[0].getMove();
+    }
+
+    /**
+     * Searches a position to a fixed depth and returns the best move.
+     * @param pos the position to search, which is not changed
+     * @param depth the number of plies to search, not counting forced jumps
+     * @return the best move encoded as in CompactBoard, or NO_MOVE if there is none
+     */
+    public synchronized int search(CompactBoard pos, int depth)
+    {
+        iterate(pos, null, null, Math.min(depth, MAX_DEPTH), 1, null);
+        return lastLines.length == 0 ? NO_MOVE : lastLines[0].getMove();
+    }
+
+    /**
+     * Finds the best few moves of a position with their scores and expected lines.
+     * Every line is passed to the listener as soon as it is searched to a new depth, so a first answer arrives
+     * after depth 1 and better ones follow until the time manager, the depth limit or stop ends the search.
+     * @param pos the position to analyse, which is not changed
+     * @param gameHistory the positions played so far, ending with pos, or null if unknown
+     * @param lines the number of best moves wanted
+     * @param tm the time manager limiting the search, or null for no time limit
+     * @param maxDepth the deepest iteration to run
+     * @param listener receives each line as it is found, or null
+     * @return the lines of the deepest finished iteration, best first
+     */
+    public synchronized SearchInfo[] analyze(CompactBoard pos, PositionHistory gameHistory, int lines, TimeManager tm,
+                                             int maxDepth, SearchListener listener)
+    {
+        iterate(pos, gameHistory, tm, Math.min(maxDepth, MAX_DEPTH), Math.max(1, lines), listener);
+        return lastLines.clone();
+    }
+
+    /**
+     * Asks a running search to stop. The best move of the last finished iteration is returned.
+     */
+    public void stop()
+    {
+        stopped = true;
+    }
+
+    /**
+     * Runs a search and records it as a SearchEvent and in Metrics.
+     * @param pos the position to search
+     * @param gameHistory the positions played so far, or null
+     * @param tm the time manager, or null for no time limit
+     * @param maxDepth the deepest iteration to run
+     * @param lines the number of best moves to find
+     * @param listener receives each line as it is found, or null
+     */
+    private void iterate(CompactBoard pos, PositionHistory gameHistory, TimeManager tm, int maxDepth, int lines,
+                         SearchListener listener)
+    {
+        SearchEvent event = new SearchEvent();
+        event.begin();
+        long probes = table.getProbes();
+        long hits = table.getHits();
+
+        deepen(pos, gameHistory, tm, maxDepth, lines, listener);
+
+        Metrics.search(nodes, lastNanos);
+        if (event.shouldCommit())
+        {
+            probes = table.getProbes() - probes;
+            event.engine = "alpha-beta";
+            event.depth = getLastDepth();
+            event.nodes = nodes;
+            event.nodesPerSecond = lastNanos == 0 ? 0 : nodes * 1_000_000_000L / lastNanos;
+            event.tableHitRate = probes == 0 ? 0 : (double) (table.getHits() - hits) / probes;
+            event.score = getLastScore();
+            event.bestMove = lastLines.length == 0 ? "none" : CompactBoard.moveToString(lastLines[0].getMove());
+            event.commit();
+        }
+    }
+
+    /**
+     * Runs iterative deepening from depth 1 up to a maximum depth, leaving the results in lastLines.
+     * @param pos the position to search
+     * @param gameHistory the positions played so far, or null
+     * @param tm the time manager, or null for no time limit
+     * @param maxDepth the deepest iteration to run
+     * @param lines the number of best moves to find
+     * @param listener receives each line as it is found, or null
+     */
+    private void deepen(CompactBoard pos, PositionHistory gameHistory, TimeManager tm, int maxDepth, int lines,
+                         SearchListener listener)
+    {
+        start = System.nanoTime();
+        time = tm;
+        stopped = false;
+        aborted = false;
+        nodes = 0;
+        lastLines = new SearchInfo[0];
+
+        if (gameHistory == null)
+        {
+            history = new PositionHistory();
+            history.push(pos.hash(), true);
+        }
+        else
+        {
+            history = new PositionHistory(gameHistory);
+        }
+        if (tm != null)
+        {
+            tm.start();
+        }
+
+        stack[0].copyFrom(pos);
+        int[] rootMoves = moves[0];
+        int count = pos.isTie() ? 0 : pos.generateMoves(rootMoves);
+        lines = Math.min(lines, count);
+        if (count == 0)
+        {
+            lastNanos = System.nanoTime() - start;
+            return;
+        }
+
+        // a single legal move is played straight away, unless it was asked to be analysed
+        if (count == 1 && listener == null)
+        {
+            lastLines = new SearchInfo[] {new SearchInfo(0, 1, 0, 0, 0, new int[] {rootMoves[0]})};
+            lastNanos = System.nanoTime() - start;
+            return;
+        }
+
+        for (int depth = 1; depth <= maxDepth; depth++)
+        {
+            SearchInfo[] found = searchRoot(rootMoves, count, depth, lines, listener);
+            if (aborted)
+            {
+                break;
+            }
+            lastLines = found;
+
+            // stop once a forced win or loss is found, or the time manager says so
+            if (found[0].isWinOrLoss() || (tm != null && !tm.nextIteration(found[0].getMove())))
+            {
+                break;
+            }
+        }
+
+        // if not even depth 1 finished, any legal move is better than none
+        if (lastLines.length == 0)
+        {
+            lastLines = new SearchInfo[] {new SearchInfo(0, 1, 0, nodes, 0, new int[] {rootMoves[0]})};
+        }
+        lastNanos = System.nanoTime() - start;
+    }
+
+    /**
+     * Searches the root moves to a given depth and ranks the best few of them.
+     * The moves ranked by the previous iteration are at the front of the list and are searched first.
+     * Each rank is found with a full window among the moves not ranked yet, so every reported score is exact.
+     * @param rootMoves the legal moves at the root, reordered so the ranked moves come first
+     * @param count the number of legal moves
+     * @param depth the depth to search
+     * @param lines the number of moves to rank
+     * @param listener receives each line as it is found, or null
+     * @return the ranked lines, or a partial result if the search was aborted
+     */
+    private SearchInfo[] searchRoot(int[] rootMoves, int count, int depth, int lines, SearchListener listener)
+    {
+        SearchInfo[] found = new SearchInfo[lines];
+
+        for (int rank = 0; rank < lines; rank++)
+        {
+            int alpha = -INFINITY;
+            int bestIndex = rank;
+            for (int i = rank; i < count; i++)
+            {
+                int score = -searchChild(0, rootMoves[i], depth - 1, -INFINITY, -alpha);
+                if (aborted)
+                {
+                    return found;
+                }
+                if (score > alpha)
+                {
+                    alpha = score;
+                    bestIndex = i;
+                }
+            }
+
+            int move = rootMoves[bestIndex];
+            rootMoves[bestIndex] = rootMoves[rank];
+            rootMoves[rank] = move;
+            if (rank == 0)
+            {
+                table.store(stack[0].hash(), alpha, depth, TranspositionTable.EXACT, move);
+            }
+
+            found[rank] = new SearchInfo(depth, rank + 1, alpha, nodes, System.nanoTime() - start,
+                    principalVariation(stack[0], move, depth));
+            if (listener != null)
+            {
+                listener.lineFound(found[rank]);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Makes a move from the position at a ply, searches the resulting position, and takes the move back.
+     * @param ply the ply of the position the move is made from
+     * @param move the move to make
+     * @param depth the remaining depth for the child
+     * @param alpha the lower bound of the child's window
+     * @param beta the upper bound of the child's window
+     * @return the child's score from the child's side to move
+     */
+    private int searchChild(int ply, int move, int depth, int alpha, int beta)
+    {
+        CompactBoard child = stack[ply + 1];
+        child.copyFrom(stack[ply]);
+        child.makeMove(move);
+        history.push(child.hash(), stack[ply].isIrreversible(move));
+        int score = negamax(ply + 1, depth, alpha, beta);
+        history.pop();
+        return score;
+    }
+
+    /**
+     * Searches the position at a ply with alpha-beta.
+     * @param ply the distance from the root
+     * @param depth the remaining depth; at 0 or below only forced jumps are searched
+     * @param alpha the lower bound of the window
+     * @param beta the upper bound of the window
+     * @return the score from the side to move
+     */
+    private int negamax(int ply, int depth, int alpha, int beta)
+    {
+        if ((++nodes & 1023) == 0 && (stopped || (time != null && time.hardStop())))
+        {
+            aborted = true;
+        }
+        if (aborted)
+        {
+            return 0;
+        }
+
+        CompactBoard b = stack[ply];
+        if (b.isTie() || history.isDraw())
+        {
+            return 0;
+        }
+        if (ply >= MAX_PLY)
+        {
+            return evaluator.evaluate(b);
+        }
+
+        int alphaOriginal = alpha;
+        int ttMove = NO_MOVE;
+        // scores and bounds are only taken from the position's own entry: its flipped form can play differently
+        // (see CompactBoard.canonicalHash), so that form's entry only suggests a move to try first
+        long key = b.hash();
+        long entry = table.probe(key);
+        if (entry == 0 && shared != null && depth >= SHARED_MIN_DEPTH)
+        {
+            entry = shared.probe(key);
+            if (entry != 0)
+            {
+                table.storeEntry(key, entry);
+            }
+        }
+        if (entry == 0)
+        {
+            int hint = TranspositionTable.move(table.peek(b.flippedHash()));
+            ttMove = hint == NO_MOVE ? NO_MOVE : CompactBoard.flipMove(hint);
+        }
+        else
+        {
+            ttMove = TranspositionTable.move(entry);
+            if (TranspositionTable.depth(entry) >= depth)
+            {
+                int stored = fromTable(TranspositionTable.score(entry), ply);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.EXACT
+                        || (bound == TranspositionTable.LOWER && stored >= beta)
+                        || (bound == TranspositionTable.UPPER && stored <= alpha))
+                {
+                    return stored;
+                }
+            }
+        }
+
+        int[] list = moves[ply];
+        int count = b.generateMoves(list);
+        if (count == 0)
+        {
+            return -WIN + ply;
+        }
+
+        // jumps are forced, so they are always searched to the end instead of stopping in the middle of an exchange
+        boolean jumps = CompactBoard.moveJumps(list[0]) != 0;
+        if (depth <= 0 && !jumps)
+        {
+            return evaluator.evaluate(b);
+        }
+
+        moveToFront(list, count, ttMove);
+        int best = -INFINITY;
+        int bestMove = list[0];
+        for (int i = 0; i < count; i++)
+        {
+            int score = -searchChild(ply, list[i], Math.max(0, depth - 1), -beta, -alpha);
+            if (aborted)
+            {
+                return 0;
+            }
+            if (score > best)
+            {
+                best = score;
+                bestMove = list[i];
+                if (score > alpha)
+                {
+                    alpha = score;
+                    if (alpha >= beta)
+                    {
+                        break;
+                    }
+                }
+            }
+        }
+
+        int bound = best <= alphaOriginal ? TranspositionTable.UPPER
+                : best >= beta ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+        table.store(key, toTable(best, ply), depth, bound, bestMove);
+        if (shared != null && depth >= SHARED_MIN_DEPTH)
+        {
+            shared.store(key, TranspositionTable.pack(toTable(best, ply), depth, bound, bestMove));
+        }
+        return best;
+    }
+
+    /**
+     * Swaps a move to the front of a move list, if it is in the list.
+     * @param list the moves
+     * @param count the number of moves in the list
+     * @param move the move to try first
+     */
+    private static void moveToFront(int[] list, int count, int move)
+    {
+        for (int i = 1; i < count; i++)
+        {
+            if (list[i] == move)
+            {
+                list[i] = list[0];
+                list[0] = move;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Converts a win or loss score from distance-to-root to distance-to-this-node before storing it.
+     * @param score the score at a node
+     * @param ply the ply of the node
+     * @return the score to store
+     */
+    private static int toTable(int score, int ply)
+    {
+        if (score >= WIN - MAX_PLY)
+        {
+            return score + ply;
+        }
+        if (score <= -WIN + MAX_PLY)
+        {
+            return score - ply;
+        }
+        return score;
+    }
+
+    /**
+     * Converts a stored win or loss score back to distance-to-root.
+     * @param score the stored score
+     * @param ply the ply of the node
+     * @return the score at the node
+     */
+    private static int fromTable(int score, int ply)
+    {
+        if (score >= WIN - MAX_PLY)
+        {
+            return score - ply;
+        }
+        if (score <= -WIN + MAX_PLY)
+        {
+            return score + ply;
+        }
+        return score;
+    }
+
+    /**
+     * Reads the expected line of play after a root move back out of the transposition table.
+     * @param pos the root position
+     * @param first the root move the line starts with
+     * @param depth the most moves to read
+     * @return the moves of the line, starting with the root move
+     */
+    private int[] principalVariation(CompactBoard pos, int first, int depth)
+    {
+        int[] pv = new int[depth];
+        int[] legal = new int[CompactBoard.MAX_MOVES];
+        CompactBoard b = new CompactBoard(pos);
+        pv[0] = first;
+        b.makeMove(first);
+        int length = 1;
+
+        while (length < depth)
+        {
+            long entry = table.peek(b.hash());
+            int move = entry == 0 ? NO_MOVE : TranspositionTable.move(entry);
+            int count = b.generateMoves(legal);
+            boolean found = false;
+            for (int i = 0; i < count && !found; i++)
+            {
+                found = legal[i] == move;
+            }
+            if (!found)
+            {
+                break;
+            }
+            pv[length++] = move;
+            b.makeMove(move);
+        }
+        return Arrays.copyOf(pv, length);
+    }
+
+    /**
+     * Empties the transposition table, for starting a new game.
+     */
+    public synchronized void clearTable()
+    {
+        table.clear();
+    }
+
+    /**
+     * Returns the depth of the last finished iteration of the last search.
+     * @return the depth reached
+     */
+    public int getLastDepth()
+    {
+        return lastLines.length == 0 ? 0 : lastLines[0].getDepth();
+    }
+
+    /**
+     * Returns the score of the last finished iteration, from the side to move at the root.
+     * @return the score in hundredths of a man, or near WIN for a forced result
+     */
+    public int getLastScore()
+    {
+        return lastLines.length == 0 ? 0 : lastLines[0].getScore();
+    }
+
+    /**
+     * Returns the expected line of play found by the last search.
+     * @return the moves of the line, starting with the best move
+     */
+    public int[] getPrincipalVariation()
+    {
+        return lastLines.length == 0 ? new int[0] : lastLines[0].getPv();
+    }
+
+    /**
+     * Returns the number of positions visited by the last search.
+     * @return the node count
+     */
+    public long getNodes()
+    {
+        return nodes;
+    }
+
+    /**
+     * Returns how long the last search took.
+     * @return the elapsed time in nanoseconds
+     */
+    public long getLastNanos()
+    {
+        return lastNanos;
+    }
+
+    /**
+     * Sets a cache shared with other engines and processes, consulted when the table misses and given every
+     * deep enough result. Call between searches.
+     * @param cache the cache, or null to stop using one
+     */
+    public synchronized void setSharedCache(SharedSearchCache cache)
+    {
+        shared = cache;
+    }
+
+    /**
+     * Returns the transposition table, for reading its statistics.
+     * @return the transposition table
+     */
+    public TranspositionTable getTable()
+    {
+        return table;
+    }
+}
@@ -0,0 +1,166 @@
+package com.kw.checkersgame;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * The AlphaBetaPlayerLogic class is an AI player that chooses its moves with an alpha-beta search.
+ * Its thinking time comes from a game clock through a TimeManager, and it ponders on the opponent's time by
+ * searching the predicted reply, which leaves the transposition table warm for its next move.
+ */
+public class AlphaBetaPlayerLogic extends AIPlayerLogic {
+    private final AlphaBetaEngine engine;
+    private final GameClock clock;
+    private final ExecutorService ponderThread;
+    private Future<?> ponderTask;
+
+    /**
+     * Constructs an alpha-beta player with one second per move.
+     */
+    public AlphaBetaPlayerLogic()
+    {
+        this(GameClock.fixedPerMove(1000));
+    }
+
+    /**
+     * Constructs an alpha-beta player.
+     * @param clock the clock the AI's thinking time is taken from
+     */
+    public AlphaBetaPlayerLogic(GameClock clock)
+    {
+        this(new AlphaBetaEngine(), clock);
+    }
+
+    /**
+     * Constructs an alpha-beta player around a given engine.
+     * @param engine the search engine
+     * @param clock the clock the AI's thinking time is taken from
+     */
+    public AlphaBetaPlayerLogic(AlphaBetaEngine engine, GameClock clock)
+    {
+        this.engine = engine;
+        this.clock = clock;
+        ponderThread = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "alphabeta-ponder");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Searches for and makes the best move found for dark when it is dark's turn.
+     * @param board the current logic object being manipulated, which contains important information such as positions
+     */
+    @Override
+    public void makeMove(Logic board)
+    {
+        stopPondering();
+        if (board.getAvailableMoves(true).isEmpty())
+        {
+            return;
+        }
+
+        clock.startTurn(true);
+        CompactBoard pos = CompactBoard.fromLogic(board);
+        int[] legal = new int[CompactBoard.MAX_MOVES];
+        int count = pos.generateMoves(legal);
+        TimeManager tm = TimeManager.forClock(clock, true, count, count > 0 && CompactBoard.moveJumps(legal[0]) != 0);
+
+        int move = engine.search(pos, board.getHistory(), tm);
+        if (move != AlphaBetaEngine.NO_MOVE)
+        {
+            applyMove(board, move);
+        }
+        clock.endTurn();
+    }
+
+    /**
+     * Searches the position after the opponent's predicted reply in the background until stopped.
+     * @param board the current logic object, with the opponent to move
+     */
+    @Override
+    public void ponder(Logic board)
+    {
+        stopPondering();
+        int[] pv = engine.getPrincipalVariation();
+        if (!isActive() || board.getTurn() || pv.length < 2)
+        {
+            return;
+        }
+
+        // the first move of the line was just played, so the second is the reply we expect
+        CompactBoard pos = CompactBoard.fromLogic(board);
+        int[] legal = new int[CompactBoard.MAX_MOVES];
+        int count = pos.generateMoves(legal);
+        for (int i = 0; i < count; i++)
+        {
+            if (legal[i] == pv[1])
+            {
+                PositionHistory history = new PositionHistory(board.getHistory());
+                boolean irreversible = pos.isIrreversible(pv[1]);
+                pos.makeMove(pv[1]);
+                history.push(pos.hash(), irreversible);
+                ponderTask = ponderThread.submit(() -> engine.search(pos, history, null));
+                return;
+            }
+        }
+    }
+
+    /**
+     * Stops the background search started by ponder. What it stored in the transposition table is kept.
+     */
+    @Override
+    public void stopPondering()
+    {
+        if (ponderTask == null)
+        {
+            return;
+        }
+
+        // keep asking in case the search had not started yet when the first request was made
+        while (!ponderTask.isDone())
+        {
+            engine.stop();
+            try
+            {
+                ponderTask.get(10, TimeUnit.MILLISECONDS);
+            }
+            catch (TimeoutException e)
+            {
+                // not finished yet, ask again
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            catch (ExecutionException e)
+            {
+                throw new IllegalStateException("ponder search failed", e.getCause());
+            }
+        }
+        ponderTask = null;
+    }
+
+    /**
+     * Returns the engine behind this player, for reading search statistics.
+     * @return the alpha-beta engine
+     */
+    public AlphaBetaEngine getEngine()
+    {
+        return engine;
+    }
+
+    /**
+     * Returns the clock the AI's thinking time is taken from.
+     * @return the game clock
+     */
+    public GameClock getClock()
+    {
+        return clock;
+    }
+}
@@ -0,0 +1,213 @@
+package com.kw.checkersgame;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.function.DoubleSupplier;
+
+/**
+ * This program plays random games on one thread three ways - a Logic object per game, a CompactBoard per game,
+ * and all games in one BoardBatch - and prints the games finished per second of each. Before timing, it checks
+ * that the batch lists the same moves as CompactBoard in every position it reaches.
+ */
+public class BatchBenchmark {
+    private static final int MAX_PLIES = 200;
+
+    /**
+     * Runs the benchmark.
+     * @param args the number of games played side by side, 4096 if not given, and the seconds per measurement,
+     *             2 if not given
+     */
+    public static void main(String[] args)
+    {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 4096;
+        long millis = args.length > 1 ? (long) (Double.parseDouble(args[1]) * 1000) : 2000;
+
+        System.out.printf("checked %,d positions against CompactBoard%n", check(games, 100));
+        System.out.printf("%d games side by side, %d ms per measurement, 1 thread%n", games, millis);
+        double logic = measure("Logic per game", () -> logicGames(Math.min(games, 256), millis));
+        double compact = measure("CompactBoard per game", () -> compactGames(games, millis));
+        double batch = measure("BoardBatch", () -> batchGames(games, millis));
+        System.out.printf("BoardBatch is %.1fx Logic and %.2fx CompactBoard%n", batch / logic, batch / compact);
+    }
+
+    /**
+     * Runs a measurement twice, the first time to warm up, and prints the second result.
+     * @param name the name printed
+     * @param run the measurement, returning games per second
+     * @return games per second
+     */
+    private static double measure(String name, DoubleSupplier run)
+    {
+        run.getAsDouble();
+        double rate = run.getAsDouble();
+        System.out.printf("%-24s %,12.0f games/sec%n", name, rate);
+        return rate;
+    }
+
+    /**
+     * Plays random games through the batch and a CompactBoard per game together, comparing the move lists.
+     * @param games the number of games
+     * @param rounds the number of plies to play
+     * @return the number of positions compared
+     * @throws IllegalStateException if a move list differs
+     */
+    private static long check(int games, int rounds)
+    {
+        BoardBatch batch = new BoardBatch(games, MAX_PLIES);
+        CompactBoard[] boards = new CompactBoard[games];
+        for (int i = 0; i < games; i++)
+        {
+            boards[i] = CompactBoard.initial();
+        }
+        SplittableRandom random = new SplittableRandom(1);
+        int[] a = new int[CompactBoard.MAX_MOVES], b = new int[CompactBoard.MAX_MOVES];
+        long checked = 0;
+        for (int round = 0; round < rounds; round++)
+        {
+            batch.updateMasks();
+            for (int i = 0; i < games; i++)
+            {
+                int n = batch.generateMoves(i, a);
+                int m = boards[i].generateMoves(b);
+                if (!batch.get(i).equals(boards[i]) || n != m || !Arrays.equals(a, 0, n, b, 0, m))
+                {
+                    throw new IllegalStateException("game " + i + " differs at " + boards[i].toText());
+                }
+                checked++;
+                if (batch.getResult(i) != BoardBatch.NONE)
+                {
+                    batch.reset(i);
+                    boards[i] = CompactBoard.initial();
+                }
+                else
+                {
+                    int move = a[random.nextInt(n)];
+                    batch.setMove(i, move);
+                    boards[i].makeMove(move);
+                }
+            }
+            batch.applyMoves();
+        }
+        return checked;
+    }
+
+    /**
+     * Plays random games with a Logic object per game, one move per game in turn.
+     * @param games the number of games
+     * @param millis how long to play
+     * @return games finished per second
+     */
+    private static double logicGames(int games, long millis)
+    {
+        Logic[] logics = new Logic[games];
+        int[] plies = new int[games];
+        for (int i = 0; i < games; i++)
+        {
+            logics[i] = newLogic();
+        }
+        SplittableRandom random = new SplittableRandom(2);
+        int[] moves = new int[CompactBoard.MAX_MOVES];
+        long finished = 0, start = System.nanoTime(), end = start + millis * 1_000_000L;
+        while (System.nanoTime() < end)
+        {
+            for (int i = 0; i < games; i++)
+            {
+                // a move Logic refuses ends the game too, so no game is stuck
+                int n = logics[i].isGameOver() || plies[i] >= MAX_PLIES ? 0
+                        : CompactBoard.fromLogic(logics[i]).generateMoves(moves);
+                if (n == 0 || !logics[i].playMove(moves[random.nextInt(n)]))
+                {
+                    logics[i] = newLogic();
+                    plies[i] = 0;
+                    finished++;
+                }
+                else
+                {
+                    plies[i]++;
+                }
+            }
+        }
+        return finished * 1e9 / (System.nanoTime() - start);
+    }
+
+    /**
+     * Creates a game ready to be played.
+     * @return the game
+     */
+    private static Logic newLogic()
+    {
+        Logic logic = new Logic();
+        logic.setOpponent();
+        return logic;
+    }
+
+    /**
+     * Plays random games with a CompactBoard per game, one move per game in turn.
+     * @param games the number of games
+     * @param millis how long to play
+     * @return games finished per second
+     */
+    private static double compactGames(int games, long millis)
+    {
+        CompactBoard[] boards = new CompactBoard[games];
+        int[] plies = new int[games];
+        for (int i = 0; i < games; i++)
+        {
+            boards[i] = CompactBoard.initial();
+        }
+        SplittableRandom random = new SplittableRandom(3);
+        int[] moves = new int[CompactBoard.MAX_MOVES];
+        long finished = 0, start = System.nanoTime(), end = start + millis * 1_000_000L;
+        while (System.nanoTime() < end)
+        {
+            for (int i = 0; i < games; i++)
+            {
+                int n = boards[i].isTie() || plies[i] >= MAX_PLIES ? 0 : boards[i].generateMoves(moves);
+                if (n == 0)
+                {
+                    boards[i] = CompactBoard.initial();
+                    plies[i] = 0;
+                    finished++;
+                }
+                else
+                {
+                    boards[i].makeMove(moves[random.nextInt(n)]);
+                    plies[i]++;
+                }
+            }
+        }
+        return finished * 1e9 / (System.nanoTime() - start);
+    }
+
+    /**
+     * Plays random games in a BoardBatch, one move per game each round.
+     * @param games the number of games
+     * @param millis how long to play
+     * @return games finished per second
+     */
+    private static double batchGames(int games, long millis)
+    {
+        BoardBatch batch = new BoardBatch(games, MAX_PLIES);
+        SplittableRandom random = new SplittableRandom(4);
+        int[] moves = new int[CompactBoard.MAX_MOVES];
+        long finished = 0, start = System.nanoTime(), end = start + millis * 1_000_000L;
+        while (System.nanoTime() < end)
+        {
+            batch.updateMasks();
+            for (int i = 0; i < games; i++)
+            {
+                if (batch.getResult(i) != BoardBatch.NONE)
+                {
+                    batch.reset(i);
+                    finished++;
+                }
+                else
+                {
+                    batch.setMove(i, moves[random.nextInt(batch.generateMoves(i, moves))]);
+                }
+            }
+            batch.applyMoves();
+        }
+        return finished * 1e9 / (System.nanoTime() - start);
+    }
+}
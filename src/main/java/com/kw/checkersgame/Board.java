@@ -2,60 +2,30 @@ package com.kw.checkersgame;
 
 /**
  * This class initializes a board, which is an array of pieces.
- * It has methods for obtaining and setting these pieces.
+ * It has methods for obtaining and setting these pieces. The board's size and starting rows come from its
+ * BoardGeometry; the game itself is played on the 8*8 board.
  */
 public class Board {
 
+    private final BoardGeometry geometry;
     private Piece[][] pieces;
 
     /**
-     * Initializes a board with proper information for its pieces.
+     * Initializes an 8*8 board with proper information for its pieces.
      */
     public Board()
     {
-        // initializes the board
-        pieces = new Piece[8][8];
-        for (int i = 0; i < 8; i++)
-        {
-            for (int j = 0; j < 8; j++)
-            {
-                pieces[i][j] = new Piece();
-            }
-        }
-
-        // set dark pieces
-        for (int i = 0; i < 3; i++)
-        {
-            for (int j = 0; j < 8; j += 2)
-            {
-                boolean even = (i % 2 == 0) ? true : false;
-                if (even)
-                {
-                    pieces[j+1][i].setDarkPiece();
-                }
-                if (!even)
-                {
-                    pieces[j][i].setDarkPiece();
-                }
-            }
-        }
+        this(BoardGeometry.AMERICAN);
+    }
 
-        // set light pieces
-        for (int i = 5; i < 8; i++)
-        {
-            for (int j = 0; j < 8; j += 2)
-            {
-                boolean even = (i % 2 == 0) ? true : false;
-                if (even)
-                {
-                    pieces[j+1][i].setLightPiece();
-                }
-                if (!even)
-                {
-                    pieces[j][i].setLightPiece();
-                }
-            }
-        }
+    /**
+     * Initializes a board of a given shape with proper information for its pieces.
+     * @param geometry the size of the board and the number of rows of men each side starts with
+     */
+    public Board(BoardGeometry geometry)
+    {
+        this.geometry = geometry;
+        resetBoard();
     }
 
     /**
@@ -63,47 +33,35 @@ public class Board {
      */
     public void resetBoard()
     {
-        for (int i = 0; i < 8; i++)
+        int size = geometry.getSize();
+        pieces = new Piece[size][size];
+        for (int i = 0; i < size; i++)
         {
-            for (int j = 0; j < 8; j++)
+            for (int j = 0; j < size; j++)
             {
                 pieces[i][j] = new Piece();
             }
         }
 
-        // set dark pieces
-        for (int i = 0; i < 3; i++)
+        // set dark pieces on the top rows and light pieces on the bottom rows, on the tiles where x + y is odd
+        for (int i = 0; i < geometry.getRowsOfMen(); i++)
         {
-            for (int j = 0; j < 8; j += 2)
+            int light = size - 1 - i;
+            for (int j = 0; j < size; j += 2)
             {
-                boolean even = (i % 2 == 0) ? true : false;
-                if (even)
-                {
-                    pieces[j+1][i].setDarkPiece();
-                }
-                if (!even)
-                {
-                    pieces[j][i].setDarkPiece();
-                }
+                pieces[i % 2 == 0 ? j + 1 : j][i].setDarkPiece();
+                pieces[light % 2 == 0 ? j + 1 : j][light].setLightPiece();
             }
         }
+    }
 
-        // set light pieces
-        for (int i = 5; i < 8; i++)
-        {
-            for (int j = 0; j < 8; j += 2)
-            {
-                boolean even = (i % 2 == 0) ? true : false;
-                if (even)
-                {
-                    pieces[j+1][i].setLightPiece();
-                }
-                if (!even)
-                {
-                    pieces[j][i].setLightPiece();
-                }
-            }
-        }
+    /**
+     * Returns the shape of the board.
+     * @return the board's geometry
+     */
+    public BoardGeometry getGeometry()
+    {
+        return geometry;
     }
 
     /**
@@ -113,7 +71,17 @@ public class Board {
      */
     public void setPieceOnBoard(Position pos, Piece piece)
     {
-        pieces[pos.getX()][pos.getY()] = new Piece(piece);
+        setPieceOnBoard(pos.getSquare(), piece);
+    }
+
+    /**
+     * Sets a piece on a specified square.
+     * @param square the square that the piece is being set on
+     * @param piece the piece that is being set
+     */
+    public void setPieceOnBoard(Square square, Piece piece)
+    {
+        pieces[square.getX()][square.getY()] = new Piece(piece);
     }
 
     /**
@@ -123,9 +91,19 @@ public class Board {
      */
     public Piece getPiece(Position p)
     {
-        if (p.inBounds())
+        return getPiece(p.getSquare());
+    }
+
+    /**
+     * Returns the piece on a certain square.
+     * @param square the square that we want a piece from
+     * @return piece from that square, or null if the square is off the board
+     */
+    public Piece getPiece(Square square)
+    {
+        if (square.inBounds(geometry))
         {
-            return pieces[p.getX()][p.getY()];
+            return pieces[square.getX()][square.getY()];
         }
         else return null;
     }
@@ -138,6 +116,6 @@ public class Board {
      */
     public Piece getPiece(int newX, int newY)
     {
-        return getPiece(new Position(newX, newY));
+        return getPiece(Square.of(newX, newY));
     }
 }
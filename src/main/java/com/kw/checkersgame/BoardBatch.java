@@ -0,0 +1,351 @@
+package com.kw.checkersgame;
+
+/**
+ * This class holds many independent games side by side as parallel int arrays, one entry per game, laid out
+ * like CompactBoard. Work that is the same for every game - finding which pieces can move or jump, checking
+ * for the end of the game and making the chosen moves - runs over the whole batch in branch-free loops with
+ * no objects, which the JIT can unroll and vectorise. Only listing one game's moves to choose from is done
+ * game by game, and it lists exactly the moves CompactBoard.generateMoves would, in the same order.
+ * Draws by repetition are not tracked; a game is drawn by the no-progress limit or the ply limit instead.
+ */
+public final class BoardBatch {
+    /** Result code of a game still being played. */
+    public static final byte NONE = 0;
+    /** Result code of a game dark won. */
+    public static final byte DARK_WINS = 1;
+    /** Result code of a game light won. */
+    public static final byte LIGHT_WINS = 2;
+    /** Result code of a drawn game. */
+    public static final byte DRAW = 3;
+
+    private static final int EVEN_ROWS = 0x0F0F0F0F;
+    private static final int ODD_ROWS = 0xF0F0F0F0;
+    private static final int NOT_LEFT = 0xEEEEEEEE;
+    private static final int NOT_RIGHT = 0x77777777;
+    private static final int DARK_CROWN_ROW = 0xF0000000;
+    private static final int LIGHT_CROWN_ROW = 0x0000000F;
+    private static final int INITIAL_DARK = 0x00000FFF;
+    private static final int INITIAL_LIGHT = 0xFFF00000;
+
+    // the same direction tables as CompactBoard, for listing one game's moves
+    private static final int[] DX = {-1, -1, 1, 1};
+    private static final int[] DY = {-1, 1, -1, 1};
+    private static final int[] DARK_DIRS = {1, 3};
+    private static final int[] LIGHT_DIRS = {0, 2};
+    private static final int[] KING_DIRS = {0, 1, 2, 3};
+    private static final int[][] NEIGHBOR = new int[CompactBoard.SQUARES][4];
+    private static final int[][] JUMP = new int[CompactBoard.SQUARES][4];
+
+    static
+    {
+        for (int sq = 0; sq < CompactBoard.SQUARES; sq++)
+        {
+            for (int d = 0; d < 4; d++)
+            {
+                int x = CompactBoard.x(sq), y = CompactBoard.y(sq);
+                NEIGHBOR[sq][d] = CompactBoard.square(x + DX[d], y + DY[d]);
+                JUMP[sq][d] = CompactBoard.square(x + 2 * DX[d], y + 2 * DY[d]);
+            }
+        }
+    }
+
+    private final int size;
+    private final int maxPlies;
+    private final int noProgressLimit;
+
+    // the position of each game; side is -1 when dark is to move and 0 when light is
+    private final int[] dark, light, kings, side;
+    private final int[] plies, noProgress;
+
+    // found by updateMasks: the pieces of the side to move that can jump, and that can make a plain move
+    private final int[] jumpers, movers;
+    private final byte[] results;
+
+    // the move chosen for each game, applied by applyMoves
+    private final int[] fromBits, toBits, capturedBits;
+
+    /**
+     * Creates a batch of games, all at the starting position.
+     * @param size the number of games
+     * @param maxPlies the number of plies after which a game is drawn
+     */
+    public BoardBatch(int size, int maxPlies)
+    {
+        this.size = size;
+        this.maxPlies = maxPlies;
+        noProgressLimit = PositionHistory.DEFAULT_NO_PROGRESS_LIMIT;
+        dark = new int[size];
+        light = new int[size];
+        kings = new int[size];
+        side = new int[size];
+        plies = new int[size];
+        noProgress = new int[size];
+        jumpers = new int[size];
+        movers = new int[size];
+        results = new byte[size];
+        fromBits = new int[size];
+        toBits = new int[size];
+        capturedBits = new int[size];
+        for (int i = 0; i < size; i++)
+        {
+            reset(i);
+        }
+    }
+
+    /**
+     * Puts one game back at the starting position, with light to move as in CompactBoard.initial, and no move chosen.
+     * @param i the index of the game
+     */
+    public void reset(int i)
+    {
+        dark[i] = INITIAL_DARK;
+        light[i] = INITIAL_LIGHT;
+        kings[i] = 0;
+        side[i] = 0;
+        plies[i] = 0;
+        noProgress[i] = 0;
+        results[i] = NONE;
+        fromBits[i] = 0;
+        toBits[i] = 0;
+        capturedBits[i] = 0;
+    }
+
+    /**
+     * Finds, for every game, which pieces of the side to move can jump and which can move, and whether the game
+     * is over. Must be called after moves are applied and before moves are listed.
+     */
+    public void updateMasks()
+    {
+        for (int i = 0; i < size; i++)
+        {
+            int d = dark[i], l = light[i], k = kings[i], s = side[i];
+            int empty = ~(d | l);
+            int own = (d & s) | (l & ~s);
+            int opponent = (l & s) | (d & ~s);
+
+            // dark men move down the board (increasing row) and light men up; kings move both ways
+            int down = own & (s | k);
+            int up = own & (~s | k);
+
+            // a piece can go in a direction if stepping back the opposite way from the target reaches it
+            int jump = (down & (step2(opponent & step2(empty)) | step0(opponent & step0(empty))))
+                    | (up & (step3(opponent & step3(empty)) | step1(opponent & step1(empty))));
+            int move = (down & (step2(empty) | step0(empty))) | (up & (step3(empty) | step1(empty)));
+            jumpers[i] = jump;
+            movers[i] = move;
+
+            // one piece each, no progress or too many plies is a draw, as Logic checks first; otherwise a side
+            // that cannot move loses
+            boolean drawn = (Integer.bitCount(d) == 1 && Integer.bitCount(l) == 1)
+                    || noProgress[i] >= noProgressLimit || plies[i] >= maxPlies;
+            boolean stuck = (jump | move) == 0;
+            results[i] = drawn ? DRAW : stuck ? (s != 0 ? LIGHT_WINS : DARK_WINS) : NONE;
+        }
+    }
+
+    /**
+     * Lists the legal moves of one game, exactly as CompactBoard.generateMoves would.
+     * @param i the index of the game
+     * @param out the array the moves are written into, at least CompactBoard.MAX_MOVES long
+     * @return the number of moves written
+     */
+    public int generateMoves(int i, int[] out)
+    {
+        int count = 0;
+        if (jumpers[i] != 0)
+        {
+            int occupied = dark[i] | light[i];
+            int opponent = side[i] != 0 ? light[i] : dark[i];
+            for (int bits = jumpers[i]; bits != 0; bits &= bits - 1)
+            {
+                int sq = Integer.numberOfTrailingZeros(bits);
+                int[] dirs = directions(i, sq);
+
+                // like CompactBoard, once a double jump is found the remaining single jumps are dropped
+                boolean multi = false;
+                for (int d : dirs)
+                {
+                    int land = JUMP[sq][d];
+                    if (land < 0 || (occupied & (1 << land)) != 0 || (opponent & (1 << NEIGHBOR[sq][d])) == 0)
+                    {
+                        continue;
+                    }
+                    for (int d2 : dirs)
+                    {
+                        int land2 = JUMP[land][d2];
+                        if (land2 >= 0 && (occupied & (1 << land2)) == 0
+                                && (opponent & (1 << NEIGHBOR[land][d2])) != 0)
+                        {
+                            out[count++] = CompactBoard.encodeMove(sq, land2, land, 2);
+                            multi = true;
+                        }
+                    }
+                    if (!multi)
+                    {
+                        out[count++] = CompactBoard.encodeMove(sq, land, 0, 1);
+                    }
+                }
+            }
+            return count;
+        }
+
+        int empty = ~(dark[i] | light[i]);
+        for (int bits = movers[i]; bits != 0; bits &= bits - 1)
+        {
+            int sq = Integer.numberOfTrailingZeros(bits);
+            for (int d : directions(i, sq))
+            {
+                int to = NEIGHBOR[sq][d];
+                if (to >= 0 && (empty & (1 << to)) != 0)
+                {
+                    out[count++] = CompactBoard.encodeMove(sq, to, 0, 0);
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the directions the piece on a square of one game may move in.
+     * @param i the index of the game
+     * @param sq the square of the piece
+     * @return indices into the direction tables
+     */
+    private int[] directions(int i, int sq)
+    {
+        if ((kings[i] & (1 << sq)) != 0)
+        {
+            return KING_DIRS;
+        }
+        return (dark[i] & (1 << sq)) != 0 ? DARK_DIRS : LIGHT_DIRS;
+    }
+
+    /**
+     * Chooses the move one game makes on the next applyMoves.
+     * @param i the index of the game
+     * @param move a move listed by generateMoves, encoded as in CompactBoard
+     */
+    public void setMove(int i, int move)
+    {
+        fromBits[i] = 1 << CompactBoard.moveFrom(move);
+        toBits[i] = 1 << CompactBoard.moveTo(move);
+        capturedBits[i] = CompactBoard.capturedMask(move);
+    }
+
+    /**
+     * Makes the chosen move in every game that has one, crowning, removing captured pieces and passing the turn,
+     * then clears the choices. Games without a chosen move are left as they are.
+     */
+    public void applyMoves()
+    {
+        for (int i = 0; i < size; i++)
+        {
+            int f = fromBits[i], t = toBits[i], c = capturedBits[i], s = side[i];
+            int d = dark[i], l = light[i], k = kings[i];
+
+            // all-ones for a game with a move and for a moving king, all-zeros otherwise
+            int active = (f | -f) >> 31;
+            int king = ((k & f) | -(k & f)) >> 31;
+
+            dark[i] = (((d & ~f) | t) & s) | (d & ~c & ~s);
+            light[i] = (((l & ~f) | t) & ~s) | (l & ~c & s);
+            int crown = t & ((DARK_CROWN_ROW & s) | (LIGHT_CROWN_ROW & ~s));
+            kings[i] = (((k & ~f) | (t & king)) | crown) & ~c;
+
+            // captures and man moves cannot be undone, so they restart the no-progress count
+            int irreversible = ((c | -c) >> 31) | ~king;
+            noProgress[i] = (noProgress[i] - active) & ~(irreversible & active);
+            plies[i] -= active;
+            side[i] = s ^ active;
+
+            fromBits[i] = 0;
+            toBits[i] = 0;
+            capturedBits[i] = 0;
+        }
+    }
+
+    /**
+     * Moves a set of squares one step in direction 0 (left and up).
+     * @param bits the squares
+     * @return the squares one step away, dropping those that would leave the board
+     */
+    private static int step0(int bits)
+    {
+        return ((bits & EVEN_ROWS) >>> 4) | ((bits & ODD_ROWS & NOT_LEFT) >>> 5);
+    }
+
+    /**
+     * Moves a set of squares one step in direction 1 (left and down).
+     * @param bits the squares
+     * @return the squares one step away, dropping those that would leave the board
+     */
+    private static int step1(int bits)
+    {
+        return ((bits & EVEN_ROWS) << 4) | ((bits & ODD_ROWS & NOT_LEFT) << 3);
+    }
+
+    /**
+     * Moves a set of squares one step in direction 2 (right and up).
+     * @param bits the squares
+     * @return the squares one step away, dropping those that would leave the board
+     */
+    private static int step2(int bits)
+    {
+        return ((bits & EVEN_ROWS & NOT_RIGHT) >>> 3) | ((bits & ODD_ROWS) >>> 4);
+    }
+
+    /**
+     * Moves a set of squares one step in direction 3 (right and down).
+     * @param bits the squares
+     * @return the squares one step away, dropping those that would leave the board
+     */
+    private static int step3(int bits)
+    {
+        return ((bits & EVEN_ROWS & NOT_RIGHT) << 5) | ((bits & ODD_ROWS) << 4);
+    }
+
+    /**
+     * Returns the result of one game, as found by the last updateMasks.
+     * @param i the index of the game
+     * @return NONE, DARK_WINS, LIGHT_WINS or DRAW
+     */
+    public byte getResult(int i)
+    {
+        return results[i];
+    }
+
+    /**
+     * Copies one game into a CompactBoard.
+     * @param i the index of the game
+     * @return the game's position
+     */
+    public CompactBoard get(int i)
+    {
+        CompactBoard b = new CompactBoard();
+        b.dark = dark[i];
+        b.light = light[i];
+        b.kings = kings[i];
+        b.darkToMove = side[i] != 0;
+        b.rehash();
+        return b;
+    }
+
+    /**
+     * Returns the number of plies one game has been played for.
+     * @param i the index of the game
+     * @return the ply count
+     */
+    public int getPlies(int i)
+    {
+        return plies[i];
+    }
+
+    /**
+     * Returns the number of games in the batch.
+     * @return the batch size
+     */
+    public int size()
+    {
+        return size;
+    }
+}
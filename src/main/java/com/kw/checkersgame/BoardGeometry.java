@@ -0,0 +1,234 @@
+package com.kw.checkersgame;
+
+/**
+ * This class describes the shape of a draughts board: its size, how many rows of men each side starts with,
+ * and how its playable squares are numbered. Squares are the dark tiles, where x + y is odd, numbered row by row
+ * as y * size / 2 + x / 2, as CompactBoard numbers the 32 squares of the 8*8 board. Dark starts on the top rows
+ * and light on the bottom rows, as on Board.
+ * <p>
+ * The neighbours of every square in each of the four diagonal directions are worked out once, so move generation
+ * over any geometry is table lookups. Every board up to 10*10 has at most 50 playable squares, so a long holds
+ * one bit per square, as DraughtsBoard keeps its pieces.
+ * <p>
+ * Board sets up its pieces from a geometry, and Logic and BoardRenderer turn squares into pixels and back with it.
+ */
+public final class BoardGeometry {
+    /** Number of diagonal directions. */
+    public static final int DIRECTIONS = 4;
+    /** Width and height in pixels the board is drawn at, whatever its size. */
+    public static final int BOARD_PIXELS = 400;
+    /** Height in pixels of the message area drawn above the board. */
+    public static final int TOP = 50;
+
+    // the same directions as CompactBoard: 0 is left and up, 1 left and down, 2 right and up, 3 right and down
+    private static final int[] DX = {-1, -1, 1, 1};
+    private static final int[] DY = {-1, 1, -1, 1};
+
+    /** The 8*8 board of American checkers, with three rows of men each. */
+    public static final BoardGeometry AMERICAN = new BoardGeometry(8, 3);
+    /** The 10*10 board of international draughts, with four rows of men each. */
+    public static final BoardGeometry INTERNATIONAL = new BoardGeometry(10, 4);
+
+    private final int size;
+    private final int rowsOfMen;
+    private final int squares;
+
+    // the square one step from each square in each direction, or -1 off the board, at [square * DIRECTIONS + d]
+    private final int[] neighbors;
+
+    /**
+     * Creates a geometry.
+     * @param size the number of rows and columns, an even number from 4 to 10
+     * @param rowsOfMen the number of rows each side's men start on, leaving at least one empty row between them
+     */
+    public BoardGeometry(int size, int rowsOfMen)
+    {
+        if (size < 4 || size > 10 || size % 2 != 0 || 2 * rowsOfMen >= size || rowsOfMen < 1)
+        {
+            throw new IllegalArgumentException("no " + size + "*" + size + " board with " + rowsOfMen + " rows of men");
+        }
+        this.size = size;
+        this.rowsOfMen = rowsOfMen;
+        squares = size * size / 2;
+        neighbors = new int[squares * DIRECTIONS];
+        for (int sq = 0; sq < squares; sq++)
+        {
+            for (int d = 0; d < DIRECTIONS; d++)
+            {
+                neighbors[sq * DIRECTIONS + d] = square(x(sq) + DX[d], y(sq) + DY[d]);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of rows and columns.
+     * @return the board size
+     */
+    public int getSize()
+    {
+        return size;
+    }
+
+    /**
+     * Returns the number of rows of men each side starts with.
+     * @return the rows of men
+     */
+    public int getRowsOfMen()
+    {
+        return rowsOfMen;
+    }
+
+    /**
+     * Returns the width and height in pixels each tile is drawn at.
+     * @return BOARD_PIXELS / size
+     */
+    public int getTileSize()
+    {
+        return BOARD_PIXELS / size;
+    }
+
+    /**
+     * Returns the number of playable squares.
+     * @return size * size / 2
+     */
+    public int getSquares()
+    {
+        return squares;
+    }
+
+    /**
+     * Returns whether coordinates are on the board.
+     * @param x the x coordinate (column)
+     * @param y the y coordinate (row)
+     * @return true if the coordinates are in bounds, false otherwise
+     */
+    public boolean inBounds(int x, int y)
+    {
+        return x >= 0 && y >= 0 && x < size && y < size;
+    }
+
+    /**
+     * Returns the playable square at coordinates.
+     * @param x the x coordinate (column)
+     * @param y the y coordinate (row)
+     * @return the square, or -1 if the coordinates are off the board or on a light tile
+     */
+    public int square(int x, int y)
+    {
+        if (!inBounds(x, y) || ((x + y) & 1) == 0)
+        {
+            return -1;
+        }
+        return y * (size / 2) + x / 2;
+    }
+
+    /**
+     * Returns the x coordinate of a playable square.
+     * @param sq the square
+     * @return the column
+     */
+    public int x(int sq)
+    {
+        int half = size / 2;
+        int y = sq / half;
+        return (sq % half) * 2 + ((y & 1) == 0 ? 1 : 0);
+    }
+
+    /**
+     * Returns the y coordinate of a playable square.
+     * @param sq the square
+     * @return the row
+     */
+    public int y(int sq)
+    {
+        return sq / (size / 2);
+    }
+
+    /**
+     * Returns the square one diagonal step away.
+     * @param sq the square to step from
+     * @param direction the direction, from 0 to 3 as in CompactBoard
+     * @return the square, or -1 if the step leaves the board
+     */
+    public int neighbor(int sq, int direction)
+    {
+        return neighbors[sq * DIRECTIONS + direction];
+    }
+
+    /**
+     * Returns whether a direction goes down the board, towards higher rows, as dark men move.
+     * @param direction a direction from 0 to 3
+     * @return true for the two downward directions
+     */
+    public static boolean isDown(int direction)
+    {
+        return DY[direction] > 0;
+    }
+
+    /**
+     * Returns every playable square.
+     * @return a bit per square
+     */
+    public long allSquares()
+    {
+        return rowMask(0, size);
+    }
+
+    /**
+     * Returns the squares dark's men start on.
+     * @return a bit per square
+     */
+    public long initialDark()
+    {
+        return rowMask(0, rowsOfMen);
+    }
+
+    /**
+     * Returns the squares light's men start on.
+     * @return a bit per square
+     */
+    public long initialLight()
+    {
+        return rowMask(size - rowsOfMen, size);
+    }
+
+    /**
+     * Returns the squares where dark's men are crowned.
+     * @return a bit per square
+     */
+    public long darkCrownRow()
+    {
+        return rowMask(size - 1, size);
+    }
+
+    /**
+     * Returns the squares where light's men are crowned.
+     * @return a bit per square
+     */
+    public long lightCrownRow()
+    {
+        return rowMask(0, 1);
+    }
+
+    /**
+     * Returns the squares of a range of rows.
+     * @param from the first row
+     * @param to one past the last row
+     * @return a bit per square
+     */
+    private long rowMask(int from, int to)
+    {
+        long mask = 0;
+        for (int sq = from * (size / 2); sq < to * (size / 2); sq++)
+        {
+            mask |= 1L << sq;
+        }
+        return mask;
+    }
+
+    @Override
+    public String toString()
+    {
+        return size + "x" + size;
+    }
+}
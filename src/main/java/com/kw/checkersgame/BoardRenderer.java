@@ -0,0 +1,184 @@
+package com.kw.checkersgame;
+
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.paint.Color;
+
+import java.util.Arrays;
+
+/**
+ * This class draws game snapshots on two stacked canvases, repainting only what changed since the last frame.
+ * The background canvas holds the tiles and lines, which are drawn once. The foreground canvas holds
+ * highlights and pieces; each frame the state of every square is compared to the last frame, and only
+ * squares that differ are cleared and redrawn.
+ */
+public class BoardRenderer {
+    private static final int TOP = BoardGeometry.TOP;
+
+    // a square's state is its piece code with its highlight code shifted above it
+    private static final int HIGHLIGHT_SHIFT = 3;
+
+    private final GraphicsContext background, foreground;
+    private final BoardGeometry geometry;
+    private final int size;
+    private final int[] drawn, next;
+    private boolean backgroundDrawn;
+    private int lastDirty;
+
+    /**
+     * Creates a renderer.
+     * @param background the GraphicsContext of the canvas behind, for the parts that never change
+     * @param foreground the GraphicsContext of the transparent canvas in front, for highlights and pieces
+     * @param geometry the shape of the board, which sets the tiles drawn and their size
+     */
+    public BoardRenderer(GraphicsContext background, GraphicsContext foreground, BoardGeometry geometry)
+    {
+        this.background = background;
+        this.foreground = foreground;
+        this.geometry = geometry;
+        size = geometry.getTileSize();
+        drawn = new int[64];
+        next = new int[64];
+        invalidate();
+    }
+
+    /**
+     * Forces the next frame to redraw everything, for example after a resize or a theme change.
+     */
+    public void invalidate()
+    {
+        backgroundDrawn = false;
+        Arrays.fill(drawn, -1);
+    }
+
+    /**
+     * Draws the current state of a game, touching only the squares that changed since the last frame.
+     * @param logic the game to draw
+     */
+    public void render(Logic logic)
+    {
+        render(logic.getSnapshot(), null);
+    }
+
+    /**
+     * Draws a snapshot, touching only the squares that changed since the last frame.
+     * @param snapshot the snapshot giving the highlights, and the pieces unless they are overridden
+     * @param pieces piece codes to draw instead of the snapshot's, indexed x * 8 + y, or null
+     */
+    public void render(BoardSnapshot snapshot, byte[] pieces)
+    {
+        RenderFrameEvent event = new RenderFrameEvent();
+        event.begin();
+        if (!backgroundDrawn)
+        {
+            background.clearRect(0, 0, background.getCanvas().getWidth(), background.getCanvas().getHeight());
+            drawBackground(background, geometry);
+            backgroundDrawn = true;
+            event.backgroundDrawn = true;
+        }
+
+        for (int index = 0; index < 64; index++)
+        {
+            int piece = pieces == null ? snapshot.getPiece(index) : pieces[index];
+            next[index] = piece | (snapshot.getHighlight(index) << HIGHLIGHT_SHIFT);
+        }
+
+        lastDirty = 0;
+        double scale = PieceSprites.outputScale(foreground);
+        for (int index = 0; index < 64; index++)
+        {
+            if (next[index] != drawn[index])
+            {
+                drawSquare(index / 8, index % 8, next[index], scale);
+                drawn[index] = next[index];
+                lastDirty++;
+            }
+        }
+
+        event.dirtySquares = lastDirty;
+        event.commit();
+        Metrics.frame(lastDirty);
+    }
+
+    /**
+     * Draws the parts of the board that never change: the background, the tiles, and the separating lines.
+     * @param gc the GraphicsContext being added to
+     * @param geometry the shape of the board
+     */
+    private static void drawBackground(GraphicsContext gc, BoardGeometry geometry)
+    {
+        int pixels = BoardGeometry.BOARD_PIXELS;
+        int tile = geometry.getTileSize();
+
+        // line separating message from game
+        gc.setStroke(Color.DARKGREEN);
+        gc.strokeLine(0, TOP, pixels, TOP);
+        gc.strokeLine(0, TOP + pixels, pixels, TOP + pixels);
+
+        gc.setFill(Color.LIGHTYELLOW);
+        gc.fillRect(0, TOP, pixels, pixels);
+
+        // drawing tiles
+        gc.setFill(Color.DARKSEAGREEN);
+        for (int i = 0; i < geometry.getSize(); i++)
+        {
+            for (int j = 0; j < geometry.getSize(); j+=2)
+            {
+                boolean even = i % 2 == 0;
+                if (even)
+                {
+                    gc.fillRect(i * tile, (j+1) * tile + TOP, tile, tile);
+                    gc.setStroke(Color.DARKGREEN);
+                    gc.strokeRect(i * tile, (j+1) * tile + TOP, tile, tile);
+                }
+                if (!even)
+                {
+                    gc.fillRect(i * tile, j * tile + TOP, tile, tile);
+                    gc.setStroke(Color.DARKGREEN);
+                    gc.strokeRect(i * tile, (j+1) * tile + TOP, tile, tile);
+                }
+            }
+        }
+    }
+
+    /**
+     * Clears one square of the foreground and draws its highlight and piece.
+     * @param x the x coordinate of the square
+     * @param y the y coordinate of the square
+     * @param state the state code of the square
+     * @param scale the output scale of the screen
+     */
+    private void drawSquare(int x, int y, int state, double scale)
+    {
+        double px = x * size;
+        double py = y * size + TOP;
+        foreground.clearRect(px, py, size, size);
+
+        int highlight = state >> HIGHLIGHT_SHIFT;
+        if (highlight == BoardSnapshot.DESTINATION)
+        {
+            foreground.setFill(Color.DARKORANGE);
+            foreground.fillRect(px, py, size, size);
+        }
+        else if (highlight == BoardSnapshot.ROUTE)
+        {
+            foreground.setFill(Color.SANDYBROWN);
+            foreground.fillRect(px, py, size, size);
+        }
+
+        if ((state & BoardSnapshot.PIECE) != 0)
+        {
+            boolean dark = (state & BoardSnapshot.DARK) != 0;
+            boolean king = (state & BoardSnapshot.KING) != 0;
+            foreground.drawImage(PieceSprites.get(dark, king, scale), px, py, size, size);
+        }
+    }
+
+    /**
+     * Returns how many squares the last frame redrew.
+     * @return the number of dirty squares
+     */
+    public int getLastDirty()
+    {
+        return lastDirty;
+    }
+}
@@ -0,0 +1,111 @@
+package com.kw.checkersgame;
+
+/**
+ * This class is an unchangeable picture of a game at one moment: its pieces, highlighted squares,
+ * the path of the last move and whose turn it is. Logic publishes a new snapshot after every change,
+ * so drawing code on another thread can read it without locks.
+ * Squares are indexed as x * 8 + y.
+ */
+public final class BoardSnapshot {
+    /** Piece code bit: the square holds a piece. */
+    public static final int PIECE = 1;
+    /** Piece code bit: the piece is dark. */
+    public static final int DARK = 2;
+    /** Piece code bit: the piece is a king. */
+    public static final int KING = 4;
+
+    /** Highlight code: the square is a legal destination. */
+    public static final int DESTINATION = 1;
+    /** Highlight code: the square is on the route to a legal destination. */
+    public static final int ROUTE = 2;
+
+    private final byte[] pieces, highlights;
+    private final int[] lastPath, lastCaptured;
+    private final boolean darkTurn;
+    private final int moveNumber;
+
+    /**
+     * Creates a snapshot. The arrays are copied.
+     * @param pieces the piece code of every square
+     * @param highlights the highlight code of every square
+     * @param lastPath the squares the last moved piece stood on, from start to end, or an empty array
+     * @param lastCaptured the square captured on each step of lastPath, or -1 for a step without a capture
+     * @param darkTurn whether it is dark's turn
+     * @param moveNumber the number of moves made in the game so far
+     */
+    public BoardSnapshot(byte[] pieces, byte[] highlights, int[] lastPath, int[] lastCaptured, boolean darkTurn,
+                         int moveNumber)
+    {
+        this.pieces = pieces.clone();
+        this.highlights = highlights.clone();
+        this.lastPath = lastPath.clone();
+        this.lastCaptured = lastCaptured.clone();
+        this.darkTurn = darkTurn;
+        this.moveNumber = moveNumber;
+    }
+
+    /**
+     * Returns the piece code of a square.
+     * @param square the square index, x * 8 + y
+     * @return a combination of PIECE, DARK and KING, or 0 if the square is empty
+     */
+    public int getPiece(int square)
+    {
+        return pieces[square];
+    }
+
+    /**
+     * Returns the highlight code of a square.
+     * @param square the square index, x * 8 + y
+     * @return DESTINATION, ROUTE, or 0
+     */
+    public int getHighlight(int square)
+    {
+        return highlights[square];
+    }
+
+    /**
+     * Returns a copy of every square's piece code.
+     * @return the piece codes, indexed x * 8 + y
+     */
+    public byte[] copyPieces()
+    {
+        return pieces.clone();
+    }
+
+    /**
+     * Returns the squares the last moved piece stood on.
+     * @return the squares from start to end, or an empty array if no move has been made
+     */
+    public int[] getLastPath()
+    {
+        return lastPath.clone();
+    }
+
+    /**
+     * Returns the square captured on each step of the last move.
+     * @return one entry per step of the last path, -1 for a step without a capture
+     */
+    public int[] getLastCaptured()
+    {
+        return lastCaptured.clone();
+    }
+
+    /**
+     * Returns which player's turn it is.
+     * @return true if the current turn is dark, false if current turn is light
+     */
+    public boolean getTurn()
+    {
+        return darkTurn;
+    }
+
+    /**
+     * Returns the number of moves made in the game so far.
+     * @return the move count, which goes back to 0 when the game is reset
+     */
+    public int getMoveNumber()
+    {
+        return moveNumber;
+    }
+}
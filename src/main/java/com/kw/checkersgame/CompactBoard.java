@@ -0,0 +1,735 @@
+package com.kw.checkersgame;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * This class stores a whole checkers position in three bitmasks over the 32 playable squares.
+ * It generates and makes moves with the same rules as Logic, without allocating, so engines can search quickly.
+ * Square n sits on row n / 4, and the squares of each row are numbered from left to right.
+ */
+public final class CompactBoard {
+    /** Number of playable squares on the board. */
+    public static final int SQUARES = 32;
+
+    /** Largest number of moves that can be generated from any position. */
+    public static final int MAX_MOVES = 64;
+
+    // the four diagonal directions, in the same order Logic tests king offsets
+    private static final int[] DX = {-1, -1, 1, 1};
+    private static final int[] DY = {-1, 1, -1, 1};
+    private static final int[] DARK_DIRS = {1, 3};
+    private static final int[] LIGHT_DIRS = {0, 2};
+    private static final int[] KING_DIRS = {0, 1, 2, 3};
+
+    private static final int[][] NEIGHBOR = new int[SQUARES][4];
+    private static final int[][] JUMP = new int[SQUARES][4];
+    private static final int[] MID = new int[SQUARES * SQUARES];
+
+    private static final int DARK_CROWN_ROW = 0xF0000000;
+    private static final int LIGHT_CROWN_ROW = 0x0000000F;
+
+    // Zobrist keys for dark men, dark kings, light men and light kings on each square, from a fixed seed so
+    // hashes are the same in every run
+    private static final long[][] ZOBRIST = new long[4][SQUARES];
+    private static final long ZOBRIST_DARK_TO_MOVE;
+
+    static
+    {
+        SplittableRandom keys = new SplittableRandom(0x5EED_C0DEL);
+        for (long[] table : ZOBRIST)
+        {
+            for (int sq = 0; sq < SQUARES; sq++)
+            {
+                table[sq] = keys.nextLong();
+            }
+        }
+        ZOBRIST_DARK_TO_MOVE = keys.nextLong();
+
+        Arrays.fill(MID, -1);
+        for (int sq = 0; sq < SQUARES; sq++)
+        {
+            for (int d = 0; d < 4; d++)
+            {
+                NEIGHBOR[sq][d] = square(x(sq) + DX[d], y(sq) + DY[d]);
+                JUMP[sq][d] = square(x(sq) + 2 * DX[d], y(sq) + 2 * DY[d]);
+                if (JUMP[sq][d] >= 0)
+                {
+                    MID[sq * SQUARES + JUMP[sq][d]] = NEIGHBOR[sq][d];
+                }
+            }
+        }
+    }
+
+    int dark, light, kings;
+    boolean darkToMove;
+    long hash;
+
+    // the hash of the flipped position, kept up to date alongside hash so canonicalHash costs nothing
+    long flippedHash;
+
+    /**
+     * Creates an empty board with light to move.
+     */
+    public CompactBoard()
+    {
+        darkToMove = false;
+    }
+
+    /**
+     * Makes a copy of a given compact board.
+     * @param b the board to make a copy of
+     */
+    public CompactBoard(CompactBoard b)
+    {
+        copyFrom(b);
+    }
+
+    /**
+     * Creates a board with pieces in their starting positions, matching Board.
+     * @return the starting position
+     */
+    public static CompactBoard initial()
+    {
+        CompactBoard b = new CompactBoard();
+        b.dark = 0x00000FFF;
+        b.light = 0xFFF00000;
+        b.rehash();
+        return b;
+    }
+
+    /**
+     * Creates a compact copy of the position currently held by a logic object.
+     * @param logic the logic object to read pieces and turn from
+     * @return the compact position
+     */
+    public static CompactBoard fromLogic(Logic logic)
+    {
+        CompactBoard b = new CompactBoard();
+        Board board = logic.getBoard();
+        for (int sq = 0; sq < SQUARES; sq++)
+        {
+            Piece piece = board.getPiece(x(sq), y(sq));
+            if (!piece.getEmpty())
+            {
+                if (piece.getDark())
+                {
+                    b.dark |= 1 << sq;
+                }
+                else
+                {
+                    b.light |= 1 << sq;
+                }
+                if (piece.getKing())
+                {
+                    b.kings |= 1 << sq;
+                }
+            }
+        }
+        b.darkToMove = logic.getTurn();
+        b.rehash();
+        return b;
+    }
+
+    /**
+     * Reads a board written by toText.
+     * @param text 64 characters, row by row from the top: '.' empty, 'd' or 'D' for a dark man or king,
+     *             'l' or 'L' for a light man or king
+     * @param darkToMove whether it is dark's turn
+     * @return the board, or null if the text is not a valid board
+     */
+    public static CompactBoard fromText(String text, boolean darkToMove)
+    {
+        if (text.length() != 64)
+        {
+            return null;
+        }
+        CompactBoard b = new CompactBoard();
+        for (int i = 0; i < 64; i++)
+        {
+            char c = text.charAt(i);
+            if (c == '.')
+            {
+                continue;
+            }
+            int sq = square(i % 8, i / 8);
+            if (sq < 0 || "dDlL".indexOf(c) < 0)
+            {
+                return null;
+            }
+            if (c == 'd' || c == 'D')
+            {
+                b.dark |= 1 << sq;
+            }
+            else
+            {
+                b.light |= 1 << sq;
+            }
+            if (Character.isUpperCase(c))
+            {
+                b.kings |= 1 << sq;
+            }
+        }
+        b.darkToMove = darkToMove;
+        b.rehash();
+        return b;
+    }
+
+    /**
+     * Writes the pieces as text that fromText can read back.
+     * @return 64 characters, row by row from the top
+     */
+    public String toText()
+    {
+        StringBuilder sb = new StringBuilder(64);
+        for (int i = 0; i < 64; i++)
+        {
+            int sq = square(i % 8, i / 8);
+            char c = '.';
+            if (sq >= 0 && ((dark | light) & (1 << sq)) != 0)
+            {
+                c = (dark & (1 << sq)) != 0 ? 'd' : 'l';
+                if ((kings & (1 << sq)) != 0)
+                {
+                    c = Character.toUpperCase(c);
+                }
+            }
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Overwrites this board with the contents of another one.
+     * @param b the board to copy from
+     */
+    public void copyFrom(CompactBoard b)
+    {
+        dark = b.dark;
+        light = b.light;
+        kings = b.kings;
+        darkToMove = b.darkToMove;
+        hash = b.hash;
+        flippedHash = b.flippedHash;
+    }
+
+    /**
+     * Recomputes the Zobrist hash from scratch, after the masks have been set directly.
+     */
+    void rehash()
+    {
+        long h = darkToMove ? ZOBRIST_DARK_TO_MOVE : 0;
+        long f = darkToMove ? 0 : ZOBRIST_DARK_TO_MOVE;
+        for (int bits = dark | light; bits != 0; bits &= bits - 1)
+        {
+            int sq = Integer.numberOfTrailingZeros(bits);
+            h ^= pieceKey(sq);
+            f ^= flippedPieceKey(sq);
+        }
+        hash = h;
+        flippedHash = f;
+    }
+
+    /**
+     * Returns the Zobrist key of the piece standing on a square.
+     * @param sq a square that holds a piece
+     * @return the key for that piece type on that square
+     */
+    private long pieceKey(int sq)
+    {
+        int type = ((light >>> sq) & 1) << 1 | ((kings >>> sq) & 1);
+        return ZOBRIST[type][sq];
+    }
+
+    /**
+     * Returns the Zobrist key the piece standing on a square has in the flipped position:
+     * the other colour, on the square turned half way round the board.
+     * @param sq a square that holds a piece
+     * @return the key for the flipped piece
+     */
+    private long flippedPieceKey(int sq)
+    {
+        int type = ((dark >>> sq) & 1) << 1 | ((kings >>> sq) & 1);
+        return ZOBRIST[type][SQUARES - 1 - sq];
+    }
+
+    /**
+     * Returns the Zobrist hash of the position, which is kept up to date as moves are made.
+     * @return the 64-bit position hash
+     */
+    public long hash()
+    {
+        return hash;
+    }
+
+    /**
+     * Returns the hash of the flipped position, the one flipped returns, without building it.
+     * @return the 64-bit hash of the flipped form
+     */
+    public long flippedHash()
+    {
+        return flippedHash;
+    }
+
+    /**
+     * Returns the hash of this position or of its flipped form, whichever has dark to move.
+     * Caches keyed by this hash share one entry between a position and its flipped form; a move stored for it
+     * must go through toCanonical and fromCanonical.
+     * <p>
+     * The key is an approximation. The two forms almost always play the same, but Logic's jump order is not
+     * symmetric (see flipped), so they can differ in legal moves anywhere below them and so in value. Nothing
+     * that has to be exact, such as a stored score or bound, may be keyed by it; AlphaBetaEngine keys its table
+     * by hash and only borrows the flipped form's move to order its search.
+     * @return the 64-bit hash of the canonical form
+     */
+    public long canonicalHash()
+    {
+        return darkToMove ? hash : flippedHash;
+    }
+
+    /**
+     * Returns whether this position is its own canonical form, which is the form with dark to move.
+     * @return true if dark is to move, false otherwise
+     */
+    public boolean isCanonical()
+    {
+        return darkToMove;
+    }
+
+    /**
+     * Returns the flipped position: colours swapped, the board turned half way round, and the other side to move.
+     * The rules treat both sides alike apart from direction, so the flipped position plays the same, with every
+     * move turned by flipMove and every score unchanged for the side to move. The one exception is Logic's habit
+     * of dropping a piece's later single jumps once it finds a double jump: directions are tried in a fixed order,
+     * which flipping reverses, so in rare positions (about 3 in 10,000 of random games) the two forms offer
+     * different single jumps.
+     * @return a new board holding the flipped position
+     */
+    public CompactBoard flipped()
+    {
+        CompactBoard b = new CompactBoard();
+        b.dark = Integer.reverse(light);
+        b.light = Integer.reverse(dark);
+        b.kings = Integer.reverse(kings);
+        b.darkToMove = !darkToMove;
+        b.hash = flippedHash;
+        b.flippedHash = hash;
+        return b;
+    }
+
+    /**
+     * Returns the canonical form of this position, the one with dark to move.
+     * @return this board if it is canonical, otherwise a new flipped board
+     */
+    public CompactBoard canonical()
+    {
+        return darkToMove ? this : flipped();
+    }
+
+    /**
+     * Turns a move of a position into the same move of the flipped position. Doing it twice gives the move back.
+     * @param move an encoded move
+     * @return the move with every square turned half way round the board
+     */
+    public static int flipMove(int move)
+    {
+        int last = SQUARES - 1;
+        int jumps = moveJumps(move);
+        return encodeMove(last - moveFrom(move), last - moveTo(move), jumps == 2 ? last - moveVia(move) : 0, jumps);
+    }
+
+    /**
+     * Turns a move of this position into the matching move of its canonical form.
+     * @param move a move of this position, or -1 for none
+     * @return the move in the canonical form, or -1
+     */
+    public int toCanonical(int move)
+    {
+        return darkToMove || move < 0 ? move : flipMove(move);
+    }
+
+    /**
+     * Turns a move of the canonical form back into the matching move of this position.
+     * @param move a move of the canonical form, or -1 for none
+     * @return the move in this position, or -1
+     */
+    public int fromCanonical(int move)
+    {
+        return toCanonical(move);
+    }
+
+    /**
+     * Returns whether a move can never be undone: a capture, or a move by a man.
+     * Such moves reset the no-progress count and end any chance of repeating earlier positions.
+     * @param move a legal move generated from this position, before it is made
+     * @return true if the move is irreversible, false for a king's simple move
+     */
+    public boolean isIrreversible(int move)
+    {
+        return moveJumps(move) != 0 || (kings & (1 << moveFrom(move))) == 0;
+    }
+
+    /**
+     * Returns the square index of board coordinates.
+     * @param x the x coordinate (column)
+     * @param y the y coordinate (row)
+     * @return the square index, or -1 if the coordinates are off the board or on a light tile
+     */
+    public static int square(int x, int y)
+    {
+        if (x < 0 || y < 0 || x >= 8 || y >= 8 || ((x + y) & 1) == 0)
+        {
+            return -1;
+        }
+        return y * 4 + (x >> 1);
+    }
+
+    /**
+     * Returns the x coordinate (column) of a square.
+     * @param sq the square index
+     * @return the x coordinate of the square
+     */
+    public static int x(int sq)
+    {
+        return ((sq & 3) << 1) + (((sq >> 2) & 1) == 0 ? 1 : 0);
+    }
+
+    /**
+     * Returns the y coordinate (row) of a square.
+     * @param sq the square index
+     * @return the y coordinate of the square
+     */
+    public static int y(int sq)
+    {
+        return sq >> 2;
+    }
+
+    /**
+     * Encodes a move into an int: 5 bits each for from, to and the intermediate landing, then the jump count.
+     * @param from the square the piece starts on
+     * @param to the square the piece ends on
+     * @param via the square a double jump lands on in between, ignored otherwise
+     * @param jumps the number of pieces jumped (0, 1 or 2)
+     * @return the encoded move
+     */
+    public static int encodeMove(int from, int to, int via, int jumps)
+    {
+        return from | (to << 5) | ((via & 31) << 10) | (jumps << 15);
+    }
+
+    /**
+     * Returns the start square of an encoded move.
+     * @param move the encoded move
+     * @return the square the piece starts on
+     */
+    public static int moveFrom(int move)
+    {
+        return move & 31;
+    }
+
+    /**
+     * Returns the end square of an encoded move.
+     * @param move the encoded move
+     * @return the square the piece ends on
+     */
+    public static int moveTo(int move)
+    {
+        return (move >>> 5) & 31;
+    }
+
+    /**
+     * Returns the intermediate landing square of an encoded double jump.
+     * @param move the encoded move
+     * @return the square landed on between the two jumps
+     */
+    public static int moveVia(int move)
+    {
+        return (move >>> 10) & 31;
+    }
+
+    /**
+     * Returns the number of pieces an encoded move jumps.
+     * @param move the encoded move
+     * @return 0 for a simple move, 1 or 2 for jumps
+     */
+    public static int moveJumps(int move)
+    {
+        return (move >>> 15) & 3;
+    }
+
+    /**
+     * Returns a bitmask of the squares captured by an encoded move.
+     * @param move the encoded move
+     * @return the captured squares
+     */
+    public static int capturedMask(int move)
+    {
+        int from = moveFrom(move), to = moveTo(move);
+        switch (moveJumps(move))
+        {
+            case 1:
+                return 1 << MID[from * SQUARES + to];
+            case 2:
+                int via = moveVia(move);
+                return (1 << MID[from * SQUARES + via]) | (1 << MID[via * SQUARES + to]);
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Generates every legal move for the side to move into a given array.
+     * Jumps are mandatory, and double jumps are found exactly the way Logic finds them.
+     * @param out the array the moves are written into, at least MAX_MOVES long
+     * @return the number of moves written
+     */
+    public int generateMoves(int[] out)
+    {
+        int own = darkToMove ? dark : light;
+        int count = 0;
+
+        // check for jumps first
+        for (int bits = own; bits != 0; bits &= bits - 1)
+        {
+            count = generateJumps(Integer.numberOfTrailingZeros(bits), out, count);
+        }
+        if (count > 0)
+        {
+            return count;
+        }
+
+        int empty = ~(dark | light);
+        for (int bits = own; bits != 0; bits &= bits - 1)
+        {
+            int sq = Integer.numberOfTrailingZeros(bits);
+            for (int d : directions(sq))
+            {
+                int to = NEIGHBOR[sq][d];
+                if (to >= 0 && (empty & (1 << to)) != 0)
+                {
+                    out[count++] = encodeMove(sq, to, 0, 0);
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Generates the jumps of the piece on a square, mirroring Logic's getKills and getKillsKing.
+     * @param sq the square of the piece
+     * @param out the array the moves are written into
+     * @param count the number of moves already in the array
+     * @return the new number of moves in the array
+     */
+    private int generateJumps(int sq, int[] out, int count)
+    {
+        int occupied = dark | light;
+        int opponent = darkToMove ? light : dark;
+        int[] dirs = directions(sq);
+
+        // like Logic, once a double jump is found the remaining single jumps of this piece are dropped
+        boolean multi = false;
+        for (int d : dirs)
+        {
+            int land = JUMP[sq][d];
+            if (land < 0 || (occupied & (1 << land)) != 0 || (opponent & (1 << NEIGHBOR[sq][d])) == 0)
+            {
+                continue;
+            }
+            for (int d2 : dirs)
+            {
+                int land2 = JUMP[land][d2];
+                if (land2 >= 0 && (occupied & (1 << land2)) == 0 && (opponent & (1 << NEIGHBOR[land][d2])) != 0)
+                {
+                    out[count++] = encodeMove(sq, land2, land, 2);
+                    multi = true;
+                }
+            }
+            if (!multi)
+            {
+                out[count++] = encodeMove(sq, land, 0, 1);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the directions the piece on a square may move in.
+     * @param sq the square of the piece
+     * @return indices into the direction tables
+     */
+    private int[] directions(int sq)
+    {
+        if ((kings & (1 << sq)) != 0)
+        {
+            return KING_DIRS;
+        }
+        return (dark & (1 << sq)) != 0 ? DARK_DIRS : LIGHT_DIRS;
+    }
+
+    /**
+     * Makes an encoded move for the side to move, removing captured pieces, crowning, and switching the turn.
+     * @param move a legal move generated from this position
+     */
+    public void makeMove(int move)
+    {
+        int fromBit = 1 << moveFrom(move);
+        int toBit = 1 << moveTo(move);
+        int captured = capturedMask(move);
+
+        // take the moving and captured pieces out of the hashes before the masks change
+        long h = hash ^ pieceKey(moveFrom(move)) ^ ZOBRIST_DARK_TO_MOVE;
+        long f = flippedHash ^ flippedPieceKey(moveFrom(move)) ^ ZOBRIST_DARK_TO_MOVE;
+        for (int bits = captured; bits != 0; bits &= bits - 1)
+        {
+            int sq = Integer.numberOfTrailingZeros(bits);
+            h ^= pieceKey(sq);
+            f ^= flippedPieceKey(sq);
+        }
+
+        if (darkToMove)
+        {
+            dark = (dark & ~fromBit) | toBit;
+            light &= ~captured;
+            if ((toBit & DARK_CROWN_ROW) != 0)
+            {
+                kings |= toBit;
+            }
+        }
+        else
+        {
+            light = (light & ~fromBit) | toBit;
+            dark &= ~captured;
+            if ((toBit & LIGHT_CROWN_ROW) != 0)
+            {
+                kings |= toBit;
+            }
+        }
+
+        if ((kings & fromBit) != 0)
+        {
+            kings = (kings & ~fromBit) | toBit;
+        }
+        kings &= ~captured;
+        darkToMove = !darkToMove;
+        hash = h ^ pieceKey(moveTo(move));
+        flippedHash = f ^ flippedPieceKey(moveTo(move));
+    }
+
+    /**
+     * Returns whether exactly one piece per side is left, which Logic calls a tie.
+     * @return true if the position is a tie, false otherwise
+     */
+    public boolean isTie()
+    {
+        return Integer.bitCount(dark) == 1 && Integer.bitCount(light) == 1;
+    }
+
+    /**
+     * Returns the number of dark pieces on the board.
+     * @return the number of dark pieces
+     */
+    public int darkCount()
+    {
+        return Integer.bitCount(dark);
+    }
+
+    /**
+     * Returns the number of light pieces on the board.
+     * @return the number of light pieces
+     */
+    public int lightCount()
+    {
+        return Integer.bitCount(light);
+    }
+
+    /**
+     * Returns the bitmask of dark pieces.
+     * @return the dark pieces
+     */
+    public int getDark()
+    {
+        return dark;
+    }
+
+    /**
+     * Returns the bitmask of light pieces.
+     * @return the light pieces
+     */
+    public int getLight()
+    {
+        return light;
+    }
+
+    /**
+     * Returns the bitmask of kings of either colour.
+     * @return the kings
+     */
+    public int getKings()
+    {
+        return kings;
+    }
+
+    /**
+     * Returns which player's turn it is.
+     * @return true if the current turn is dark, false if current turn is light
+     */
+    public boolean getTurn()
+    {
+        return darkToMove;
+    }
+
+    /**
+     * Returns a readable form of an encoded move, such as "(1,2)-(3,4)".
+     * @param move the encoded move
+     * @return the move as board coordinates
+     */
+    public static String moveToString(int move)
+    {
+        StringBuilder sb = new StringBuilder();
+        sb.append('(').append(x(moveFrom(move))).append(',').append(y(moveFrom(move))).append(')');
+        if (moveJumps(move) == 2)
+        {
+            sb.append("x(").append(x(moveVia(move))).append(',').append(y(moveVia(move))).append(')');
+        }
+        sb.append(moveJumps(move) == 0 ? '-' : 'x');
+        sb.append('(').append(x(moveTo(move))).append(',').append(y(moveTo(move))).append(')');
+        return sb.toString();
+    }
+
+    /**
+     * Finds a legal move of the side to move from its text form.
+     * @param text the move written as by moveToString
+     * @return the move, or AlphaBetaEngine.NO_MOVE if no legal move has that text
+     */
+    public int findMove(String text)
+    {
+        int[] moves = new int[MAX_MOVES];
+        int count = generateMoves(moves);
+        for (int i = 0; i < count; i++)
+        {
+            if (moveToString(moves[i]).equals(text))
+            {
+                return moves[i];
+            }
+        }
+        return AlphaBetaEngine.NO_MOVE;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (!(o instanceof CompactBoard))
+        {
+            return false;
+        }
+        CompactBoard b = (CompactBoard) o;
+        return dark == b.dark && light == b.light && kings == b.kings && darkToMove == b.darkToMove;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Long.hashCode(hash);
+    }
+}
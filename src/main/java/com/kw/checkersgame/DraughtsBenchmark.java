@@ -0,0 +1,113 @@
+package com.kw.checkersgame;
+
+import java.util.function.LongSupplier;
+
+/**
+ * This program checks DraughtsBoard's move generator against the published perft counts of American checkers and
+ * international draughts, then prints how many positions per second it generates on one thread for each, beside
+ * CompactBoard on the 8*8 board. CompactBoard plays Logic's rules, so its counts are its own and only its speed
+ * is compared.
+ */
+public class DraughtsBenchmark {
+    // the number of move sequences from the starting position for each depth from 1
+    private static final long[] AMERICAN_PERFT = {7, 49, 302, 1469, 7361, 36768, 179740, 845931, 3963680};
+    private static final long[] INTERNATIONAL_PERFT = {9, 81, 658, 4265, 27117, 167140, 1049442, 6483961};
+
+    /**
+     * Runs the benchmark.
+     * @param args the depth to time each board at, 8 if not given
+     */
+    public static void main(String[] args)
+    {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+
+        check(RuleSet.AMERICAN, AMERICAN_PERFT);
+        check(RuleSet.INTERNATIONAL, INTERNATIONAL_PERFT);
+        System.out.printf("perft to depth %d, 1 thread%n", depth);
+        measure("CompactBoard 8x8", () -> compactPerft(CompactBoard.initial(), depth));
+        measure("DraughtsBoard american", () -> DraughtsBoard.initial(RuleSet.AMERICAN).perft(depth));
+        measure("DraughtsBoard international", () -> DraughtsBoard.initial(RuleSet.INTERNATIONAL).perft(depth));
+    }
+
+    /**
+     * Checks a rule set's perft counts from the starting position.
+     * @param rules the rules
+     * @param expected the known count at each depth from 1
+     * @throws IllegalStateException if a count differs
+     */
+    private static void check(RuleSet rules, long[] expected)
+    {
+        for (int depth = 1; depth <= expected.length; depth++)
+        {
+            long nodes = DraughtsBoard.initial(rules).perft(depth);
+            if (nodes != expected[depth - 1])
+            {
+                throw new IllegalStateException(rules.getName() + " perft " + depth + " is " + nodes
+                        + ", not " + expected[depth - 1]);
+            }
+        }
+        System.out.printf("%s perft matches to depth %d%n", rules, expected.length);
+    }
+
+    /**
+     * Runs a perft twice, the first time to warm up, and prints the second result.
+     * @param name the name printed
+     * @param run the perft, returning its count
+     */
+    private static void measure(String name, LongSupplier run)
+    {
+        run.getAsLong();
+        long start = System.nanoTime();
+        long nodes = run.getAsLong();
+        long nanos = System.nanoTime() - start;
+        System.out.printf("%-28s %,14d nodes %,14.0f nodes/sec%n", name, nodes, nodes * 1e9 / nanos);
+    }
+
+    /**
+     * Counts CompactBoard's move sequences of a given length.
+     * @param b the position
+     * @param depth the number of plies
+     * @return the number of move sequences
+     */
+    private static long compactPerft(CompactBoard b, int depth)
+    {
+        CompactBoard[] saved = new CompactBoard[depth];
+        for (int i = 0; i < depth; i++)
+        {
+            saved[i] = new CompactBoard();
+        }
+        return compactPerft(b, depth, new int[depth][CompactBoard.MAX_MOVES], saved);
+    }
+
+    /**
+     * Counts CompactBoard's move sequences, with one move array and one saved board per ply.
+     * @param b the position, which is restored before returning
+     * @param depth the number of plies
+     * @param moves a move array for each ply
+     * @param saved a board for each ply to restore from
+     * @return the number of move sequences
+     */
+    private static long compactPerft(CompactBoard b, int depth, int[][] moves, CompactBoard[] saved)
+    {
+        if (depth == 0)
+        {
+            return 1;
+        }
+        int[] list = moves[depth - 1];
+        int count = b.generateMoves(list);
+        if (depth == 1)
+        {
+            return count;
+        }
+        CompactBoard before = saved[depth - 1];
+        before.copyFrom(b);
+        long nodes = 0;
+        for (int i = 0; i < count; i++)
+        {
+            b.makeMove(list[i]);
+            nodes += compactPerft(b, depth - 1, moves, saved);
+            b.copyFrom(before);
+        }
+        return nodes;
+    }
+}
@@ -0,0 +1,609 @@
+package com.kw.checkersgame;
+
+import java.util.SplittableRandom;
+
+/**
+ * This class stores a draughts position of any RuleSet in three 64-bit masks, one bit per playable square as
+ * BoardGeometry numbers them, so the 50 squares of the 10*10 board fit as the 32 of CompactBoard do. It generates
+ * and makes moves without allocating: multi-jump captures of any length, flying kings and the majority capture rule
+ * all follow from the rule set.
+ * <p>
+ * Unlike CompactBoard, which plays Logic's rules, this class plays the rules as written for each variant. A move is
+ * encoded in a long: the square moved from in bits 0 to 5, the square moved to in bits 6 to 11, and a bit per
+ * captured square from bit 12. Two captures from and to the same squares taking the same pieces are the same move.
+ * <p>
+ * Nothing plays on this class yet: Board and the window take their shape from a BoardGeometry, but Logic and the
+ * engines still play only the 8*8 game through Board and CompactBoard.
+ */
+public final class DraughtsBoard {
+    /** Largest number of moves that can be generated from any reachable position. */
+    public static final int MAX_MOVES = 512;
+
+    private static final int SQUARE_BITS = 6;
+    private static final int SQUARE_MASK = (1 << SQUARE_BITS) - 1;
+    private static final int CAPTURE_SHIFT = 2 * SQUARE_BITS;
+
+    // Zobrist keys for dark men, dark kings, light men and light kings on each square, from a fixed seed so
+    // hashes are the same in every run
+    private static final long[][] ZOBRIST = new long[4][64];
+    private static final long ZOBRIST_DARK_TO_MOVE;
+
+    static
+    {
+        SplittableRandom keys = new SplittableRandom(0xD0A6_47E5L);
+        for (long[] table : ZOBRIST)
+        {
+            for (int sq = 0; sq < 64; sq++)
+            {
+                table[sq] = keys.nextLong();
+            }
+        }
+        ZOBRIST_DARK_TO_MOVE = keys.nextLong();
+    }
+
+    private final RuleSet rules;
+    private final BoardGeometry geometry;
+    private final long darkCrownRow, lightCrownRow;
+
+    long dark, light, kings;
+    boolean darkToMove;
+    long hash;
+
+    // the most pieces taken by a capture found so far in generateMoves, for the majority rule
+    private int mostCaptured;
+
+    /**
+     * Creates an empty board with light to move.
+     * @param rules the rules the board is played by
+     */
+    public DraughtsBoard(RuleSet rules)
+    {
+        this.rules = rules;
+        geometry = rules.getGeometry();
+        darkCrownRow = geometry.darkCrownRow();
+        lightCrownRow = geometry.lightCrownRow();
+    }
+
+    /**
+     * Makes a copy of a given board.
+     * @param b the board to make a copy of
+     */
+    public DraughtsBoard(DraughtsBoard b)
+    {
+        this(b.rules);
+        copyFrom(b);
+    }
+
+    /**
+     * Creates a board with the pieces in their starting positions: dark on the top rows, light on the bottom rows,
+     * and light to move, as on Board.
+     * @param rules the rules the board is played by
+     * @return the starting position
+     */
+    public static DraughtsBoard initial(RuleSet rules)
+    {
+        DraughtsBoard b = new DraughtsBoard(rules);
+        b.dark = rules.getGeometry().initialDark();
+        b.light = rules.getGeometry().initialLight();
+        b.rehash();
+        return b;
+    }
+
+    /**
+     * Reads a board written by toText.
+     * @param rules the rules the board is played by
+     * @param text size * size characters, row by row from the top: '.' empty, 'd' or 'D' for a dark man or king,
+     *             'l' or 'L' for a light man or king
+     * @param darkToMove whether it is dark's turn
+     * @return the board, or null if the text is not a valid board
+     */
+    public static DraughtsBoard fromText(RuleSet rules, String text, boolean darkToMove)
+    {
+        BoardGeometry g = rules.getGeometry();
+        int size = g.getSize();
+        if (text.length() != size * size)
+        {
+            return null;
+        }
+        DraughtsBoard b = new DraughtsBoard(rules);
+        for (int i = 0; i < text.length(); i++)
+        {
+            char c = text.charAt(i);
+            if (c == '.')
+            {
+                continue;
+            }
+            int sq = g.square(i % size, i / size);
+            if (sq < 0 || "dDlL".indexOf(c) < 0)
+            {
+                return null;
+            }
+            if (c == 'd' || c == 'D')
+            {
+                b.dark |= 1L << sq;
+            }
+            else
+            {
+                b.light |= 1L << sq;
+            }
+            if (Character.isUpperCase(c))
+            {
+                b.kings |= 1L << sq;
+            }
+        }
+        b.darkToMove = darkToMove;
+        b.rehash();
+        return b;
+    }
+
+    /**
+     * Writes the pieces as text that fromText can read back.
+     * @return size * size characters, row by row from the top
+     */
+    public String toText()
+    {
+        int size = geometry.getSize();
+        StringBuilder sb = new StringBuilder(size * size);
+        for (int i = 0; i < size * size; i++)
+        {
+            int sq = geometry.square(i % size, i / size);
+            char c = '.';
+            if (sq >= 0 && ((dark | light) & (1L << sq)) != 0)
+            {
+                c = (dark & (1L << sq)) != 0 ? 'd' : 'l';
+                if ((kings & (1L << sq)) != 0)
+                {
+                    c = Character.toUpperCase(c);
+                }
+            }
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Overwrites this board with the contents of another one played by the same rules.
+     * @param b the board to copy from
+     */
+    public void copyFrom(DraughtsBoard b)
+    {
+        if (b.rules != rules)
+        {
+            throw new IllegalArgumentException("cannot copy a " + b.rules.getName() + " board to a " + rules.getName() + " board");
+        }
+        dark = b.dark;
+        light = b.light;
+        kings = b.kings;
+        darkToMove = b.darkToMove;
+        hash = b.hash;
+    }
+
+    /**
+     * Recomputes the Zobrist hash from scratch, after the masks have been set directly.
+     */
+    void rehash()
+    {
+        long h = darkToMove ? ZOBRIST_DARK_TO_MOVE : 0;
+        for (long bits = dark | light; bits != 0; bits &= bits - 1)
+        {
+            h ^= pieceKey(Long.numberOfTrailingZeros(bits));
+        }
+        hash = h;
+    }
+
+    /**
+     * Returns the Zobrist key of the piece standing on a square.
+     * @param sq a square that holds a piece
+     * @return the key for that piece type on that square
+     */
+    private long pieceKey(int sq)
+    {
+        int type = (int) ((light >>> sq) & 1) << 1 | (int) ((kings >>> sq) & 1);
+        return ZOBRIST[type][sq];
+    }
+
+    /**
+     * Returns the Zobrist hash of the position, including the side to move.
+     * @return the hash
+     */
+    public long hash()
+    {
+        return hash;
+    }
+
+    /**
+     * Encodes a move.
+     * @param from the square moved from
+     * @param to the square moved to
+     * @param captured a bit per captured square
+     * @return the encoded move
+     */
+    public static long encodeMove(int from, int to, long captured)
+    {
+        return from | (long) to << SQUARE_BITS | captured << CAPTURE_SHIFT;
+    }
+
+    /**
+     * Returns the square an encoded move starts on.
+     * @param move the encoded move
+     * @return the origin square
+     */
+    public static int moveFrom(long move)
+    {
+        return (int) move & SQUARE_MASK;
+    }
+
+    /**
+     * Returns the square an encoded move ends on.
+     * @param move the encoded move
+     * @return the destination square
+     */
+    public static int moveTo(long move)
+    {
+        return (int) (move >>> SQUARE_BITS) & SQUARE_MASK;
+    }
+
+    /**
+     * Returns the squares captured by an encoded move.
+     * @param move the encoded move
+     * @return a bit per captured square, 0 for a move that captures nothing
+     */
+    public static long capturedMask(long move)
+    {
+        return move >>> CAPTURE_SHIFT;
+    }
+
+    /**
+     * Generates every legal move for the side to move into a given array. Captures are mandatory and are followed
+     * to the end; under the majority rule only the captures taking the most pieces are kept.
+     * @param out the array the moves are written into, at least MAX_MOVES long
+     * @return the number of moves written
+     */
+    public int generateMoves(long[] out)
+    {
+        long own = darkToMove ? dark : light;
+        long opponent = darkToMove ? light : dark;
+        long empty = geometry.allSquares() & ~(dark | light);
+        int count = 0;
+
+        // check for captures first; the moving piece leaves its square, so a king may pass back over it
+        mostCaptured = 0;
+        for (long bits = own; bits != 0; bits &= bits - 1)
+        {
+            int sq = Long.numberOfTrailingZeros(bits);
+            count = generateCaptures(out, count, sq, sq, (kings & (1L << sq)) != 0, 0, empty | 1L << sq, opponent);
+        }
+        if (count > 0)
+        {
+            return count;
+        }
+
+        boolean flying = rules.flyingKings();
+        for (long bits = own; bits != 0; bits &= bits - 1)
+        {
+            int sq = Long.numberOfTrailingZeros(bits);
+            boolean king = (kings & (1L << sq)) != 0;
+            for (int d = 0; d < BoardGeometry.DIRECTIONS; d++)
+            {
+                if (!king && BoardGeometry.isDown(d) != darkToMove)
+                {
+                    continue;
+                }
+                for (int to = geometry.neighbor(sq, d); to >= 0 && (empty & (1L << to)) != 0;
+                     to = geometry.neighbor(to, d))
+                {
+                    out[count++] = encodeMove(sq, to, 0);
+                    if (!king || !flying)
+                    {
+                        break;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Follows every capture of one piece from a square it has reached, recording each sequence that cannot go on.
+     * Captured pieces stay on the board until the move ends, so they block the way and cannot be jumped twice.
+     * @param out the array the moves are written into
+     * @param count the number of moves already in the array
+     * @param from the square the piece started on
+     * @param sq the square the piece has reached
+     * @param king whether the piece is a king
+     * @param captured the squares captured so far
+     * @param empty the empty squares, including the one the piece started on
+     * @param opponent the opponent's pieces, including those captured so far
+     * @return the new number of moves in the array
+     */
+    private int generateCaptures(long[] out, int count, int from, int sq, boolean king, long captured, long empty,
+                                 long opponent)
+    {
+        boolean extended = false;
+        boolean flying = king && rules.flyingKings();
+        for (int d = 0; d < BoardGeometry.DIRECTIONS; d++)
+        {
+            if (!king && !rules.menCaptureBackwards() && BoardGeometry.isDown(d) != darkToMove)
+            {
+                continue;
+            }
+
+            // a flying king may jump a piece any distance away along the diagonal
+            int over = geometry.neighbor(sq, d);
+            while (flying && over >= 0 && (empty & (1L << over)) != 0)
+            {
+                over = geometry.neighbor(over, d);
+            }
+            if (over < 0 || (opponent & ~captured & (1L << over)) == 0)
+            {
+                continue;
+            }
+            long taken = captured | 1L << over;
+            for (int land = geometry.neighbor(over, d); land >= 0 && (empty & (1L << land)) != 0;
+                 land = geometry.neighbor(land, d))
+            {
+                extended = true;
+                if (!king && rules.crowningEndsMove() && ((darkToMove ? darkCrownRow : lightCrownRow) & (1L << land)) != 0)
+                {
+                    count = addCapture(out, count, encodeMove(from, land, taken));
+                }
+                else
+                {
+                    count = generateCaptures(out, count, from, land, king, taken, empty, opponent);
+                }
+                if (!flying)
+                {
+                    break;
+                }
+            }
+        }
+        if (!extended && captured != 0)
+        {
+            count = addCapture(out, count, encodeMove(from, sq, captured));
+        }
+        return count;
+    }
+
+    /**
+     * Adds a finished capture to the moves, unless the same move is already there or, under the majority rule,
+     * it takes fewer pieces than another. A capture taking more pieces than all before it replaces them.
+     * @param out the array the moves are written into
+     * @param count the number of moves already in the array
+     * @param move the capture
+     * @return the new number of moves in the array
+     */
+    private int addCapture(long[] out, int count, long move)
+    {
+        if (rules.majorityCapture())
+        {
+            int taken = Long.bitCount(capturedMask(move));
+            if (taken < mostCaptured)
+            {
+                return count;
+            }
+            if (taken > mostCaptured)
+            {
+                mostCaptured = taken;
+                count = 0;
+            }
+        }
+        for (int i = 0; i < count; i++)
+        {
+            if (out[i] == move)
+            {
+                return count;
+            }
+        }
+        out[count] = move;
+        return count + 1;
+    }
+
+    /**
+     * Makes an encoded move for the side to move, removing captured pieces, crowning, and switching the turn.
+     * @param move a legal move generated from this position
+     */
+    public void makeMove(long move)
+    {
+        int from = moveFrom(move), to = moveTo(move);
+        long fromBit = 1L << from;
+        long toBit = 1L << to;
+        long captured = capturedMask(move);
+
+        // take the moving and captured pieces out of the hash before the masks change
+        long h = hash ^ pieceKey(from) ^ ZOBRIST_DARK_TO_MOVE;
+        for (long bits = captured; bits != 0; bits &= bits - 1)
+        {
+            h ^= pieceKey(Long.numberOfTrailingZeros(bits));
+        }
+
+        boolean king = (kings & fromBit) != 0;
+        kings &= ~(captured | fromBit);
+        if (darkToMove)
+        {
+            dark = (dark & ~fromBit) | toBit;
+            light &= ~captured;
+            king |= (toBit & darkCrownRow) != 0;
+        }
+        else
+        {
+            light = (light & ~fromBit) | toBit;
+            dark &= ~captured;
+            king |= (toBit & lightCrownRow) != 0;
+        }
+        if (king)
+        {
+            kings |= toBit;
+        }
+        darkToMove = !darkToMove;
+        hash = h ^ pieceKey(to);
+    }
+
+    /**
+     * Returns whether a move can never be undone, being a capture or a man move, which the draw rules count from.
+     * @param move a legal move generated from this position
+     * @return true for a capture or man move, false for a king move
+     */
+    public boolean isIrreversible(long move)
+    {
+        return capturedMask(move) != 0 || (kings & (1L << moveFrom(move))) == 0;
+    }
+
+    /**
+     * Counts the positions reached by every sequence of legal moves of a given length, the usual check that
+     * a move generator is right. Positions are not told apart, so transpositions are counted each time.
+     * @param depth the number of plies
+     * @return the number of move sequences
+     */
+    public long perft(int depth)
+    {
+        return depth <= 0 ? 1 : perft(depth, new long[depth][MAX_MOVES]);
+    }
+
+    /**
+     * Counts move sequences, making and unmaking moves on this board with one move array per ply.
+     * @param depth the number of plies left, at least 1
+     * @param moves a move array for each ply
+     * @return the number of move sequences
+     */
+    private long perft(int depth, long[][] moves)
+    {
+        long[] list = moves[depth - 1];
+        int count = generateMoves(list);
+        if (depth == 1)
+        {
+            return count;
+        }
+        long d = dark, l = light, k = kings, h = hash;
+        boolean t = darkToMove;
+        long nodes = 0;
+        for (int i = 0; i < count; i++)
+        {
+            makeMove(list[i]);
+            nodes += perft(depth - 1, moves);
+            dark = d;
+            light = l;
+            kings = k;
+            hash = h;
+            darkToMove = t;
+        }
+        return nodes;
+    }
+
+    /**
+     * Returns the rules the board is played by.
+     * @return the rule set
+     */
+    public RuleSet getRules()
+    {
+        return rules;
+    }
+
+    /**
+     * Returns the bitmask of dark pieces.
+     * @return the dark pieces
+     */
+    public long getDark()
+    {
+        return dark;
+    }
+
+    /**
+     * Returns the bitmask of light pieces.
+     * @return the light pieces
+     */
+    public long getLight()
+    {
+        return light;
+    }
+
+    /**
+     * Returns the bitmask of kings of either colour.
+     * @return the kings
+     */
+    public long getKings()
+    {
+        return kings;
+    }
+
+    /**
+     * Returns which player's turn it is.
+     * @return true if the current turn is dark, false if current turn is light
+     */
+    public boolean getTurn()
+    {
+        return darkToMove;
+    }
+
+    /**
+     * Returns a readable form of an encoded move in the usual square numbers, counting from 1 at the top left:
+     * "32-28" for a move and "28x17" for a capture, followed by the captured squares in brackets, as in
+     * "28x17[22,23]", so captures that end on the same square but take different pieces are told apart.
+     * @param move the encoded move
+     * @return the move in square numbers
+     */
+    public static String moveToString(long move)
+    {
+        long captured = capturedMask(move);
+        StringBuilder sb = new StringBuilder();
+        sb.append(moveFrom(move) + 1).append(captured == 0 ? '-' : 'x').append(moveTo(move) + 1);
+        if (captured != 0)
+        {
+            char separator = '[';
+            for (long bits = captured; bits != 0; bits &= bits - 1)
+            {
+                sb.append(separator).append(Long.numberOfTrailingZeros(bits) + 1);
+                separator = ',';
+            }
+            sb.append(']');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Finds a legal move of the side to move from its text form. A capture may be written without its captured
+     * squares if only one capture goes between its two squares.
+     * @param text the move written as by moveToString
+     * @return the move, or AlphaBetaEngine.NO_MOVE if no legal move, or more than one, has that text
+     */
+    public long findMove(String text)
+    {
+        long[] moves = new long[MAX_MOVES];
+        int count = generateMoves(moves);
+        long found = AlphaBetaEngine.NO_MOVE;
+        for (int i = 0; i < count; i++)
+        {
+            String full = moveToString(moves[i]);
+            if (full.equals(text))
+            {
+                return moves[i];
+            }
+            if (full.startsWith(text + "["))
+            {
+                if (found != AlphaBetaEngine.NO_MOVE)
+                {
+                    return AlphaBetaEngine.NO_MOVE;
+                }
+                found = moves[i];
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (!(o instanceof DraughtsBoard))
+        {
+            return false;
+        }
+        DraughtsBoard b = (DraughtsBoard) o;
+        return rules == b.rules && dark == b.dark && light == b.light && kings == b.kings
+                && darkToMove == b.darkToMove;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Long.hashCode(hash);
+    }
+}
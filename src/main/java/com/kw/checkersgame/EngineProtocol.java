@@ -0,0 +1,436 @@
+package com.kw.checkersgame;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * This class lets other programs play the engine through a line-based text protocol on stdin and stdout,
+ * in the spirit of UCI. Positions are kept in a Logic object, so the game's own rules decide what is legal,
+ * and moves are chosen by the same alpha-beta engine AlphaBetaPlayerLogic uses.
+ * Searches run on their own thread while input keeps being read, so "stop" and "isready" are answered at once,
+ * and one process can play any number of games in a row. Started with -Dcheckers.cache=FILE, the engine also keeps
+ * its results in a SharedSearchCache file, so other processes and later runs start from them, and started with
+ * -Dcheckers.index=FILE, it answers "lookup" from a PositionIndex of stored games.
+ * <pre>
+ * protocol                          replies with the engine's id, then "protocolok"
+ * isready                           replies "readyok" once earlier commands are done
+ * newgame                           forgets everything learned from the last game
+ * position startpos [moves m...]    sets the starting position, then plays the moves
+ * position board B dark|light [moves m...]
+ *                                   sets a board written as by CompactBoard.toText
+ * go [movetime T] [depth D] [dtime T ltime T dinc T linc T] [infinite]
+ *                                   searches, printing "info ..." lines and then "bestmove M" or "bestmove none";
+ *                                   an infinite search holds its bestmove back until "stop", even if it ends sooner
+ * stop                              ends the search early, which still prints its bestmove
+ * show                              prints the board, the side to move and the legal moves
+ * lookup [N]                        prints how the stored games that reached the position ended and the ids
+ *                                   of the first N of them, 10 by default
+ * quit                              exits
+ * </pre>
+ * Moves are written as by CompactBoard.moveToString, for example "(2,5)-(3,4)" or "(1,2)x(3,4)x(5,6)".
+ */
+public class EngineProtocol {
+    /** System property naming a SharedSearchCache file for the engine to use. */
+    public static final String CACHE_PROPERTY = "checkers.cache";
+    /** System property giving the number of slots of a new cache file. */
+    public static final String CACHE_SLOTS_PROPERTY = "checkers.cacheSlots";
+
+    // 4 million slots, a 64 MB file
+    private static final int DEFAULT_CACHE_SLOTS = 1 << 22;
+
+    // how long stopSearch waits for the search to end before asking it to stop again
+    private static final long STOP_RETRY_MILLIS = 10;
+
+    private final PrintStream out;
+    private final Logic game;
+    private final AlphaBetaEngine engine;
+    private final ExecutorService searchThread;
+    private final int[] moves;
+    private Future<?> search;
+
+    // released by stopSearch, so an infinite search knows it may print its best move
+    private CountDownLatch stopSignal;
+    private PositionIndex index;
+
+    /**
+     * Creates a protocol handler.
+     * @param out where replies are written
+     * @param engine the engine that searches
+     */
+    public EngineProtocol(PrintStream out, AlphaBetaEngine engine)
+    {
+        this.out = out;
+        this.engine = engine;
+        game = new Logic();
+        game.setOpponent();
+        searchThread = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "engine-search");
+            t.setDaemon(true);
+            return t;
+        });
+        moves = new int[CompactBoard.MAX_MOVES];
+    }
+
+    /**
+     * Reads and runs commands until "quit" or the end of the input.
+     * @param in the input to read commands from
+     * @throws IOException if the input cannot be read
+     */
+    public void run(BufferedReader in) throws IOException
+    {
+        String line;
+        while ((line = in.readLine()) != null)
+        {
+            try
+            {
+                if (!handle(line.trim()))
+                {
+                    break;
+                }
+            }
+            catch (NumberFormatException e)
+            {
+                reply("info string bad number in " + line);
+            }
+        }
+        stopSearch();
+        searchThread.shutdown();
+    }
+
+    /**
+     * Runs one command.
+     * @param line the command line
+     * @return false if the command was "quit", true otherwise
+     */
+    public boolean handle(String line)
+    {
+        String[] words = line.split("\\s+");
+        switch (words[0])
+        {
+            case "protocol":
+                reply("id name CheckersGame");
+                reply("id author k.wu");
+                reply("protocolok");
+                break;
+            case "isready":
+                reply("readyok");
+                break;
+            case "newgame":
+                stopSearch();
+                engine.clearTable();
+                game.setPosition(CompactBoard.initial());
+                break;
+            case "position":
+                stopSearch();
+                position(words);
+                break;
+            case "go":
+                stopSearch();
+                go(words);
+                break;
+            case "stop":
+                stopSearch();
+                break;
+            case "show":
+                show();
+                break;
+            case "lookup":
+                lookup(words.length > 1 ? Integer.parseInt(words[1]) : 10);
+                break;
+            case "quit":
+                return false;
+            case "":
+                break;
+            default:
+                reply("info string unknown command " + words[0]);
+        }
+        return true;
+    }
+
+    /**
+     * Sets up a position and plays moves from it.
+     * @param words the words of the command
+     */
+    private void position(String[] words)
+    {
+        int next;
+        CompactBoard start;
+        if (words.length >= 2 && words[1].equals("startpos"))
+        {
+            start = CompactBoard.initial();
+            next = 2;
+        }
+        else if (words.length >= 4 && words[1].equals("board")
+                && (words[3].equals("dark") || words[3].equals("light")))
+        {
+            start = CompactBoard.fromText(words[2], words[3].equals("dark"));
+            next = 4;
+        }
+        else
+        {
+            start = null;
+            next = words.length;
+        }
+
+        if (start == null)
+        {
+            reply("info string bad position");
+            return;
+        }
+        game.setPosition(start);
+
+        if (next < words.length && words[next].equals("moves"))
+        {
+            for (int i = next + 1; i < words.length; i++)
+            {
+                int move = CompactBoard.fromLogic(game).findMove(words[i]);
+                if (move == AlphaBetaEngine.NO_MOVE || !game.playMove(move))
+                {
+                    reply("info string illegal move " + words[i]);
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Starts a search on the search thread.
+     * @param words the words of the command
+     */
+    private void go(String[] words)
+    {
+        long moveTime = -1;
+        int depth = AlphaBetaEngine.MAX_DEPTH;
+        long[] clock = {-1, -1, 0, 0};
+        boolean infinite = false;
+        for (int i = 1; i < words.length; i++)
+        {
+            if (words[i].equals("infinite"))
+            {
+                infinite = true;
+            }
+            else if (i + 1 >= words.length)
+            {
+                reply("info string missing value for " + words[i]);
+            }
+            else
+            {
+                long value = Long.parseLong(words[++i]);
+                switch (words[i - 1])
+                {
+                    case "movetime":
+                        moveTime = value;
+                        break;
+                    case "depth":
+                        depth = (int) Math.min(value, AlphaBetaEngine.MAX_DEPTH);
+                        break;
+                    case "dtime":
+                        clock[0] = value;
+                        break;
+                    case "ltime":
+                        clock[1] = value;
+                        break;
+                    case "dinc":
+                        clock[2] = value;
+                        break;
+                    case "linc":
+                        clock[3] = value;
+                        break;
+                    default:
+                        reply("info string unknown go option " + words[i - 1]);
+                }
+            }
+        }
+
+        CompactBoard pos = CompactBoard.fromLogic(game);
+        int count = pos.generateMoves(moves);
+        boolean dark = pos.getTurn();
+        TimeManager tm = null;
+        if (moveTime >= 0)
+        {
+            tm = TimeManager.fixed(moveTime);
+        }
+        else if (clock[dark ? 0 : 1] >= 0)
+        {
+            GameClock gameClock = GameClock.increment(0, clock[dark ? 2 : 3]);
+            gameClock.setRemaining(dark, clock[dark ? 0 : 1]);
+            tm = TimeManager.forClock(gameClock, dark, count, count > 0 && CompactBoard.moveJumps(moves[0]) != 0);
+        }
+        else if (!infinite && depth == AlphaBetaEngine.MAX_DEPTH)
+        {
+            // with no limit given, think for a second
+            tm = TimeManager.fixed(1000);
+        }
+
+        TimeManager limit = tm;
+        int maxDepth = depth;
+        PositionHistory history = new PositionHistory(game.getHistory());
+        boolean untilStopped = infinite;
+        CountDownLatch stopped = new CountDownLatch(1);
+        stopSignal = stopped;
+        search = searchThread.submit(() -> {
+            SearchInfo[] lines = engine.analyze(pos, history, 1, limit, maxDepth, info -> reply("info " + info));
+
+            // an infinite search can still end by itself, at the deepest depth or on a forced win
+            if (untilStopped)
+            {
+                try
+                {
+                    stopped.await();
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            reply("bestmove " + (lines.length == 0 ? "none" : CompactBoard.moveToString(lines[0].getMove())));
+        });
+    }
+
+    /**
+     * Stops the search if one is running and waits for it to print its best move.
+     */
+    private void stopSearch()
+    {
+        if (search == null)
+        {
+            return;
+        }
+        stopSignal.countDown();
+        engine.stop();
+        boolean done = false;
+        while (!done)
+        {
+            try
+            {
+                search.get(STOP_RETRY_MILLIS, TimeUnit.MILLISECONDS);
+                done = true;
+            }
+            catch (TimeoutException e)
+            {
+                // the engine clears its stop flag as a search begins, so a stop sent just before then is lost
+                engine.stop();
+            }
+            catch (ExecutionException e)
+            {
+                reply("info string search failed: " + e.getCause());
+                done = true;
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                done = true;
+            }
+        }
+        search = null;
+    }
+
+    /**
+     * Prints the board, the side to move and the legal moves.
+     */
+    private void show()
+    {
+        CompactBoard pos = CompactBoard.fromLogic(game);
+        StringBuilder sb = new StringBuilder("info board ").append(pos.toText())
+                .append(pos.getTurn() ? " dark" : " light").append(" moves");
+        int count = pos.generateMoves(moves);
+        for (int i = 0; i < count; i++)
+        {
+            sb.append(' ').append(CompactBoard.moveToString(moves[i]));
+        }
+        reply(sb.toString());
+    }
+
+    /**
+     * Prints how the stored games that reached the current position ended, and the ids of the first of them.
+     * @param limit the most game ids to print
+     */
+    private void lookup(int limit)
+    {
+        if (index == null)
+        {
+            reply("info string no position index; start with -D" + PositionIndex.INDEX_PROPERTY + "=FILE");
+            return;
+        }
+        try
+        {
+            PositionIndex.Entry entry = index.lookup(CompactBoard.fromLogic(game));
+            StringBuilder sb = new StringBuilder("info archive ").append(entry).append(" ids");
+            for (int id : index.gameIds(entry, limit))
+            {
+                sb.append(' ').append(id);
+            }
+            reply(sb.toString());
+        }
+        catch (IOException e)
+        {
+            reply("info string cannot read position index: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Sets the index of stored games that "lookup" reads.
+     * @param index the index, or null for none
+     */
+    public void setPositionIndex(PositionIndex index)
+    {
+        this.index = index;
+    }
+
+    /**
+     * Writes one line of output.
+     * @param line the line
+     */
+    private void reply(String line)
+    {
+        synchronized (out)
+        {
+            out.println(line);
+            out.flush();
+        }
+    }
+
+    /**
+     * Runs the protocol on stdin and stdout.
+     * @param args unused
+     * @throws IOException if stdin cannot be read
+     */
+    public static void main(String[] args) throws IOException
+    {
+        PrintStream out = new PrintStream(System.out, false, StandardCharsets.UTF_8);
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        AlphaBetaEngine engine = new AlphaBetaEngine();
+        EngineProtocol protocol = new EngineProtocol(out, engine);
+
+        // -Dcheckers.index=FILE answers "lookup" from an index of stored games
+        try (PositionIndex index = PositionIndex.configured())
+        {
+            protocol.setPositionIndex(index);
+
+            // -Dcheckers.cache=FILE keeps results in a file shared with other engine processes and later runs
+            String cacheFile = System.getProperty(CACHE_PROPERTY);
+            if (cacheFile == null)
+            {
+                protocol.run(in);
+                return;
+            }
+            try (SharedSearchCache cache = new SharedSearchCache(Path.of(cacheFile),
+                    Integer.getInteger(CACHE_SLOTS_PROPERTY, DEFAULT_CACHE_SLOTS)))
+            {
+                engine.setSharedCache(cache);
+                protocol.run(in);
+            }
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package com.kw.checkersgame;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+/**
+ * This class scores positions for the alpha-beta search with a hand-written weighted sum of features.
+ * Scores are from the point of view of the side to move, in hundredths of a man.
+ * Weights can be saved to and loaded from a text file of "name=value" lines, one per weight;
+ * the AI loads the file named by the checkers.weights system property at startup, or plays with an
+ * NnueEvaluator instead when the checkers.nnue property names a network file.
+ */
+public class Evaluator {
+    /** Index of the weight for each man. */
+    public static final int MAN = 0;
+    /** Index of the weight for each king. */
+    public static final int KING = 1;
+    /** Index of the weight for each man still guarding its own back row. */
+    public static final int BACK_ROW = 2;
+    /** Index of the weight for each piece on the four center squares. */
+    public static final int CENTER = 3;
+    /** Index of the weight for each row a man has advanced. */
+    public static final int ADVANCE = 4;
+    /** Number of weights. */
+    public static final int WEIGHT_COUNT = 5;
+
+    /** Names of the weights, in index order. */
+    public static final String[] WEIGHT_NAMES = {"man", "king", "backRow", "center", "advance"};
+
+    /** System property naming a weights file for the AI to load at startup. */
+    public static final String WEIGHTS_PROPERTY = "checkers.weights";
+
+    /** System property naming an NNUE network file for the AI to evaluate with instead of the weights. */
+    public static final String NNUE_PROPERTY = "checkers.nnue";
+
+    private static final int[] DEFAULT_WEIGHTS = {100, 150, 12, 6, 3};
+
+    private static final int DARK_BACK_ROW = 0x0000000F;
+    private static final int LIGHT_BACK_ROW = 0xF0000000;
+    private static final int CENTER_SQUARES = (1 << 13) | (1 << 14) | (1 << 17) | (1 << 18);
+
+    private final int[] weights;
+
+    /**
+     * Creates an evaluator with the default weights.
+     */
+    public Evaluator()
+    {
+        this(DEFAULT_WEIGHTS);
+    }
+
+    /**
+     * Creates an evaluator with given weights.
+     * @param weights the weights in index order, WEIGHT_COUNT long
+     */
+    public Evaluator(int[] weights)
+    {
+        if (weights.length != WEIGHT_COUNT)
+        {
+            throw new IllegalArgumentException("expected " + WEIGHT_COUNT + " weights, got " + weights.length);
+        }
+        this.weights = weights.clone();
+    }
+
+    /**
+     * Creates the evaluator the AI plays with: an NnueEvaluator over the network named by NNUE_PROPERTY if it
+     * is set, otherwise the weights file named by WEIGHTS_PROPERTY if it is set, and the default weights otherwise.
+     * An NnueEvaluator keeps state, so each engine must call this for its own evaluator rather than share one.
+     * @return the evaluator
+     * @throws UncheckedIOException if a property is set and its file cannot be read
+     */
+    public static Evaluator configured()
+    {
+        String network = System.getProperty(NNUE_PROPERTY);
+        if (network != null)
+        {
+            try
+            {
+                return new NnueEvaluator(NnueNetwork.load(Path.of(network)));
+            }
+            catch (IOException e)
+            {
+                throw new UncheckedIOException("cannot read network from " + network, e);
+            }
+        }
+
+        String file = System.getProperty(WEIGHTS_PROPERTY);
+        if (file == null)
+        {
+            return new Evaluator();
+        }
+        try
+        {
+            return load(Path.of(file));
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException("cannot read weights from " + file, e);
+        }
+    }
+
+    /**
+     * Reads weights from a file of "name=value" lines. Weights the file does not name keep their default.
+     * @param file the file to read
+     * @return an evaluator with those weights
+     * @throws IOException if the file cannot be read
+     */
+    public static Evaluator load(Path file) throws IOException
+    {
+        Properties values = new Properties();
+        try (Reader in = Files.newBufferedReader(file, StandardCharsets.UTF_8))
+        {
+            values.load(in);
+        }
+        for (String name : values.stringPropertyNames())
+        {
+            if (indexOf(name) < 0)
+            {
+                throw new IllegalArgumentException("unknown weight " + name + " in " + file);
+            }
+        }
+
+        int[] weights = DEFAULT_WEIGHTS.clone();
+        for (int i = 0; i < WEIGHT_COUNT; i++)
+        {
+            String value = values.getProperty(WEIGHT_NAMES[i]);
+            if (value != null)
+            {
+                weights[i] = Integer.parseInt(value.trim());
+            }
+        }
+        return new Evaluator(weights);
+    }
+
+    /**
+     * Writes the weights to a file that load can read, one "name=value" line per weight.
+     * @param file the file to write
+     * @param comment a line written at the top of the file as a comment, or null
+     * @throws IOException if the file cannot be written
+     */
+    public void save(Path file, String comment) throws IOException
+    {
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8))
+        {
+            if (comment != null)
+            {
+                out.write("# " + comment + "\n");
+            }
+            for (int i = 0; i < WEIGHT_COUNT; i++)
+            {
+                out.write(WEIGHT_NAMES[i] + "=" + weights[i] + "\n");
+            }
+        }
+    }
+
+    /**
+     * Finds the index of a weight from its name.
+     * @param name the name, one of WEIGHT_NAMES
+     * @return the index, or -1 if no weight has that name
+     */
+    public static int indexOf(String name)
+    {
+        for (int i = 0; i < WEIGHT_COUNT; i++)
+        {
+            if (WEIGHT_NAMES[i].equals(name))
+            {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Scores a position for the side to move.
+     * @param b the position to score
+     * @return the score, positive when the side to move is better
+     */
+    public int evaluate(CompactBoard b)
+    {
+        int score = 0;
+        for (int i = 0; i < WEIGHT_COUNT; i++)
+        {
+            score += weights[i] * feature(b, i);
+        }
+        return b.getTurn() ? score : -score;
+    }
+
+    /**
+     * Returns the value of one feature of a position, as dark's count minus light's count.
+     * @param b the position
+     * @param index the index of the feature, one of the weight indices
+     * @return the feature value from dark's point of view
+     */
+    public static int feature(CompactBoard b, int index)
+    {
+        int dark = b.getDark(), light = b.getLight(), kings = b.getKings();
+        switch (index)
+        {
+            case MAN:
+                return Integer.bitCount(dark & ~kings) - Integer.bitCount(light & ~kings);
+            case KING:
+                return Integer.bitCount(dark & kings) - Integer.bitCount(light & kings);
+            case BACK_ROW:
+                return Integer.bitCount(dark & ~kings & DARK_BACK_ROW) - Integer.bitCount(light & ~kings & LIGHT_BACK_ROW);
+            case CENTER:
+                return Integer.bitCount(dark & CENTER_SQUARES) - Integer.bitCount(light & CENTER_SQUARES);
+            case ADVANCE:
+                return advance(dark & ~kings, true) - advance(light & ~kings, false);
+            default:
+                throw new IllegalArgumentException("no feature " + index);
+        }
+    }
+
+    /**
+     * Adds up how many rows a set of men have moved forward from their own back row.
+     * @param men the men of one colour
+     * @param dark whether the men are dark
+     * @return the total number of rows advanced
+     */
+    private static int advance(int men, boolean dark)
+    {
+        int total = 0;
+        for (int bits = men; bits != 0; bits &= bits - 1)
+        {
+            int row = CompactBoard.y(Integer.numberOfTrailingZeros(bits));
+            total += dark ? row : 7 - row;
+        }
+        return total;
+    }
+
+    /**
+     * Returns a copy of the weights.
+     * @return the weights in index order
+     */
+    public int[] getWeights()
+    {
+        return weights.clone();
+    }
+}
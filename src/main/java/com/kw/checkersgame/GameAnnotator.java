@@ -0,0 +1,435 @@
+package com.kw.checkersgame;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * This class runs a directory of GameArchive files through the engine and writes each game back with a score
+ * after every move, a "??" flag on blunders and the engine's best move wherever the game's move differs.
+ * <p>
+ * It works as a pipeline. A reader thread replays each game through Logic and hands every position it reaches to
+ * a fixed pool of threads, each with its own alpha-beta engine, as AIPool does. Games then wait in a bounded queue,
+ * in order, for the writer, which writes each once all its positions are analysed. When the queue is full the
+ * reader waits, so however far the writer falls behind, only a few games are held in memory.
+ * The writer saves a checkpoint every few games, after the output is flushed, so a stopped job started again with
+ * the same directories picks up from the last checkpoint instead of the beginning.
+ * <p>
+ * A game is written as its result followed by each move and its note in braces, for example
+ * "dark (2,5)-(1,4) {score 12} (5,2)-(4,3) {score -140 ?? best (1,2)-(0,3) 35} ...". Scores are dark's, in
+ * hundredths of a man, or "win N" or "loss N" for a forced result in N plies. The score after a move is the
+ * search score of the position it leads to, so every position is searched once; that search is one ply deeper than
+ * the one that found the best move, and the blunder margin is there to keep such small differences from counting.
+ * <pre>
+ * GameAnnotator INPUT_DIR OUTPUT_DIR [DEPTH] [THREADS] [BLUNDER]
+ * </pre>
+ */
+public class GameAnnotator {
+    /** Name of the checkpoint file kept in the output directory. */
+    public static final String CHECKPOINT = "annotate.checkpoint";
+
+    // games written between checkpoints, and games waiting for the writer per analysis thread
+    private static final int CHECKPOINT_GAMES = 50;
+    private static final int GAMES_QUEUED_PER_THREAD = 4;
+
+    private final ExecutorService threads;
+    private final ThreadLocal<AlphaBetaEngine> engines;
+    private final int threadCount;
+    private final int depth;
+    private final int blunderLoss;
+
+    /**
+     * Creates an annotator.
+     * @param threadCount the number of threads analysing positions
+     * @param depth the number of plies each position is searched to
+     * @param blunderLoss how many hundredths of a man a move must lose against the best move to be a blunder
+     */
+    public GameAnnotator(int threadCount, int depth, int blunderLoss)
+    {
+        AtomicInteger count = new AtomicInteger();
+        threads = Executors.newFixedThreadPool(threadCount, r -> {
+            Thread t = new Thread(r, "annotator-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        engines = ThreadLocal.withInitial(() -> new AlphaBetaEngine(Evaluator.configured(), 1 << 18));
+        this.threadCount = threadCount;
+        this.depth = depth;
+        this.blunderLoss = blunderLoss;
+    }
+
+    /**
+     * Annotates every archive in a directory, in name order, into files of the same names in another directory,
+     * resuming from that directory's checkpoint if it has one.
+     * @param input the directory of archives
+     * @param output the directory the annotated games are written to, created if needed
+     * @return the number of games annotated by this call
+     * @throws IOException if a file cannot be read or written
+     */
+    public long annotate(Path input, Path output) throws IOException
+    {
+        Files.createDirectories(output);
+        List<Path> files;
+        try (Stream<Path> list = Files.list(input))
+        {
+            files = list.filter(Files::isRegularFile).sorted().toList();
+        }
+
+        Properties checkpoint = readCheckpoint(output);
+        String resumeFile = checkpoint.getProperty("file");
+        long annotated = 0;
+        for (Path file : files)
+        {
+            String name = file.getFileName().toString();
+            if (resumeFile != null && name.compareTo(resumeFile) < 0)
+            {
+                continue;
+            }
+
+            // the file being annotated when the checkpoint was saved is cut back to it; later files start over
+            long skip = 0, bytes = 0;
+            if (name.equals(resumeFile))
+            {
+                skip = Long.parseLong(checkpoint.getProperty("games"));
+                bytes = Long.parseLong(checkpoint.getProperty("bytes"));
+            }
+            annotated += annotateFile(file, output, skip, bytes);
+        }
+        return annotated;
+    }
+
+    /**
+     * Stops the analysis threads once the positions already handed to them are analysed.
+     */
+    public void shutdown()
+    {
+        threads.shutdown();
+    }
+
+    /**
+     * One game on its way through the pipeline: its moves, and the analysis of each position it reached,
+     * which is still being worked out when the game is queued. An entry without a game ends the queue.
+     */
+    private static final class PendingGame {
+        private final GameArchive.Game game;
+        private final List<CompletableFuture<Analysis>> analyses;
+        private final List<Boolean> darkToMove;
+        private final RuntimeException failure;
+
+        /**
+         * Creates a pending game, or the end of the queue.
+         * @param game the game, or null at the end of the queue
+         * @param failure why the reader stopped early, or null
+         */
+        PendingGame(GameArchive.Game game, RuntimeException failure)
+        {
+            this.game = game;
+            this.failure = failure;
+            analyses = new ArrayList<>();
+            darkToMove = new ArrayList<>();
+        }
+    }
+
+    /**
+     * The engine's verdict on one position, from the side to move's point of view.
+     */
+    private static final class Analysis {
+        private final int bestMove;
+        private final int score;
+
+        /**
+         * Creates a verdict.
+         * @param bestMove the best move, or NO_MOVE if the game is over
+         * @param score the score of the best move
+         */
+        Analysis(int bestMove, int score)
+        {
+            this.bestMove = bestMove;
+            this.score = score;
+        }
+    }
+
+    /**
+     * Annotates one archive.
+     * @param file the archive
+     * @param output the output directory
+     * @param skip the number of games already annotated at the checkpoint
+     * @param bytes the length of the output file at the checkpoint
+     * @return the number of games annotated
+     * @throws IOException if a file cannot be read or written
+     */
+    private long annotateFile(Path file, Path output, long skip, long bytes) throws IOException
+    {
+        String name = file.getFileName().toString();
+        Path target = output.resolve(name);
+
+        // anything written after the checkpoint is thrown away and annotated again
+        try (FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE))
+        {
+            channel.truncate(bytes);
+        }
+
+        BlockingQueue<PendingGame> queue = new ArrayBlockingQueue<>(threadCount * GAMES_QUEUED_PER_THREAD);
+        Thread reader = new Thread(() -> read(file, skip, queue), "annotator-reader");
+        reader.setDaemon(true);
+        reader.start();
+
+        long games = skip;
+        OutputStream stream = Files.newOutputStream(target, StandardOpenOption.APPEND);
+        try (BufferedWriter out = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8)))
+        {
+            while (true)
+            {
+                PendingGame pending = queue.take();
+                if (pending.game == null)
+                {
+                    if (pending.failure != null)
+                    {
+                        throw pending.failure;
+                    }
+                    break;
+                }
+                out.write(format(pending));
+                out.newLine();
+                games++;
+                if (games % CHECKPOINT_GAMES == 0)
+                {
+                    out.flush();
+                    writeCheckpoint(output, name, games, Files.size(target));
+                    GameLog.event("annotate_checkpoint", "games", games);
+                }
+            }
+            out.flush();
+            writeCheckpoint(output, name, games, Files.size(target));
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while annotating " + file, e);
+        }
+        catch (CompletionException e)
+        {
+            throw new IOException("analysis failed in " + file, e.getCause());
+        }
+        catch (UncheckedIOException e)
+        {
+            throw e.getCause();
+        }
+        finally
+        {
+            // stops the reader if the writer gave up early
+            reader.interrupt();
+        }
+        return games - skip;
+    }
+
+    /**
+     * Replays the games of an archive through Logic and queues them with their positions handed out for analysis,
+     * waiting whenever the queue is full. Runs on the reader thread.
+     * @param file the archive
+     * @param skip the number of games at the start to leave out
+     * @param queue the queue of games for the writer
+     */
+    private void read(Path file, long skip, BlockingQueue<PendingGame> queue)
+    {
+        RuntimeException failure = null;
+        try (Stream<GameArchive.Game> games = GameArchive.read(file))
+        {
+            Iterator<GameArchive.Game> it = games.skip(skip).iterator();
+            while (it.hasNext())
+            {
+                PendingGame pending = new PendingGame(it.next(), null);
+                pending.game.replay((logic, ply) -> {
+                    CompactBoard position = CompactBoard.fromLogic(logic);
+                    PositionHistory played = new PositionHistory(logic.getHistory());
+                    pending.darkToMove.add(position.getTurn());
+                    pending.analyses.add(CompletableFuture.supplyAsync(() -> analyse(position, played), threads));
+                });
+                queue.put(pending);
+            }
+        }
+        catch (InterruptedException e)
+        {
+            // the writer has stopped, so nobody is waiting for the end of the queue
+            return;
+        }
+        catch (IOException e)
+        {
+            failure = new UncheckedIOException(e);
+        }
+        catch (RuntimeException e)
+        {
+            failure = e;
+        }
+
+        try
+        {
+            queue.put(new PendingGame(null, failure));
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Searches one position with this thread's engine.
+     * @param position the position
+     * @param played the positions played up to and including it
+     * @return the best move and its score, or NO_MOVE with a loss or draw score if the game is over
+     */
+    private Analysis analyse(CompactBoard position, PositionHistory played)
+    {
+        // a listener makes the engine search even a single legal move, so it has a score
+        SearchInfo[] lines = engines.get().analyze(position, played, 1, null, depth, info -> { });
+        if (lines.length > 0)
+        {
+            return new Analysis(lines[0].getMove(), lines[0].getScore());
+        }
+        boolean stuck = !position.isTie() && position.generateMoves(new int[CompactBoard.MAX_MOVES]) == 0;
+        return new Analysis(AlphaBetaEngine.NO_MOVE, stuck ? -AlphaBetaEngine.WIN : 0);
+    }
+
+    /**
+     * Writes an analysed game as one line, waiting for any analysis still running.
+     * @param pending the game
+     * @return the line, without a line break
+     */
+    private String format(PendingGame pending)
+    {
+        GameArchive.Game game = pending.game;
+        int played = pending.analyses.size() - 1;
+        StringBuilder sb = new StringBuilder(game.getResult());
+        for (int ply = 0; ply < game.moveCount(); ply++)
+        {
+            sb.append(' ').append(game.getMove(ply));
+            if (ply >= played)
+            {
+                if (ply == played)
+                {
+                    sb.append(" {illegal}");
+                }
+                continue;
+            }
+
+            Analysis before = pending.analyses.get(ply).join();
+            Analysis after = pending.analyses.get(ply + 1).join();
+            int sign = pending.darkToMove.get(ply) ? 1 : -1;
+            int playedScore = -after.score;
+            sb.append(" {score ").append(formatScore(sign * playedScore));
+
+            // a move is judged against the best move only when the engine found a different one
+            if (before.bestMove != AlphaBetaEngine.NO_MOVE
+                    && !CompactBoard.moveToString(before.bestMove).equals(game.getMove(ply)))
+            {
+                if (before.score - playedScore >= blunderLoss)
+                {
+                    sb.append(" ??");
+                }
+                sb.append(" best ").append(CompactBoard.moveToString(before.bestMove))
+                        .append(' ').append(formatScore(sign * before.score));
+            }
+            sb.append('}');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Writes a score as a number, or as "win N" or "loss N" for a forced result, as SearchInfo does.
+     * @param score the score
+     * @return the score as text
+     */
+    private static String formatScore(int score)
+    {
+        if (Math.abs(score) >= AlphaBetaEngine.WIN - AlphaBetaEngine.MAX_PLY)
+        {
+            return (score > 0 ? "win " : "loss ") + (AlphaBetaEngine.WIN - Math.abs(score));
+        }
+        return Integer.toString(score);
+    }
+
+    /**
+     * Reads the checkpoint of an output directory.
+     * @param output the output directory
+     * @return the checkpoint, empty if there is none
+     * @throws IOException if the checkpoint cannot be read
+     */
+    private static Properties readCheckpoint(Path output) throws IOException
+    {
+        Properties checkpoint = new Properties();
+        Path file = output.resolve(CHECKPOINT);
+        if (Files.exists(file))
+        {
+            try (InputStream in = Files.newInputStream(file))
+            {
+                checkpoint.load(in);
+            }
+        }
+        return checkpoint;
+    }
+
+    /**
+     * Saves a checkpoint, replacing the old one in a single step so a crash never leaves half of one.
+     * @param output the output directory
+     * @param name the archive being annotated
+     * @param games the number of its games written
+     * @param bytes the length of its output file once those games are flushed
+     * @throws IOException if the checkpoint cannot be written
+     */
+    private static void writeCheckpoint(Path output, String name, long games, long bytes) throws IOException
+    {
+        Properties checkpoint = new Properties();
+        checkpoint.setProperty("file", name);
+        checkpoint.setProperty("games", Long.toString(games));
+        checkpoint.setProperty("bytes", Long.toString(bytes));
+        Path temp = output.resolve(CHECKPOINT + ".tmp");
+        try (OutputStream out = Files.newOutputStream(temp))
+        {
+            checkpoint.store(out, "GameAnnotator progress");
+        }
+        Files.move(temp, output.resolve(CHECKPOINT), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Annotates a directory of archives.
+     * @param args "INPUT_DIR OUTPUT_DIR [DEPTH] [THREADS] [BLUNDER]"
+     * @throws IOException if a file cannot be read or written
+     */
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length < 2)
+        {
+            System.out.println("usage: INPUT_DIR OUTPUT_DIR [DEPTH] [THREADS] [BLUNDER]");
+            return;
+        }
+        int depth = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+        int threadCount = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        int blunder = args.length > 4 ? Integer.parseInt(args[4]) : 100;
+        GameAnnotator annotator = new GameAnnotator(threadCount, depth, blunder);
+        long start = System.nanoTime();
+        long games = annotator.annotate(Path.of(args[0]), Path.of(args[1]));
+        annotator.shutdown();
+        System.out.printf("annotated %d games in %.1f s%n", games, (System.nanoTime() - start) / 1e9);
+    }
+}
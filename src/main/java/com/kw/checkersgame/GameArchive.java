@@ -0,0 +1,178 @@
+package com.kw.checkersgame;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.ObjIntConsumer;
+import java.util.stream.Stream;
+
+/**
+ * This class reads and writes stored games as text, one game per line: the result followed by the moves,
+ * separated by spaces, for example "dark (2,5)-(3,4) (1,2)-(2,3) ...". The result is "dark", "light" or "draw",
+ * and moves are written as by CompactBoard.moveToString. Blank lines and lines starting with '#' are skipped.
+ * Files are read as a stream, so archives far larger than memory can be processed.
+ */
+public final class GameArchive {
+    /** Result of a game dark won. */
+    public static final String DARK = "dark";
+    /** Result of a game light won. */
+    public static final String LIGHT = "light";
+    /** Result of a drawn game. */
+    public static final String DRAW = "draw";
+    /** Result of a game that has not ended. */
+    public static final String NONE = "none";
+
+    /**
+     * The class only has static methods.
+     */
+    private GameArchive()
+    {
+    }
+
+    /**
+     * Opens an archive as a stream of games, read lazily from the file. The stream must be closed.
+     * @param file the archive
+     * @return the games in the file, in order
+     * @throws IOException if the file cannot be opened
+     */
+    public static Stream<Game> read(Path file) throws IOException
+    {
+        return Files.lines(file)
+                .map(String::trim)
+                .filter(line -> !line.isEmpty() && line.charAt(0) != '#')
+                .map(Game::parse);
+    }
+
+    /**
+     * Returns how a game has ended. A side that cannot move loses.
+     * @param game the game
+     * @return DARK, LIGHT or DRAW if it is over, NONE if it is still being played
+     */
+    public static String resultOf(Logic game)
+    {
+        CompactBoard b = CompactBoard.fromLogic(game);
+        if (game.isGameOver())
+        {
+            if (b.darkCount() == 0)
+            {
+                return LIGHT;
+            }
+            if (b.lightCount() == 0)
+            {
+                return DARK;
+            }
+            return DRAW;
+        }
+        if (b.generateMoves(new int[CompactBoard.MAX_MOVES]) == 0)
+        {
+            return b.getTurn() ? LIGHT : DARK;
+        }
+        return NONE;
+    }
+
+    /**
+     * One stored game: its result and its moves.
+     */
+    public static final class Game {
+        private final String result;
+        private final String[] moves;
+
+        /**
+         * Creates a game. The array is copied.
+         * @param result DARK, LIGHT or DRAW
+         * @param moves the moves written as by CompactBoard.moveToString, from the starting position
+         */
+        public Game(String result, String[] moves)
+        {
+            if (!result.equals(DARK) && !result.equals(LIGHT) && !result.equals(DRAW))
+            {
+                throw new IllegalArgumentException("bad result " + result);
+            }
+            this.result = result;
+            this.moves = moves.clone();
+        }
+
+        /**
+         * Reads a game from one line of an archive.
+         * @param line the line
+         * @return the game
+         */
+        public static Game parse(String line)
+        {
+            String[] words = line.trim().split("\\s+");
+            String[] moves = new String[words.length - 1];
+            System.arraycopy(words, 1, moves, 0, moves.length);
+            return new Game(words[0], moves);
+        }
+
+        /**
+         * Plays the game through Logic from the starting position, so the game's own rules decide what is legal.
+         * The visitor is called with the game before each move and once more after the last one.
+         * @param visitor receives the game and the number of moves played so far
+         * @return the number of moves played, which is less than moveCount if a move was illegal
+         */
+        public int replay(ObjIntConsumer<Logic> visitor)
+        {
+            Logic game = new Logic();
+            game.setOpponent();
+            for (int ply = 0; ply < moves.length; ply++)
+            {
+                visitor.accept(game, ply);
+                int move = CompactBoard.fromLogic(game).findMove(moves[ply]);
+                if (move == AlphaBetaEngine.NO_MOVE || !game.playMove(move))
+                {
+                    return ply;
+                }
+            }
+            visitor.accept(game, moves.length);
+            return moves.length;
+        }
+
+        /**
+         * Returns how the game ended.
+         * @return DARK, LIGHT or DRAW
+         */
+        public String getResult()
+        {
+            return result;
+        }
+
+        /**
+         * Returns the game's result as a score for dark.
+         * @return 1 for a dark win, 0 for a light win, 0.5 for a draw
+         */
+        public double darkScore()
+        {
+            return result.equals(DARK) ? 1 : result.equals(LIGHT) ? 0 : 0.5;
+        }
+
+        /**
+         * Returns the number of moves in the game.
+         * @return the move count
+         */
+        public int moveCount()
+        {
+            return moves.length;
+        }
+
+        /**
+         * Returns one move of the game.
+         * @param ply the index of the move, from 0
+         * @return the move written as by CompactBoard.moveToString
+         */
+        public String getMove(int ply)
+        {
+            return moves[ply];
+        }
+
+        /**
+         * Returns the game as one line of an archive, without a line break.
+         * @return the line
+         */
+        @Override
+        public String toString()
+        {
+            return result + (moves.length == 0 ? "" : " " + String.join(" ", moves));
+        }
+    }
+}
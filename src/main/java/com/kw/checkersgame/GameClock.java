@@ -0,0 +1,187 @@
+package com.kw.checkersgame;
+
+/**
+ * This class keeps the time each player has left.
+ * It supports a base time plus an increment per move, sudden death (no increment), and a fixed time per move.
+ * Like a real chess clock, one side's time runs between startTurn and endTurn.
+ */
+public class GameClock {
+    /**
+     * The ways a clock can count time.
+     */
+    public enum Mode {
+        /** A base time, with a bonus added after every move. */
+        INCREMENT,
+        /** A base time for the whole game and nothing more. */
+        SUDDEN_DEATH,
+        /** The same amount of time for every move, which cannot be saved up. */
+        FIXED_PER_MOVE
+    }
+
+    private final Mode mode;
+    private final long baseMillis, incrementMillis;
+    private long darkMillis, lightMillis;
+    private long turnStart;
+    private boolean running, runningDark, darkFlagged, lightFlagged;
+
+    /**
+     * Creates a clock. Use the static factories for the common cases.
+     * @param mode how time is counted
+     * @param baseMillis the starting time per player, or the time per move for FIXED_PER_MOVE
+     * @param incrementMillis the time added after each move, used only by INCREMENT
+     */
+    public GameClock(Mode mode, long baseMillis, long incrementMillis)
+    {
+        this.mode = mode;
+        this.baseMillis = baseMillis;
+        this.incrementMillis = mode == Mode.INCREMENT ? incrementMillis : 0;
+        reset();
+    }
+
+    /**
+     * Creates a clock with a base time and an increment per move.
+     * @param baseMillis the starting time per player
+     * @param incrementMillis the time added after each move
+     * @return the new clock
+     */
+    public static GameClock increment(long baseMillis, long incrementMillis)
+    {
+        return new GameClock(Mode.INCREMENT, baseMillis, incrementMillis);
+    }
+
+    /**
+     * Creates a clock with one amount of time for the whole game.
+     * @param baseMillis the time per player
+     * @return the new clock
+     */
+    public static GameClock suddenDeath(long baseMillis)
+    {
+        return new GameClock(Mode.SUDDEN_DEATH, baseMillis, 0);
+    }
+
+    /**
+     * Creates a clock with a fixed time for every move.
+     * @param moveMillis the time per move
+     * @return the new clock
+     */
+    public static GameClock fixedPerMove(long moveMillis)
+    {
+        return new GameClock(Mode.FIXED_PER_MOVE, moveMillis, 0);
+    }
+
+    /**
+     * Puts both players back to their starting time and stops the clock.
+     */
+    public synchronized void reset()
+    {
+        darkMillis = baseMillis;
+        lightMillis = baseMillis;
+        running = false;
+        darkFlagged = false;
+        lightFlagged = false;
+    }
+
+    /**
+     * Starts a player's time running.
+     * @param dark whether it is dark's turn
+     */
+    public synchronized void startTurn(boolean dark)
+    {
+        if (running)
+        {
+            endTurn();
+        }
+        if (mode == Mode.FIXED_PER_MOVE)
+        {
+            setRemaining(dark, baseMillis);
+        }
+        running = true;
+        runningDark = dark;
+        turnStart = System.nanoTime();
+    }
+
+    /**
+     * Stops the running player's time, marks them as out of time if they went over, and adds the increment.
+     */
+    public synchronized void endTurn()
+    {
+        if (!running)
+        {
+            return;
+        }
+        long left = remainingMillis(runningDark);
+        if (left < 0)
+        {
+            if (runningDark)
+            {
+                darkFlagged = true;
+            }
+            else
+            {
+                lightFlagged = true;
+            }
+        }
+        setRemaining(runningDark, left + incrementMillis);
+        running = false;
+    }
+
+    /**
+     * Returns the time a player has left, including time used by a turn in progress.
+     * @param dark whether to read dark's time
+     * @return the remaining time in milliseconds, negative if they have run out
+     */
+    public synchronized long remainingMillis(boolean dark)
+    {
+        long left = dark ? darkMillis : lightMillis;
+        if (running && runningDark == dark)
+        {
+            left -= (System.nanoTime() - turnStart) / 1_000_000L;
+        }
+        return left;
+    }
+
+    /**
+     * Returns whether a player has gone over their time.
+     * @param dark whether to check dark
+     * @return true if the player has run out of time, false otherwise
+     */
+    public synchronized boolean isFlagged(boolean dark)
+    {
+        return (dark ? darkFlagged : lightFlagged) || remainingMillis(dark) < 0;
+    }
+
+    /**
+     * Sets a player's remaining time.
+     * @param dark whether to set dark's time
+     * @param millis the new remaining time
+     */
+    public synchronized void setRemaining(boolean dark, long millis)
+    {
+        if (dark)
+        {
+            darkMillis = millis;
+        }
+        else
+        {
+            lightMillis = millis;
+        }
+    }
+
+    /**
+     * Returns how this clock counts time.
+     * @return the clock mode
+     */
+    public Mode getMode()
+    {
+        return mode;
+    }
+
+    /**
+     * Returns the time added after each move.
+     * @return the increment in milliseconds, 0 unless the mode is INCREMENT
+     */
+    public long getIncrementMillis()
+    {
+        return incrementMillis;
+    }
+}
@@ -0,0 +1,111 @@
+package com.kw.checkersgame;
+
+import java.io.PrintStream;
+
+/**
+ * This class writes one line per game event, as "event=name key=value ..." so lines are easy to search and parse.
+ * Logging is off unless the program is started with -Dcheckers.log=true or setEnabled is called.
+ * While it is off each call returns at once, and the methods take plain longs so nothing is boxed or built.
+ */
+public final class GameLog {
+    private static volatile boolean enabled = Boolean.getBoolean("checkers.log");
+    private static volatile PrintStream out = System.err;
+
+    /**
+     * The class only has static methods.
+     */
+    private GameLog()
+    {
+    }
+
+    /**
+     * Returns whether events are being written.
+     * @return true if logging is on, false otherwise
+     */
+    public static boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * Turns logging on or off.
+     * @param on true to write events, false to ignore them
+     */
+    public static void setEnabled(boolean on)
+    {
+        enabled = on;
+    }
+
+    /**
+     * Changes where events are written. The default is standard error.
+     * @param stream the stream to write lines to
+     */
+    public static void setOutput(PrintStream stream)
+    {
+        out = stream;
+    }
+
+    /**
+     * Writes an event with no values.
+     * @param event the name of the event
+     */
+    public static void event(String event)
+    {
+        if (enabled)
+        {
+            write(start(event));
+        }
+    }
+
+    /**
+     * Writes an event with one value.
+     * @param event the name of the event
+     * @param key the name of the value
+     * @param value the value
+     */
+    public static void event(String event, String key, long value)
+    {
+        if (enabled)
+        {
+            write(start(event).append(' ').append(key).append('=').append(value));
+        }
+    }
+
+    /**
+     * Writes an event with two values.
+     * @param event the name of the event
+     * @param key1 the name of the first value
+     * @param value1 the first value
+     * @param key2 the name of the second value
+     * @param value2 the second value
+     */
+    public static void event(String event, String key1, long value1, String key2, long value2)
+    {
+        if (enabled)
+        {
+            write(start(event).append(' ').append(key1).append('=').append(value1)
+                    .append(' ').append(key2).append('=').append(value2));
+        }
+    }
+
+    /**
+     * Starts a line with the time, the thread and the event name.
+     * @param event the name of the event
+     * @return the line so far
+     */
+    private static StringBuilder start(String event)
+    {
+        return new StringBuilder(96).append("ts=").append(System.currentTimeMillis())
+                .append(" thread=\"").append(Thread.currentThread().getName()).append('"')
+                .append(" event=").append(event);
+    }
+
+    /**
+     * Writes a finished line.
+     * @param line the line
+     */
+    private static void write(StringBuilder line)
+    {
+        out.println(line);
+    }
+}
@@ -0,0 +1,24 @@
+package com.kw.checkersgame;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * This Flight Recorder event is recorded each time Logic checks whether the game is over.
+ */
+@Name("com.kw.checkersgame.GameOverCheck")
+@Label("Game Over Check")
+@Category("Checkers")
+@Description("Counting the pieces left and checking for a draw")
+public final class GameOverCheckEvent extends jdk.jfr.Event {
+    @Label("Game Over")
+    boolean gameOver;
+
+    @Label("Dark Pieces")
+    int darkPieces;
+
+    @Label("Light Pieces")
+    int lightPieces;
+}
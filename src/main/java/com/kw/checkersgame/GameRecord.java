@@ -0,0 +1,278 @@
+package com.kw.checkersgame;
+
+import java.util.Arrays;
+
+/**
+ * This class records a game as a list of move events from its starting position, so any earlier position can be
+ * gone back to. Every K plies it also keeps a snapshot of the board, four ints, so finding the position at any
+ * ply replays at most K - 1 moves from the snapshot before it instead of the whole game. The hash of each position
+ * is kept as well, so the history needed for the draw rules is rebuilt without replaying anything.
+ * <p>
+ * A record is changed by the thread playing its game, like Logic; other threads should work on a copy.
+ * As text, a record is "start BOARD dark|light" on one line and "moves m..." on the next, with the board written
+ * as by CompactBoard.toText and moves as by CompactBoard.moveToString.
+ */
+public final class GameRecord {
+    /** Default number of plies between snapshots. */
+    public static final int DEFAULT_SNAPSHOT_INTERVAL = 16;
+
+    // set on a move event when the move was a capture or man move, which the draw rules count from
+    private static final int IRREVERSIBLE = 1 << 20;
+    private static final int MOVE_MASK = IRREVERSIBLE - 1;
+    private static final int SNAPSHOT_INTS = 4;
+
+    private final int interval;
+
+    // the move event of each ply, and the hash of the position before each ply and after the last
+    private int[] events;
+    private long[] hashes;
+    private int plies;
+
+    // dark, light, kings and side to move of every interval-th position, the first being the start
+    private int[] snapshots;
+
+    /**
+     * Creates a record of a game from the usual starting position, with the default snapshot interval.
+     */
+    public GameRecord()
+    {
+        this(CompactBoard.initial(), DEFAULT_SNAPSHOT_INTERVAL);
+    }
+
+    /**
+     * Creates a record of a game from a given position.
+     * @param start the starting position, which is not changed
+     * @param interval the number of plies between snapshots, at least 1
+     */
+    public GameRecord(CompactBoard start, int interval)
+    {
+        if (interval < 1)
+        {
+            throw new IllegalArgumentException("snapshot interval must be at least 1");
+        }
+        this.interval = interval;
+        events = new int[64];
+        hashes = new long[65];
+        snapshots = new int[SNAPSHOT_INTS * 8];
+        clear(start);
+    }
+
+    /**
+     * Makes a copy of a record, which can then be changed without changing the original.
+     * @param r the record to copy
+     */
+    public GameRecord(GameRecord r)
+    {
+        interval = r.interval;
+        events = r.events.clone();
+        hashes = r.hashes.clone();
+        snapshots = r.snapshots.clone();
+        plies = r.plies;
+    }
+
+    /**
+     * Forgets every move and starts again from a position.
+     * @param start the new starting position, which is not changed
+     */
+    public void clear(CompactBoard start)
+    {
+        plies = 0;
+        hashes[0] = start.hash();
+        snapshot(0, start);
+    }
+
+    /**
+     * Adds the next move of the game.
+     * @param move the move encoded as in CompactBoard, legal in the position at the last ply
+     * @param irreversible whether the move was a capture or man move
+     * @param after the position the move led to, which is not changed
+     */
+    public void add(int move, boolean irreversible, CompactBoard after)
+    {
+        if (plies == events.length)
+        {
+            events = Arrays.copyOf(events, plies * 2);
+            hashes = Arrays.copyOf(hashes, plies * 2 + 1);
+        }
+        events[plies] = move | (irreversible ? IRREVERSIBLE : 0);
+        hashes[++plies] = after.hash();
+        if (plies % interval == 0)
+        {
+            snapshot(plies / interval, after);
+        }
+    }
+
+    /**
+     * Stores the snapshot of a position.
+     * @param index the number of the snapshot, the ply divided by the interval
+     * @param b the position
+     */
+    private void snapshot(int index, CompactBoard b)
+    {
+        int at = index * SNAPSHOT_INTS;
+        if (at == snapshots.length)
+        {
+            snapshots = Arrays.copyOf(snapshots, at * 2);
+        }
+        snapshots[at] = b.getDark();
+        snapshots[at + 1] = b.getLight();
+        snapshots[at + 2] = b.getKings();
+        snapshots[at + 3] = b.getTurn() ? 1 : 0;
+    }
+
+    /**
+     * Forgets the moves after a ply, so the game can go on differently from there.
+     * @param ply the number of moves to keep
+     */
+    public void truncate(int ply)
+    {
+        checkPly(ply);
+        plies = ply;
+    }
+
+    /**
+     * Returns the position at a ply, replaying at most interval - 1 moves from the snapshot before it.
+     * @param ply the number of moves played, from 0 for the start to size() for the latest position
+     * @return the position
+     */
+    public CompactBoard boardAt(int ply)
+    {
+        checkPly(ply);
+        int from = ply / interval;
+        int at = from * SNAPSHOT_INTS;
+        CompactBoard b = new CompactBoard();
+        b.dark = snapshots[at];
+        b.light = snapshots[at + 1];
+        b.kings = snapshots[at + 2];
+        b.darkToMove = snapshots[at + 3] != 0;
+        b.rehash();
+        for (int i = from * interval; i < ply; i++)
+        {
+            b.makeMove(events[i] & MOVE_MASK);
+        }
+        return b;
+    }
+
+    /**
+     * Rebuilds the history the draw rules need at a ply: the positions since the last capture or man move.
+     * Earlier positions can never come back, so they make no difference to either rule.
+     * @param ply the number of moves played
+     * @param noProgressLimit the no-progress limit of the history
+     * @return the history, ending with the position at the ply
+     */
+    public PositionHistory historyAt(int ply, int noProgressLimit)
+    {
+        checkPly(ply);
+        int start = ply;
+        while (start > 0 && (events[start - 1] & IRREVERSIBLE) == 0)
+        {
+            start--;
+        }
+        PositionHistory history = new PositionHistory(noProgressLimit);
+        history.push(hashes[start], true);
+        for (int i = start + 1; i <= ply; i++)
+        {
+            history.push(hashes[i], false);
+        }
+        return history;
+    }
+
+    /**
+     * Returns one move of the game.
+     * @param ply the number of moves played before it
+     * @return the move encoded as in CompactBoard
+     */
+    public int getMove(int ply)
+    {
+        if (ply < 0 || ply >= plies)
+        {
+            throw new IndexOutOfBoundsException("no move at ply " + ply + " of " + plies);
+        }
+        return events[ply] & MOVE_MASK;
+    }
+
+    /**
+     * Returns the number of moves recorded.
+     * @return the ply count
+     */
+    public int size()
+    {
+        return plies;
+    }
+
+    /**
+     * Returns the number of plies between snapshots.
+     * @return the snapshot interval
+     */
+    public int getSnapshotInterval()
+    {
+        return interval;
+    }
+
+    /**
+     * Checks that a ply is in the record.
+     * @param ply the ply
+     */
+    private void checkPly(int ply)
+    {
+        if (ply < 0 || ply > plies)
+        {
+            throw new IndexOutOfBoundsException("ply " + ply + " is not between 0 and " + plies);
+        }
+    }
+
+    /**
+     * Reads a record written by toString, replaying its moves once to rebuild the snapshots and hashes.
+     * @param text the record as text
+     * @param interval the number of plies between snapshots
+     * @return the record
+     * @throws IllegalArgumentException if the text is not a record or a move is illegal
+     */
+    public static GameRecord parse(String text, int interval)
+    {
+        String[] lines = text.trim().split("\n");
+        String[] start = lines[0].trim().split("\\s+");
+        if (start.length != 3 || !start[0].equals("start") || lines.length > 2
+                || (lines.length == 2 && !lines[1].trim().startsWith("moves"))
+                || (!start[2].equals("dark") && !start[2].equals("light")))
+        {
+            throw new IllegalArgumentException("not a game record: " + text);
+        }
+        CompactBoard b = CompactBoard.fromText(start[1], start[2].equals("dark"));
+        if (b == null)
+        {
+            throw new IllegalArgumentException("not a game record: " + text);
+        }
+        GameRecord record = new GameRecord(b, interval);
+        String[] moves = lines.length == 2 ? lines[1].trim().split("\\s+") : new String[] {"moves"};
+        for (int i = 1; i < moves.length; i++)
+        {
+            int move = b.findMove(moves[i]);
+            if (move == AlphaBetaEngine.NO_MOVE)
+            {
+                throw new IllegalArgumentException("illegal move " + moves[i] + " at ply " + (i - 1));
+            }
+            boolean irreversible = b.isIrreversible(move);
+            b.makeMove(move);
+            record.add(move, irreversible, b);
+        }
+        return record;
+    }
+
+    /**
+     * Returns the record as text that parse reads.
+     * @return the starting position and the moves
+     */
+    @Override
+    public String toString()
+    {
+        CompactBoard start = boardAt(0);
+        StringBuilder sb = new StringBuilder("start ").append(start.toText())
+                .append(start.getTurn() ? " dark" : " light").append("\nmoves");
+        for (int i = 0; i < plies; i++)
+        {
+            sb.append(' ').append(CompactBoard.moveToString(events[i] & MOVE_MASK));
+        }
+        return sb.append('\n').toString();
+    }
+}
@@ -0,0 +1,310 @@
+package com.kw.checkersgame;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class is a headless server hosting many checkers games at once over HTTP on localhost.
+ * Every request is handled on its own virtual thread, every game is a GameSession actor, and AI moves are
+ * chosen by one shared AIPool. Requests and replies are plain text:
+ * <pre>
+ * POST   /games             starts a game and returns its state; a GameRecord in the body carries that game on
+ * GET    /games/{id}        returns the state of a game
+ * GET    /games/{id}/record returns the game's record, from which POST /games can rebuild it after a restart
+ * GET    /games/{id}/plies/{n}
+ *                           returns the board after the first n moves, for review
+ * POST   /games/{id}/moves  plays the move in the body, e.g. "(2,5)-(3,4)", then the AI's reply
+ * DELETE /games/{id}        ends a game
+ * GET    /stats             returns the number of open games, moves played and the Metrics counters
+ * </pre>
+ */
+public class GameServer {
+    static
+    {
+        // without this, replies wait for the client's delayed acknowledgement, about 40 ms per request
+        if (System.getProperty("sun.net.httpserver.nodelay") == null)
+        {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final HttpServer server;
+    private final ExecutorService virtualThreads;
+    private final AIPool aiPool;
+    private final Map<Long, GameSession> sessions;
+    private final AtomicLong nextId;
+    private final LongAdder movesPlayed;
+
+    /**
+     * Creates a server. Call start to begin accepting requests.
+     * @param port the localhost port to listen on, or 0 for any free port
+     * @param aiPool the pool that chooses AI moves for every game
+     * @throws IOException if the port cannot be opened
+     */
+    public GameServer(int port, AIPool aiPool) throws IOException
+    {
+        this.aiPool = aiPool;
+        virtualThreads = Executors.newVirtualThreadPerTaskExecutor();
+        sessions = new ConcurrentHashMap<>();
+        nextId = new AtomicLong();
+        movesPlayed = new LongAdder();
+
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 4096);
+        server.setExecutor(virtualThreads);
+        server.createContext("/games", this::handleGames);
+        server.createContext("/stats", this::handleStats);
+    }
+
+    /**
+     * Starts accepting requests.
+     */
+    public void start()
+    {
+        server.start();
+    }
+
+    /**
+     * Stops accepting requests and closes every game.
+     */
+    public void stop()
+    {
+        server.stop(0);
+        virtualThreads.shutdown();
+        aiPool.shutdown();
+        sessions.clear();
+    }
+
+    /**
+     * Returns the port the server is listening on.
+     * @return the port number
+     */
+    public int getPort()
+    {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Returns the number of games currently open.
+     * @return the number of sessions
+     */
+    public int getSessionCount()
+    {
+        return sessions.size();
+    }
+
+    /**
+     * Handles every request under /games.
+     * @param exchange the request and its reply
+     * @throws IOException if the reply cannot be sent
+     */
+    private void handleGames(HttpExchange exchange) throws IOException
+    {
+        try (exchange)
+        {
+            routeGames(exchange);
+        }
+    }
+
+    /**
+     * Runs a request under /games and replies to it.
+     * @param exchange the request and its reply
+     * @throws IOException if the reply cannot be sent
+     */
+    private void routeGames(HttpExchange exchange) throws IOException
+    {
+        try
+        {
+            String[] parts = exchange.getRequestURI().getPath().split("/");
+            String method = exchange.getRequestMethod();
+
+            // parts are "", "games", and then the id and "moves" if given
+            if (parts.length == 2 && method.equals("POST"))
+            {
+                String body = readBody(exchange);
+                GameRecord record;
+                try
+                {
+                    record = body.isBlank() ? null : GameRecord.parse(body, GameRecord.DEFAULT_SNAPSHOT_INTERVAL);
+                }
+                catch (IllegalArgumentException e)
+                {
+                    reply(exchange, 400, e.getMessage() + "\n");
+                    return;
+                }
+                long id = nextId.incrementAndGet();
+                GameSession session = record == null ? new GameSession(id, aiPool, virtualThreads)
+                        : new GameSession(id, aiPool, virtualThreads, record);
+                sessions.put(id, session);
+                reply(exchange, 201, session.submit(session::state).get());
+                return;
+            }
+
+            GameSession session = parts.length >= 3 ? sessions.get(parseId(parts[2])) : null;
+            if (session == null)
+            {
+                reply(exchange, 404, "no such game\n");
+            }
+            else if (parts.length == 3 && method.equals("GET"))
+            {
+                reply(exchange, 200, session.submit(session::state).get());
+            }
+            else if (parts.length == 3 && method.equals("DELETE"))
+            {
+                sessions.remove(session.getId());
+                reply(exchange, 204, null);
+            }
+            else if (parts.length == 4 && parts[3].equals("record") && method.equals("GET"))
+            {
+                reply(exchange, 200, session.submit(session::record).get());
+            }
+            else if (parts.length == 5 && parts[3].equals("plies") && method.equals("GET"))
+            {
+                long n = parseId(parts[4]);
+                int ply = n > Integer.MAX_VALUE ? -1 : (int) n;
+                String state = session.submit(() -> session.stateAt(ply)).get();
+                if (state == null)
+                {
+                    reply(exchange, 404, "no such ply\n");
+                }
+                else
+                {
+                    reply(exchange, 200, state);
+                }
+            }
+            else if (parts.length == 4 && parts[3].equals("moves") && method.equals("POST"))
+            {
+                String move = readBody(exchange);
+                String state = session.submit(() -> session.move(move)).get();
+                if (state == null)
+                {
+                    reply(exchange, 409, "illegal move\n");
+                }
+                else
+                {
+                    movesPlayed.increment();
+                    reply(exchange, 200, state);
+                }
+            }
+            else
+            {
+                reply(exchange, 405, "unsupported request\n");
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        catch (ExecutionException | CompletionException e)
+        {
+            reply(exchange, 500, e.getCause() + "\n");
+        }
+    }
+
+    /**
+     * Handles GET /stats.
+     * @param exchange the request and its reply
+     * @throws IOException if the reply cannot be sent
+     */
+    private void handleStats(HttpExchange exchange) throws IOException
+    {
+        try (exchange)
+        {
+            StringBuilder body = new StringBuilder();
+            body.append("sessions ").append(sessions.size()).append('\n');
+            body.append("moves ").append(movesPlayed.sum()).append('\n');
+            for (Map.Entry<String, Long> counter : Metrics.snapshot().entrySet())
+            {
+                body.append(counter.getKey()).append(' ').append(counter.getValue()).append('\n');
+            }
+            reply(exchange, 200, body.toString());
+        }
+    }
+
+    /**
+     * Reads a game id from a path part.
+     * @param part the text of the id
+     * @return the id, or -1 if the text is not a number
+     */
+    private static long parseId(String part)
+    {
+        try
+        {
+            return Long.parseLong(part);
+        }
+        catch (NumberFormatException e)
+        {
+            return -1;
+        }
+    }
+
+    /**
+     * Reads the whole body of a request as text.
+     * @param exchange the request
+     * @return the body
+     * @throws IOException if the body cannot be read
+     */
+    private static String readBody(HttpExchange exchange) throws IOException
+    {
+        try (InputStream in = exchange.getRequestBody())
+        {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Sends a plain text reply.
+     * @param exchange the request being replied to
+     * @param status the HTTP status code
+     * @param body the text to send, or null for no body
+     * @throws IOException if the reply cannot be sent
+     */
+    private static void reply(HttpExchange exchange, int status, String body) throws IOException
+    {
+        if (body == null)
+        {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody())
+        {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Runs a server until the process is killed.
+     * @param args optional port (default 8080), AI threads (default all cores), AI search depth (default 4) and
+     *             AI time per move in milliseconds (default 1000)
+     * @throws IOException if the port cannot be opened
+     */
+    public static void main(String[] args) throws IOException
+    {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int depth = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+        long moveMillis = args.length > 3 ? Long.parseLong(args[3]) : 1000;
+
+        GameServer server = new GameServer(port, new AIPool(threads, depth, moveMillis, 1 << 16));
+        server.start();
+        System.out.println("checkers server on http://localhost:" + server.getPort() + "/games with "
+                + threads + " AI threads at depth " + depth + ", at most " + moveMillis + " ms a move");
+    }
+}
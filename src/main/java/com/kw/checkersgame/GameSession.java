@@ -0,0 +1,257 @@
+package com.kw.checkersgame;
+
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * This class is one game hosted by the GameServer. The human plays light and the AI plays dark.
+ * A session is an actor: requests are queued in its mailbox and run one at a time on a virtual thread,
+ * so its Logic object is only ever used by one thread at a time without any locks.
+ * A virtual thread only exists while the mailbox has work, so idle sessions cost no threads.
+ */
+public class GameSession {
+    private final long id;
+    private final Logic game;
+    private final AIPool aiPool;
+    private final Executor runner;
+    private final Queue<Runnable> mailbox;
+    private final AtomicBoolean scheduled;
+    private final int[] moves;
+
+    /**
+     * Creates a session with a new game.
+     * @param id the number the session is known by
+     * @param aiPool the pool that chooses the AI's moves
+     * @param runner the executor the mailbox is drained on, normally one virtual thread per task
+     */
+    public GameSession(long id, AIPool aiPool, Executor runner)
+    {
+        this.id = id;
+        this.aiPool = aiPool;
+        this.runner = runner;
+        game = new Logic();
+        game.setOpponent();
+        mailbox = new ConcurrentLinkedQueue<>();
+        scheduled = new AtomicBoolean();
+        moves = new int[CompactBoard.MAX_MOVES];
+    }
+
+    /**
+     * Creates a session that carries on a recorded game, for example one saved before the server restarted.
+     * If the record ends on the AI's turn, the AI's move is queued first, so the human is to move once it is made.
+     * @param id the number the session is known by
+     * @param aiPool the pool that chooses the AI's moves
+     * @param runner the executor the mailbox is drained on, normally one virtual thread per task
+     * @param record the game so far, which is copied
+     */
+    public GameSession(long id, AIPool aiPool, Executor runner, GameRecord record)
+    {
+        this(id, aiPool, runner);
+        game.restore(record);
+        if (game.getTurn() && !isOver())
+        {
+            submit(() -> {
+                playAiMove();
+                return null;
+            });
+        }
+    }
+
+    /**
+     * Queues a request to run on the session's game.
+     * @param request the work to run, which may use the game freely
+     * @param <T> the type of the request's result
+     * @return a future completed with the request's result once it has run
+     */
+    public <T> CompletableFuture<T> submit(Callable<T> request)
+    {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        mailbox.add(() -> {
+            try
+            {
+                result.complete(request.call());
+            }
+            catch (Exception e)
+            {
+                result.completeExceptionally(e);
+            }
+        });
+        schedule();
+        return result;
+    }
+
+    /**
+     * Starts draining the mailbox unless it is already being drained.
+     */
+    private void schedule()
+    {
+        if (!mailbox.isEmpty() && scheduled.compareAndSet(false, true))
+        {
+            runner.execute(this::drain);
+        }
+    }
+
+    /**
+     * Runs queued requests until the mailbox is empty.
+     */
+    private void drain()
+    {
+        Runnable request;
+        while ((request = mailbox.poll()) != null)
+        {
+            request.run();
+        }
+        scheduled.set(false);
+
+        // a request may have arrived after the last poll but before the flag was cleared
+        schedule();
+    }
+
+    /**
+     * Returns the state of the game. Must be called through submit.
+     * @return the state as text, see describe
+     */
+    public String state()
+    {
+        return describe();
+    }
+
+    /**
+     * Returns the record of the game, which can start a new session with the same game. Must be called through submit.
+     * @return the record as text, see GameRecord
+     */
+    public String record()
+    {
+        return game.getRecord().toString();
+    }
+
+    /**
+     * Returns an earlier position of the game, for review, without changing the game. Must be called through submit.
+     * @param ply the number of moves played, from 0
+     * @return the ply, whose turn it was and the board as lines of text, or null if the game has not reached the ply
+     */
+    public String stateAt(int ply)
+    {
+        GameRecord record = game.getRecord();
+        if (ply < 0 || ply > record.size())
+        {
+            return null;
+        }
+        CompactBoard b = record.boardAt(ply);
+        return "ply " + ply + "\nturn " + (b.getTurn() ? "dark" : "light") + "\nboard " + b.toText() + "\n";
+    }
+
+    /**
+     * Makes the human's move and then the AI's reply. Must be called through submit.
+     * The session's virtual thread waits for the AI pool, so the session stays confined to one thread.
+     * @param move the move written as by CompactBoard.moveToString
+     * @return the state after both moves as text, or null if it is not the human's turn or the move is illegal
+     * @throws Exception if the AI failed to choose a move
+     */
+    public String move(String move) throws Exception
+    {
+        if (game.getTurn() || isOver())
+        {
+            return null;
+        }
+
+        int chosen = findMove(move.trim());
+        if (chosen == AlphaBetaEngine.NO_MOVE || !game.playMove(chosen))
+        {
+            return null;
+        }
+
+        if (!isOver())
+        {
+            playAiMove();
+        }
+        return describe();
+    }
+
+    /**
+     * Asks the AI pool for dark's move and makes it, waiting on the session's thread.
+     * @throws Exception if the AI failed to choose a move
+     */
+    private void playAiMove() throws Exception
+    {
+        int reply = aiPool.chooseMove(CompactBoard.fromLogic(game), game.getHistory()).get();
+        if (reply != AlphaBetaEngine.NO_MOVE)
+        {
+            game.playMove(reply);
+        }
+    }
+
+    /**
+     * Finds a legal move of the side to move from its text form.
+     * @param text the move written as by CompactBoard.moveToString
+     * @return the move, or NO_MOVE if no legal move has that text
+     */
+    private int findMove(String text)
+    {
+        int count = CompactBoard.fromLogic(game).generateMoves(moves);
+        for (int i = 0; i < count; i++)
+        {
+            if (CompactBoard.moveToString(moves[i]).equals(text))
+            {
+                return moves[i];
+            }
+        }
+        return AlphaBetaEngine.NO_MOVE;
+    }
+
+    /**
+     * Returns whether the game has ended, including when the side to move has no legal move.
+     * @return true if no more moves can be made, false otherwise
+     */
+    private boolean isOver()
+    {
+        return game.isGameOver() || CompactBoard.fromLogic(game).generateMoves(moves) == 0;
+    }
+
+    /**
+     * Writes the game as lines of text: the session id, whose turn it is, the result, the board and the legal moves.
+     * The board is written by CompactBoard.toText.
+     * @return the game as text
+     */
+    private String describe()
+    {
+        StringBuilder sb = new StringBuilder(512);
+        sb.append("session ").append(id).append('\n');
+        sb.append("turn ").append(game.getTurn() ? "dark" : "light").append('\n');
+        sb.append("result ").append(result()).append('\n');
+
+        CompactBoard b = CompactBoard.fromLogic(game);
+        sb.append("board ").append(b.toText()).append('\n');
+
+        sb.append("moves");
+        int count = b.generateMoves(moves);
+        for (int i = 0; i < count; i++)
+        {
+            sb.append(' ').append(CompactBoard.moveToString(moves[i]));
+        }
+        sb.append('\n');
+        return sb.toString();
+    }
+
+    /**
+     * Returns how the game has ended.
+     * @return "dark", "light" or "draw" if it is over, "none" if it is still being played
+     */
+    private String result()
+    {
+        return GameArchive.resultOf(game);
+    }
+
+    /**
+     * Returns the number the session is known by.
+     * @return the session id
+     */
+    public long getId()
+    {
+        return id;
+    }
+}
@@ -0,0 +1,151 @@
+package com.kw.checkersgame;
+
+import javafx.animation.AnimationTimer;
+import javafx.scene.canvas.GraphicsContext;
+
+/**
+ * This class draws a game once per screen frame, sliding each moved piece along its path.
+ * It only reads the snapshots a Logic object publishes, so it never waits for game logic or the AI,
+ * and moves made on other threads appear on the next frame.
+ */
+public class GameView extends AnimationTimer {
+    // time taken by each step of a move's path
+    private static final long STEP_NANOS = 120_000_000L;
+    private static final double TOP = BoardGeometry.TOP;
+
+    private final Logic logic;
+    private final double size;
+    private final BoardRenderer renderer;
+    private final GraphicsContext overlay;
+
+    private BoardSnapshot shown, previous;
+    private long animationStart;
+    private boolean animating;
+    private double spriteX, spriteY;
+    private boolean spriteDrawn;
+
+    /**
+     * Creates a view. Call start to begin drawing.
+     * @param logic the game whose snapshots are drawn
+     * @param renderer the renderer for the board and still pieces
+     * @param overlay the GraphicsContext of a transparent canvas above the board, for the moving piece
+     */
+    public GameView(Logic logic, BoardRenderer renderer, GraphicsContext overlay)
+    {
+        this.logic = logic;
+        size = logic.getGeometry().getTileSize();
+        this.renderer = renderer;
+        this.overlay = overlay;
+    }
+
+    /**
+     * Draws one frame.
+     * @param now the time of the frame in nanoseconds
+     */
+    @Override
+    public void handle(long now)
+    {
+        // a newer snapshot waits until the move being shown has finished sliding
+        BoardSnapshot latest = logic.getSnapshot();
+        if (latest != shown && !(animating && now - animationStart < duration(shown)))
+        {
+            previous = shown;
+            shown = latest;
+            animating = previous != null && shown.getMoveNumber() == previous.getMoveNumber() + 1
+                    && shown.getLastPath().length > 1;
+            animationStart = now;
+        }
+
+        if (animating && now - animationStart >= duration(shown))
+        {
+            animating = false;
+        }
+
+        if (animating)
+        {
+            drawAnimationFrame(now - animationStart);
+        }
+        else
+        {
+            clearSprite();
+            renderer.render(shown, null);
+        }
+    }
+
+    /**
+     * Draws a frame in the middle of a move: the board after the move, with the mover hidden at its end square,
+     * captured pieces kept until they are jumped, and the mover drawn on the overlay between squares.
+     * @param elapsed the time since the move started in nanoseconds
+     */
+    private void drawAnimationFrame(long elapsed)
+    {
+        int[] path = shown.getLastPath();
+        int[] captured = shown.getLastCaptured();
+        int step = (int) Math.min(path.length - 2, elapsed / STEP_NANOS);
+        double t = Math.min(1.0, (elapsed - step * STEP_NANOS) / (double) STEP_NANOS);
+
+        int end = path[path.length - 1];
+        int mover = shown.getPiece(end);
+        byte[] pieces = shown.copyPieces();
+        pieces[end] = 0;
+
+        // captured pieces stay on the board until the step that jumps them is done
+        byte[] before = previous.copyPieces();
+        for (int i = step; i < captured.length; i++)
+        {
+            if (captured[i] >= 0)
+            {
+                pieces[captured[i]] = before[captured[i]];
+            }
+        }
+
+        // the piece is not crowned until it arrives
+        if ((before[path[0]] & BoardSnapshot.KING) == 0)
+        {
+            mover &= ~BoardSnapshot.KING;
+        }
+        renderer.render(shown, pieces);
+
+        int from = path[step], to = path[step + 1];
+        double x = ((from / 8) + ((to / 8) - (from / 8)) * t) * size;
+        double y = ((from % 8) + ((to % 8) - (from % 8)) * t) * size + TOP;
+        clearSprite();
+        boolean dark = (mover & BoardSnapshot.DARK) != 0;
+        boolean king = (mover & BoardSnapshot.KING) != 0;
+        overlay.drawImage(PieceSprites.get(dark, king, PieceSprites.outputScale(overlay)), x, y, size, size);
+        spriteX = x;
+        spriteY = y;
+        spriteDrawn = true;
+    }
+
+    /**
+     * Clears the area of the overlay where the moving piece was last drawn.
+     */
+    private void clearSprite()
+    {
+        if (spriteDrawn)
+        {
+            overlay.clearRect(spriteX - 1, spriteY - 1, size + 2, size + 2);
+            spriteDrawn = false;
+        }
+    }
+
+    /**
+     * Returns how long the move leading to a snapshot takes to play back.
+     * @param snapshot the snapshot after the move
+     * @return the animation length in nanoseconds
+     */
+    private static long duration(BoardSnapshot snapshot)
+    {
+        return snapshot == null ? 0 : Math.max(0, snapshot.getLastPath().length - 1) * STEP_NANOS;
+    }
+
+    /**
+     * Returns whether a move is currently being played back.
+     * @return true while a piece is sliding, false otherwise
+     */
+    public boolean isAnimating()
+    {
+        return animating;
+    }
+}
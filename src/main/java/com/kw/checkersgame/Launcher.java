@@ -1,6 +1,7 @@
 package com.kw.checkersgame;
 
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.event.ActionEvent;
 import javafx.event.EventHandler;
 import javafx.scene.Group;
@@ -9,11 +10,14 @@ import javafx.scene.canvas.Canvas;
 import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
+import javafx.scene.input.KeyCode;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.paint.Color;
 import javafx.scene.text.Font;
 import javafx.stage.Stage;
 
+import java.io.IOException;
+
 /**
  * This is the main class for an American checkers game.
  * This class bridges the gap between game logic and GUI.
@@ -34,16 +38,36 @@ public class Launcher extends Application {
         Scene primaryScene = new Scene(root);
         primaryStage.setScene(primaryScene);
 
+        // the tiles sit on a background canvas drawn once, pieces on a transparent canvas in front of it,
+        // and a piece being moved slides over both on a third canvas
+        Canvas background = new Canvas(400, 500);
         Canvas canvas = new Canvas(400, 500);
+        Canvas overlay = new Canvas(400, 500);
+        overlay.setMouseTransparent(true);
+        root.getChildren().add(background);
         root.getChildren().add(canvas);
+        root.getChildren().add(overlay);
 
         // Creates and draws board
         GraphicsContext gc = canvas.getGraphicsContext2D();
         Logic board = new Logic();
-        AIPlayerLogic aiPlayer = new AIPlayerLogic();
-        board.draw(gc);
+        // -Dcheckers.ai=alphabeta plays the AI with the alpha-beta search instead of Monte Carlo tree search
+        AIPlayerLogic aiPlayer = "alphabeta".equals(System.getProperty("checkers.ai"))
+                ? new AlphaBetaPlayerLogic() : new MctsPlayerLogic();
+
+        // the AI moves as soon as its turn begins, on its own thread, and the message board is redrawn after
+        Alert alert = new Alert(Alert.AlertType.NONE);
+        AITurnScheduler scheduler = new AITurnScheduler(aiPlayer,
+                game -> Platform.runLater(() -> drawStatus(gc, board, alert)));
+        board.addTurnListener(scheduler);
+        BoardRenderer renderer = new BoardRenderer(background.getGraphicsContext2D(), gc, board.getGeometry());
+        GameView view = new GameView(board, renderer, overlay.getGraphicsContext2D());
+        view.start();
         drawMessage(gc, "Choose one of the players below!", 15, 35, 22);
 
+        // -Dcheckers.index=FILE names an index of stored games to look the position up in
+        PositionIndex index = PositionIndex.configured();
+
         // Sets up and adds AI Player, Human Player, and Information buttons to root.
         Font font = Font.font("Verdana");
 
@@ -68,8 +92,6 @@ public class Launcher extends Application {
         buttonInfo.setPrefSize(70, 30);
         buttonInfo.setStyle("-fx-border-color: darkgreen; -fx-text-fill: darkgreen; -fx-background-color: lemonchiffon;");
 
-        Alert alert = new Alert(Alert.AlertType.NONE);
-
         root.getChildren().add(buttonAI);
         root.getChildren().add(buttonHuman);
         root.getChildren().add(buttonInfo);
@@ -80,6 +102,11 @@ public class Launcher extends Application {
                     @Override
                     public void handle(ActionEvent actionEvent)
                     {
+                        // the players can't change while the AI is moving
+                        if (scheduler.isThinking())
+                        {
+                            return;
+                        }
                         gc.clearRect(0,0,400,50);
                         board.setOpponent();
                         aiPlayer.setActive();
@@ -87,6 +114,8 @@ public class Launcher extends Application {
                         buttonHuman.setStyle("-fx-border-color: darkgreen; -fx-text-fill: darkgreen; -fx-background-color: lemonchiffon;");
                         drawMessage(gc, "Player chosen. Click piece to play.", 15, 35, 22);
 
+                        // if it is already the AI's turn, it moves straight away
+                        scheduler.turnStarted(board, board.getTurn());
                     }
                 }
         );
@@ -97,8 +126,14 @@ public class Launcher extends Application {
                     @Override
                     public void handle(ActionEvent actionEvent)
                     {
+                        // the players can't change while the AI is moving
+                        if (scheduler.isThinking())
+                        {
+                            return;
+                        }
                         gc.clearRect(0,0,400,50);
                         board.setOpponent();
+                        aiPlayer.stopPondering();
                         aiPlayer.setInactive();
                         buttonHuman.setStyle("-fx-border-color: darkgreen; -fx-text-fill: darkgreen; -fx-background-color: lightgreen;");
                         buttonAI.setStyle("-fx-border-color: darkgreen; -fx-text-fill: darkgreen; -fx-background-color: lemonchiffon;");
@@ -116,12 +151,22 @@ public class Launcher extends Application {
                         alert.setAlertType(Alert.AlertType.INFORMATION);
                         alert.setTitle("BASIC CHECKERS RULES");
                         alert.setContentText("You MUST jump if you can. If there are 2 jumps in a row, you must do both. " +
-                                "In game, jumps are calc in advance by program.");
+                                "In game, jumps are calc in advance by program." +
+                                (index == null ? "" : " Press A to see how stored games from this position ended."));
                         alert.show();
                     }
                 }
         );
 
+        // When A is pressed and there is an index of stored games, show how the games from this position ended;
+        // while the AI is thinking it may be changing the board, so nothing happens, as for clicks
+        primaryScene.setOnKeyPressed(keyEvent -> {
+            if (index != null && keyEvent.getCode() == KeyCode.A && !scheduler.isThinking())
+            {
+                showArchiveStats(index, board, alert);
+            }
+        });
+
         // When the screen is clicked...
         primaryScene.setOnMouseClicked(
                 new EventHandler<MouseEvent>() {
@@ -129,8 +174,8 @@ public class Launcher extends Application {
                     public void handle(MouseEvent mouseEvent)
                     {
 
-                        // ... if there is no opponent, nothing happens
-                        if (!board.getOpponentSet())
+                        // ... if there is no opponent or the AI is still thinking, nothing happens
+                        if (!board.getOpponentSet() || scheduler.isThinking())
                         {
                             return;
                         }
@@ -138,65 +183,43 @@ public class Launcher extends Application {
                         // ... if the game is over, reset information and buttons
                         if (board.isGameOver())
                         {
-                            System.out.println("resetting the board");
+                            GameLog.event("board_reset", "moves", board.getSnapshot().getMoveNumber());
+                            aiPlayer.stopPondering();
                             board.resetGame();
                             buttonAI.setStyle("-fx-border-color: darkgreen; -fx-text-fill: darkgreen; -fx-background-color: lemonchiffon;");
                             buttonHuman.setStyle("-fx-border-color: darkgreen; -fx-text-fill: darkgreen; -fx-background-color: lemonchiffon;");
                         }
 
-                        // ... if the AI is active and it's the AI's turn, make AI move
-                        if (board.getTurn() && aiPlayer.isActive())
-                        {
-                            System.out.println("ai move starts!");
-                            aiPlayer.makeMove(board);
-                            System.out.println("ai move stops!");
-                        }
                         // ... if there are legal positions highlighted, try making a move to a position based on mouse click
-                        else if (board.legalPosAvailable())
+                        if (board.legalPosAvailable())
                         {
-                            System.out.println("trying move starts!");
+                            long start = System.nanoTime();
                             Position pos = board.decodeMouse(mouseEvent.getX(), mouseEvent.getY());
                             if (pos != null)
                             {
                                 board.tryMovingTo(pos);
                             }
-                            System.out.println("trying move stops!");
+                            GameLog.event("move_tried", "moveNumber", board.getSnapshot().getMoveNumber(),
+                                    "micros", (System.nanoTime() - start) / 1000);
                         }
                         // ... if there are no legal positions yet, look for legal positions based on mouse click
                         else {
-                            System.out.println("getting moves starts!");
+                            long start = System.nanoTime();
                             Position pos = board.decodeMouse(mouseEvent.getX(), mouseEvent.getY());
                             if (pos != null)
                             {
                                 board.setLegalMovesFromPos(pos);
                             }
-                            System.out.println("getting moves stops!");
+                            GameLog.event("moves_found", "moveNumber", board.getSnapshot().getMoveNumber(),
+                                    "micros", (System.nanoTime() - start) / 1000);
                         }
 
-                        // draw some things
-                        gc.clearRect(0,0,gc.getCanvas().getWidth(), gc.getCanvas().getHeight());
-                        board.draw(gc);
-                        if (board.getOpponentSet()) // if there is an opponent
-                        {
-                            boolean turn = board.getTurn();
-                            drawTurnCircle(gc, 120, 10, turn);
-                            if (board.isGameOver())
-                            {
-                                // clear message board
-                                gc.clearRect(0,0,400,50);
-
-                                // pop up joke
-                                alert.setAlertType(Alert.AlertType.WARNING);
-                                alert.setTitle("built in joke!");
-                                alert.setContentText("I'm pretty disappointed. Chuck Norris could have won that game in one move.");
-                                alert.show();
-                            }
-
-                            drawMessage(gc, board.message(), 15, 35, 27);
-                        }
-                        else // if there's no opponent, display choice message
+                        // the board itself is drawn by the view on the next frame; if the move started the AI's
+                        // turn, the AI thread may already be changing the game, so the scheduler redraws the status
+                        // once it has moved
+                        if (!scheduler.isThinking())
                         {
-                            drawMessage(gc, "Choose one of the players below!", 15, 35, 22);
+                            drawStatus(gc, board, alert);
                         }
                     }
                 }
@@ -205,6 +228,71 @@ public class Launcher extends Application {
         primaryStage.show();
     }
 
+    /**
+     * Draws the message board above the game, and shows a pop up when the game is over.
+     * @param gc the GraphicsContext the message board is displayed in
+     * @param board the game being played
+     * @param alert the alert used for the pop up
+     */
+    public void drawStatus(GraphicsContext gc, Logic board, Alert alert)
+    {
+        gc.clearRect(0,0,400,50);
+        if (board.getOpponentSet()) // if there is an opponent
+        {
+            boolean turn = board.getTurn();
+            drawTurnCircle(gc, 120, 10, turn);
+            if (board.isGameOver())
+            {
+                // clear message board
+                gc.clearRect(0,0,400,50);
+
+                // pop up joke
+                alert.setAlertType(Alert.AlertType.WARNING);
+                alert.setTitle("built in joke!");
+                alert.setContentText("I'm pretty disappointed. Chuck Norris could have won that game in one move.");
+                alert.show();
+            }
+
+            drawMessage(gc, board.message(), 15, 35, 27);
+        }
+        else // if there's no opponent, display choice message
+        {
+            drawMessage(gc, "Choose one of the players below!", 15, 35, 22);
+        }
+    }
+
+    /**
+     * Shows a pop up telling how the stored games that reached the current position ended.
+     * @param index the index of stored games
+     * @param board the game being played
+     * @param alert the alert used for the pop up
+     */
+    public void showArchiveStats(PositionIndex index, Logic board, Alert alert)
+    {
+        alert.setAlertType(Alert.AlertType.INFORMATION);
+        alert.setTitle("STORED GAMES");
+        try
+        {
+            PositionIndex.Entry entry = index.lookup(CompactBoard.fromLogic(board));
+            long games = entry.getGames();
+            if (games == 0)
+            {
+                alert.setContentText("None of the " + index.getGames() + " stored games reached this position.");
+            }
+            else
+            {
+                alert.setContentText(games + " of the " + index.getGames() + " stored games reached this position. "
+                        + "Dark won " + entry.getDarkWins() + ", light won " + entry.getLightWins()
+                        + " and " + entry.getDraws() + " were drawn.");
+            }
+        }
+        catch (IOException e)
+        {
+            alert.setContentText("The stored games could not be read: " + e.getMessage());
+        }
+        alert.show();
+    }
+
     /**
      * Draws a custom message based on the arguments taken in.
      * @param gc the GraphicsContext the message is being displayed in
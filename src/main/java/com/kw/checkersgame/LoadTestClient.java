@@ -0,0 +1,242 @@
+package com.kw.checkersgame;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class load tests a GameServer by playing many games against it at once, each on its own virtual thread,
+ * making random legal moves for light. Every game is started before any is played, so all of them are open on
+ * the server together. It reports moves per second and the latency of a move request, which includes the AI's
+ * reply but not the time spent waiting for an in-flight slot.
+ */
+public class LoadTestClient {
+    private final HttpClient[] clients;
+    private final String base;
+    private final Semaphore inFlight;
+    private final int maxMoves;
+    private final ConcurrentLinkedQueue<long[]> latencies;
+    private final LongAdder moves, errors;
+    private final AtomicInteger open, peakOpen;
+    private CountDownLatch started;
+
+    /**
+     * Creates a client.
+     * @param port the localhost port of the server
+     * @param maxInFlight the most requests waiting for a reply at once, to stay within the open file limit
+     * @param maxMoves the most moves played in each game before it is abandoned
+     */
+    public LoadTestClient(int port, int maxInFlight, int maxMoves)
+    {
+        // each client has one selector thread, so several are used to keep it from being the bottleneck
+        clients = new HttpClient[Runtime.getRuntime().availableProcessors()];
+        for (int i = 0; i < clients.length; i++)
+        {
+            clients[i] = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        }
+        base = "http://localhost:" + port + "/games";
+        inFlight = new Semaphore(maxInFlight, true);
+        this.maxMoves = maxMoves;
+        latencies = new ConcurrentLinkedQueue<>();
+        moves = new LongAdder();
+        errors = new LongAdder();
+        open = new AtomicInteger();
+        peakOpen = new AtomicInteger();
+    }
+
+    /**
+     * Plays games until they all finish and prints the results.
+     * @param sessions the number of games played at once
+     */
+    public void run(int sessions)
+    {
+        started = new CountDownLatch(sessions);
+        long[] start = new long[1];
+        try (ExecutorService threads = Executors.newVirtualThreadPerTaskExecutor())
+        {
+            for (int i = 0; i < sessions; i++)
+            {
+                int index = i;
+                threads.execute(() -> playGame(index, new SplittableRandom(index)));
+            }
+
+            // time only the playing, not the starting
+            started.await();
+            start[0] = System.nanoTime();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        double seconds = (System.nanoTime() - start[0]) / 1e9;
+
+        long[] all = latencies.stream().flatMapToLong(Arrays::stream).toArray();
+        Arrays.sort(all);
+        System.out.printf("sessions %d (peak open %d), moves %d, errors %d, %.1f s%n",
+                sessions, peakOpen.get(), moves.sum(), errors.sum(), seconds);
+        System.out.printf("moves/sec %.0f%n", moves.sum() / seconds);
+        if (all.length > 0)
+        {
+            System.out.printf("latency ms: p50 %.2f, p99 %.2f, max %.2f%n",
+                    percentile(all, 0.50) / 1e6, percentile(all, 0.99) / 1e6, all[all.length - 1] / 1e6);
+        }
+    }
+
+    /**
+     * Starts one game, waits until every game has started, then plays it to the end making random moves for light.
+     * @param index the number of the game, which picks the HTTP client used
+     * @param random the source of move choices
+     */
+    private void playGame(int index, SplittableRandom random)
+    {
+        HttpClient client = clients[index % clients.length];
+        List<Long> times = new ArrayList<>();
+        try
+        {
+            String state;
+            try
+            {
+                state = send(client, HttpRequest.newBuilder(URI.create(base)).POST(HttpRequest.BodyPublishers.noBody()),
+                        null);
+                int count = open.incrementAndGet();
+                peakOpen.accumulateAndGet(count, Math::max);
+            }
+            finally
+            {
+                started.countDown();
+            }
+            started.await();
+            String game = base + "/" + field(state, "session");
+
+            for (int i = 0; i < maxMoves && field(state, "result").equals("none"); i++)
+            {
+                String[] legal = field(state, "moves").split(" ");
+                String move = legal[random.nextInt(legal.length)];
+                state = send(client, HttpRequest.newBuilder(URI.create(game + "/moves"))
+                        .POST(HttpRequest.BodyPublishers.ofString(move)), times);
+                moves.increment();
+            }
+
+            send(client, HttpRequest.newBuilder(URI.create(game)).DELETE(), null);
+            open.decrementAndGet();
+        }
+        catch (IOException | RuntimeException e)
+        {
+            errors.increment();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        latencies.add(times.stream().mapToLong(Long::longValue).toArray());
+    }
+
+    /**
+     * Sends a request, waiting for a free in-flight slot first.
+     * @param client the client to send with
+     * @param request the request to send
+     * @param times the list the request's latency is added to, or null
+     * @return the body of the reply
+     * @throws IOException if the request fails or the server does not reply with success
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    private String send(HttpClient client, HttpRequest.Builder request, List<Long> times)
+            throws IOException, InterruptedException
+    {
+        inFlight.acquire();
+        try
+        {
+            long start = System.nanoTime();
+            HttpResponse<String> response = client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+            if (times != null)
+            {
+                times.add(System.nanoTime() - start);
+            }
+            if (response.statusCode() >= 300)
+            {
+                throw new IOException("status " + response.statusCode() + ": " + response.body());
+            }
+            return response.body();
+        }
+        finally
+        {
+            inFlight.release();
+        }
+    }
+
+    /**
+     * Returns the value of a line of a game state.
+     * @param state the state as sent by the server
+     * @param name the first word of the line
+     * @return the rest of the line, or an empty string if there is no such line or it has no value
+     */
+    private static String field(String state, String name)
+    {
+        for (String line : state.split("\n"))
+        {
+            if (line.startsWith(name + " "))
+            {
+                return line.substring(name.length() + 1);
+            }
+        }
+        return "";
+    }
+
+    /**
+     * Returns a percentile of sorted values.
+     * @param sorted the values in increasing order
+     * @param fraction the percentile as a fraction, for example 0.99
+     * @return the value at that percentile
+     */
+    private static long percentile(long[] sorted, double fraction)
+    {
+        int index = (int) Math.ceil(fraction * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    /**
+     * Starts a server in this process, or uses a running one, and load tests it.
+     * @param args optional sessions (default 10000), moves per game (default 40), requests in flight
+     *             (default 128) and the port of a running server (default: start one on a free port)
+     * @throws IOException if the server cannot be started
+     */
+    public static void main(String[] args) throws IOException
+    {
+        int sessions = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        int maxMoves = args.length > 1 ? Integer.parseInt(args[1]) : 40;
+        int maxInFlight = args.length > 2 ? Integer.parseInt(args[2]) : 128;
+
+        GameServer server = null;
+        int port;
+        if (args.length > 3)
+        {
+            port = Integer.parseInt(args[3]);
+        }
+        else
+        {
+            server = new GameServer(0, new AIPool(Runtime.getRuntime().availableProcessors(), 4, 1000, 1 << 16));
+            server.start();
+            port = server.getPort();
+        }
+
+        new LoadTestClient(port, maxInFlight, maxMoves).run(sessions);
+        if (server != null)
+        {
+            server.stop();
+        }
+    }
+}
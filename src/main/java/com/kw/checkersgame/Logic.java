@@ -1,16 +1,25 @@
 package com.kw.checkersgame;
 
-import javafx.scene.canvas.GraphicsContext;
-import javafx.scene.paint.Color;
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * This class has all the game logic for moves in checkers.
- * It calculates and draws legal movements for the game.
+ * It calculates legal movements for the game; BoardRenderer draws them, so Logic itself needs no JavaFX.
  */
 public class Logic {
+    // shifts to the squares a piece steps or jumps to, shared so move generation does not allocate them
+    private static final int[] STEP_OFFSETS = {-1, 1};
+    private static final int[] JUMP_OFFSETS = {-2, 2};
+
     private Board board;
     private List<Position> legalPos;
+    private PositionHistory history;
+    private GameRecord record;
+    private volatile BoardSnapshot snapshot;
+    private int moveNumber;
+    private int[] lastPath, lastCaptured;
+    private final List<TurnListener> turnListeners = new CopyOnWriteArrayList<>();
     private boolean tie, lastDark, gameOver, opponentSet, killAvailable, multikillAvailable, lightWinner, darkWinner;
 
     /**
@@ -28,6 +37,14 @@ public class Logic {
         tie = false;
         lightWinner = false;
         darkWinner = false;
+        CompactBoard start = CompactBoard.fromLogic(this);
+        history = new PositionHistory();
+        history.push(start.hash(), true);
+        record = new GameRecord(start, GameRecord.DEFAULT_SNAPSHOT_INTERVAL);
+        moveNumber = 0;
+        lastPath = new int[0];
+        lastCaptured = new int[0];
+        publish();
     }
 
     /**
@@ -58,6 +75,7 @@ public class Logic {
             }
             killAvailable = false;
         }
+        publish();
     }
 
     /**
@@ -66,15 +84,23 @@ public class Logic {
      */
     public void tryMovingTo(Position p)
     {
-        if (isALegalPos(p)) // if the position we are moving to is legal
+        boolean moved = isALegalPos(p);
+        if (moved) // if the position we are moving to is legal
         {
             lastDark = !lastDark; // switch the turn
 
+            Position move = legalPosition(p);
+            recordLastMove(move);
+
+            // captures and man moves can never be repeated, so they restart the draw counting
+            boolean irreversible = move.routeLength() >= 2
+                    || !board.getPiece(move.getLastInRoute()).getKing();
+
             // moves the current piece to its end position
-            board.setPieceOnBoard(p, board.getPiece(legalPosition(p).getLastInRoute()));
-            for (Position pos : legalPosition(p).getRoute())
+            board.setPieceOnBoard(p, board.getPiece(move.getLastInRoute()));
+            for (int i = 0; i < move.routeLength(); i++)
             {
-                board.getPiece(pos).setEmpty(true);
+                board.getPiece(move.getRouteStep(i)).setEmpty(true);
             }
 
             // checks the extremes of the board for king pieces
@@ -90,10 +116,172 @@ public class Logic {
                 }
             }
 
+            // a move made after going back to an earlier ply replaces the moves that followed it
+            CompactBoard after = CompactBoard.fromLogic(this);
+            history.push(after.hash(), irreversible);
+            record.truncate(moveNumber);
+            record.add(MoveEvent.toMove(lastPath, lastCaptured), irreversible, after);
+            moveNumber++;
+            Metrics.movePlayed();
         }
 
         legalPos.clear();
+        publish();
+
+        if (moved)
+        {
+            fireTurnStarted();
+        }
+    }
+
+    /**
+     * Makes a move given in CompactBoard's encoding, selecting the exact route for double jumps.
+     * @param move the move encoded as in CompactBoard
+     * @return true if the move was found and made, false otherwise
+     */
+    boolean playMove(int move)
+    {
+        int from = CompactBoard.moveFrom(move);
+        int to = CompactBoard.moveTo(move);
+        int via = CompactBoard.moveVia(move);
+        boolean doubleJump = CompactBoard.moveJumps(move) == 2;
+
+        for (Position pos : getMoves(Square.of(CompactBoard.x(from), CompactBoard.y(from))))
+        {
+            if (pos.getX() != CompactBoard.x(to) || pos.getY() != CompactBoard.y(to))
+            {
+                continue;
+            }
+
+            // double jumps with the same ending are told apart by the square landed on in between
+            if (doubleJump && !routePasses(pos, CompactBoard.x(via), CompactBoard.y(via)))
+            {
+                continue;
+            }
+
+            List<Position> legal = new ArrayList<>();
+            legal.add(pos);
+            setLegalPos(legal);
+            tryMovingTo(pos);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns whether the route of a position passes through given coordinates.
+     * @param pos the position whose route is checked
+     * @param x the x coordinate looked for
+     * @param y the y coordinate looked for
+     * @return true if a step of the route is at those coordinates, false otherwise
+     */
+    private static boolean routePasses(Position pos, int x, int y)
+    {
+        for (int i = 0; i < pos.routeLength(); i++)
+        {
+            if (pos.getRouteStep(i).getX() == x && pos.getRouteStep(i).getY() == y)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
 
+    /**
+     * Adds a listener that is told each time a turn begins.
+     * @param listener the listener to add
+     */
+    public void addTurnListener(TurnListener listener)
+    {
+        turnListeners.add(listener);
+    }
+
+    /**
+     * Removes a listener added with addTurnListener.
+     * @param listener the listener to remove
+     */
+    public void removeTurnListener(TurnListener listener)
+    {
+        turnListeners.remove(listener);
+    }
+
+    /**
+     * Tells every turn listener whose turn it now is.
+     */
+    private void fireTurnStarted()
+    {
+        boolean dark = getTurn();
+        for (TurnListener listener : turnListeners)
+        {
+            listener.turnStarted(this, dark);
+        }
+    }
+
+    /**
+     * Remembers the squares a move passes through and captures, for animating it.
+     * @param move the legal position being moved to, with its route
+     */
+    private void recordLastMove(Position move)
+    {
+        int origin = move.getLastInRoute().index();
+        int end = move.getSquare().index();
+        if (move.routeLength() == 4) // double jump: captured, landing, captured, origin
+        {
+            lastPath = new int[] {origin, move.getRouteStep(1).index(), end};
+            lastCaptured = new int[] {move.getRouteStep(0).index(), move.getRouteStep(2).index()};
+        }
+        else if (move.routeLength() == 2) // single jump: captured, origin
+        {
+            lastPath = new int[] {origin, end};
+            lastCaptured = new int[] {move.getRouteStep(0).index()};
+        }
+        else
+        {
+            lastPath = new int[] {origin, end};
+            lastCaptured = new int[] {-1};
+        }
+    }
+
+    /**
+     * Makes a new snapshot of the game and publishes it for other threads to read.
+     */
+    private void publish()
+    {
+        byte[] pieces = new byte[64];
+        byte[] highlights = new byte[64];
+        for (int i = 0; i < 8; i++)
+        {
+            for (int j = 0; j < 8; j++)
+            {
+                Piece piece = board.getPiece(i, j);
+                if (!piece.getEmpty())
+                {
+                    pieces[i * 8 + j] = (byte) (BoardSnapshot.PIECE | (piece.getDark() ? BoardSnapshot.DARK : 0)
+                            | (piece.getKing() ? BoardSnapshot.KING : 0));
+                }
+            }
+        }
+
+        // later highlights cover earlier ones, the same way draw paints them
+        for (Position pos : legalPos)
+        {
+            highlights[pos.getSquare().index()] = BoardSnapshot.DESTINATION;
+            for (int i = 0; i < pos.routeLength(); i++)
+            {
+                highlights[pos.getRouteStep(i).index()] = BoardSnapshot.ROUTE;
+            }
+        }
+
+        snapshot = new BoardSnapshot(pieces, highlights, lastPath, lastCaptured, getTurn(), moveNumber);
+    }
+
+    /**
+     * Returns the latest published snapshot of the game. Safe to call from any thread.
+     * @return the latest snapshot
+     */
+    public BoardSnapshot getSnapshot()
+    {
+        return snapshot;
     }
 
     /**
@@ -105,12 +293,10 @@ public class Logic {
     {
         for (Position pos : legalPos)
         {
-            if (p.getX() == pos.getX())
+            // squares are shared, so the same coordinates are the same object
+            if (p.getSquare() == pos.getSquare())
             {
-                if (p.getY() == pos.getY())
-                {
-                    return true;
-                }
+                return true;
             }
         }
         return false;
@@ -127,12 +313,9 @@ public class Logic {
         {
             for (Position pos : legalPos)
             {
-                if (p.getX() == pos.getX())
+                if (p.getSquare() == pos.getSquare())
                 {
-                    if (p.getY() == pos.getY())
-                    {
-                        return new Position(pos);
-                    }
+                    return new Position(pos);
                 }
             }
         }
@@ -147,6 +330,16 @@ public class Logic {
      * @return list of positions that are legal to move to
      */
     public List<Position> getMoves(Position p)
+    {
+        return getMoves(p.getSquare());
+    }
+
+    /**
+     * Returns a list of legal positions the piece on a square could move to.
+     * @param p the square to move from
+     * @return list of positions that are legal to move to
+     */
+    private List<Position> getMoves(Square p)
     {
         List<Position> moves = new ArrayList<>();
 
@@ -167,7 +360,7 @@ public class Logic {
         }
 
 
-        int[] offsets = {-1,1};
+        int[] offsets = STEP_OFFSETS;
 
         if (!killAvailable)
         {
@@ -180,7 +373,7 @@ public class Logic {
                     {
                         for (int offY : offsets)
                         {
-                            Position move = p.shift(offX, offY);
+                            Square move = p.shift(offX, offY);
 
                             // if the piece we are moving to exists, and if it is currently empty...
                             if (board.getPiece(move) != null && board.getPiece(move).getEmpty())
@@ -196,7 +389,7 @@ public class Logic {
                 {
                     for (int offX : offsets)
                     {
-                        Position move = p.shift(offX, board.getPiece(p).getDark() ? 1 : -1);
+                        Square move = p.shift(offX, board.getPiece(p).getDark() ? 1 : -1);
 
                         // if the piece we are moving exists, and if it is currently empty...
                         if (board.getPiece(move) != null && board.getPiece(move).getEmpty())
@@ -212,7 +405,7 @@ public class Logic {
         // add start position to the routes of all possible moves it gets cleared later
         for (Position pos : moves)
         {
-            pos.addToRoute(new Position(p));
+            pos.addToRoute(p);
         }
 
         return moves;
@@ -220,21 +413,21 @@ public class Logic {
 
     /**
      * Returns a list of kills positions that a specified piece could move to.
-     * @param p a start position to move from
+     * @param p a start square to move from
      * @return list of kill positions that are legal to move to
      */
-    private List<Position> getKills(Position p)
+    private List<Position> getKills(Square p)
     {
         List<Position> kills = new ArrayList<>();
 
-        int[] offsets = {-2, 2};
+        int[] offsets = JUMP_OFFSETS;
 
         // if the piece we want to move is not empty
         if (!board.getPiece(p).getEmpty())
         {
             for (int offX : offsets)
             {
-                Position move = p.shift(offX, board.getPiece(p).getDark() ? 2 : -2);
+                Square move = p.shift(offX, board.getPiece(p).getDark() ? 2 : -2);
                 if (move.inBounds() && // the place we want to move to is in bounds
                     board.getPiece(move).getEmpty() && // the place we want to move to is empty
                     !board.getPiece(move.average(p.getX(), p.getY())).getEmpty() && // the spot between our start and end has a piece
@@ -247,17 +440,18 @@ public class Logic {
                             for (int multiOffX : offsets)
                             {
                                 // check potential moves that branch off our current move
-                                Position multiMove = move.shift(multiOffX, 2);
+                                Square multiMove = move.shift(multiOffX, 2);
 
                                 if (multiMove.inBounds() && // the place we want to move to is in bounds
                                         board.getPiece(multiMove).getEmpty() && // the place we want to move to is empty
                                         !board.getPiece(multiMove.average(move.getX(), move.getY())).getEmpty() && // the spot between our start and end has a piece
                                         !board.getPiece(multiMove.average(move.getX(), move.getY())).getDark())  // the piece between is light
                                 {
-                                    multiMove.addToRoute(new Position(move.average(p.getX(), p.getY())));
-                                    multiMove.addToRoute(new Position(move.getX(), move.getY()));
-                                    multiMove.addToRoute(new Position(multiMove.average(move.getX(), move.getY())));
-                                    kills.add(new Position(multiMove));
+                                    Position kill = new Position(multiMove);
+                                    kill.addCaptureToRoute(move.average(p.getX(), p.getY()));
+                                    kill.addToRoute(move);
+                                    kill.addCaptureToRoute(multiMove.average(move.getX(), move.getY()));
+                                    kills.add(kill);
                                     multikillAvailable = true;
                                 }
 
@@ -269,7 +463,7 @@ public class Logic {
                             for (int multiOffX : offsets)
                             {
                                 // check potential moves that branch off our current move
-                                Position multiMove = move.shift(multiOffX, -2);
+                                Square multiMove = move.shift(multiOffX, -2);
 
                                 if (multiMove.inBounds() && // the place we want to move to is in bounds
                                         board.getPiece(multiMove).getEmpty() && // the place we want to move to is empty
@@ -277,10 +471,11 @@ public class Logic {
                                         board.getPiece(multiMove.average(move.getX(), move.getY())).getDark())  // the piece between is dark
                                 {
                                     // changed adding position / moving info to the moved position, not og position
-                                    multiMove.addToRoute(new Position(move.average(p.getX(), p.getY())));
-                                    multiMove.addToRoute(new Position(move.getX(), move.getY()));
-                                    multiMove.addToRoute(new Position(multiMove.average(move.getX(), move.getY())));
-                                    kills.add(new Position(multiMove));
+                                    Position kill = new Position(multiMove);
+                                    kill.addCaptureToRoute(move.average(p.getX(), p.getY()));
+                                    kill.addToRoute(move);
+                                    kill.addCaptureToRoute(multiMove.average(move.getX(), move.getY()));
+                                    kills.add(kill);
                                     multikillAvailable = true;
                                 }
 
@@ -290,8 +485,9 @@ public class Logic {
                     // changed adding position / moving info to the moved position, not og position
                     if (!multikillAvailable)
                     {
-                        move.addToRoute(new Position(move.average(p.getX(), p.getY())));
-                        kills.add(new Position(move));
+                        Position kill = new Position(move);
+                        kill.addCaptureToRoute(move.average(p.getX(), p.getY()));
+                        kills.add(kill);
                     }
                 }
             }
@@ -303,15 +499,15 @@ public class Logic {
 
     /**
      * Returns a list of kills positions that a specified king piece could move to.
-     * @param p a start position with a king to move from
+     * @param p a start square with a king to move from
      * @return list of kill positions that are legal to move to
      */
-    private List<Position> getKillsKing(Position p)
+    private List<Position> getKillsKing(Square p)
     {
 
         List<Position> kills = new ArrayList<>();
 
-        int[] offsets = {-2, 2};
+        int[] offsets = JUMP_OFFSETS;
 
         // if the piece we want to move is not empty
         if (!board.getPiece(p).getEmpty())
@@ -320,7 +516,7 @@ public class Logic {
             {
                 for (int offY : offsets)
                 {
-                    Position move = p.shift(offX, offY);
+                    Square move = p.shift(offX, offY);
                     if (move.inBounds() && // the place we want to move to is in bounds
                             board.getPiece(move).getEmpty() && // the place we want to move to is empty
                             !board.getPiece(move.average(p.getX(), p.getY())).getEmpty() && // the spot between our start and end has a piece
@@ -335,17 +531,18 @@ public class Logic {
                                     for (int multiOffY : offsets)
                                     {
                                         // check potential moves that branch off our current move
-                                        Position multiMove = move.shift(multiOffX, multiOffY);
+                                        Square multiMove = move.shift(multiOffX, multiOffY);
 
                                         if (multiMove.inBounds() && // the place we want to move to is in bounds
                                                 board.getPiece(multiMove).getEmpty() && // the place we want to move to is empty
                                                 !board.getPiece(multiMove.average(move.getX(), move.getY())).getEmpty() && // the spot between our start and end has a piece
                                                 !board.getPiece(multiMove.average(move.getX(), move.getY())).getDark())  // the piece between is light
                                         {
-                                            multiMove.addToRoute(new Position(move.average(p.getX(), p.getY())));
-                                            multiMove.addToRoute(new Position(move.getX(), move.getY()));
-                                            multiMove.addToRoute(new Position(multiMove.average(move.getX(), move.getY())));
-                                            kills.add(new Position(multiMove));
+                                            Position kill = new Position(multiMove);
+                                            kill.addCaptureToRoute(move.average(p.getX(), p.getY()));
+                                            kill.addToRoute(move);
+                                            kill.addCaptureToRoute(multiMove.average(move.getX(), move.getY()));
+                                            kills.add(kill);
                                             multikillAvailable = true;
                                         }
 
@@ -360,7 +557,7 @@ public class Logic {
                                     for (int multiOffY : offsets)
                                     {
                                         // check potential moves that branch off our current move
-                                        Position multiMove = move.shift(multiOffX, multiOffY);
+                                        Square multiMove = move.shift(multiOffX, multiOffY);
 
                                         if (multiMove.inBounds() && // the place we want to move to is in bounds
                                                 board.getPiece(multiMove).getEmpty() && // the place we want to move to is empty
@@ -368,10 +565,11 @@ public class Logic {
                                                 board.getPiece(multiMove.average(move.getX(), move.getY())).getDark())  // the piece between is dark
                                         {
                                             // changed adding position / moving info to the moved position, not og position
-                                            multiMove.addToRoute(new Position(move.average(p.getX(), p.getY())));
-                                            multiMove.addToRoute(new Position(move.getX(), move.getY()));
-                                            multiMove.addToRoute(new Position(multiMove.average(move.getX(), move.getY())));
-                                            kills.add(new Position(multiMove));
+                                            Position kill = new Position(multiMove);
+                                            kill.addCaptureToRoute(move.average(p.getX(), p.getY()));
+                                            kill.addToRoute(move);
+                                            kill.addCaptureToRoute(multiMove.average(move.getX(), move.getY()));
+                                            kills.add(kill);
                                             multikillAvailable = true;
                                         }
 
@@ -382,8 +580,9 @@ public class Logic {
 
                         if (!multikillAvailable)
                         {
-                            move.addToRoute(new Position(move.average(p.getX(), p.getY())));
-                            kills.add(new Position(move));
+                            Position kill = new Position(move);
+                            kill.addCaptureToRoute(move.average(p.getX(), p.getY()));
+                            kills.add(kill);
                         }
                     }
                 }
@@ -401,6 +600,8 @@ public class Logic {
      */
     public List<Position> getAvailableMoves(boolean dark)
     {
+        MoveGenerationEvent event = new MoveGenerationEvent();
+        event.begin();
 
         List<Position> moves = new ArrayList<>();
 
@@ -412,7 +613,7 @@ public class Logic {
                 // if a spot is not empty, and its color is the one we want...
                 if (!board.getPiece(i,j).getEmpty() && board.getPiece(i,j).getDark() == dark)
                 {
-                    List<Position> availablePos = getMoves(new Position(i,j));
+                    List<Position> availablePos = getMoves(Square.of(i, j));
                     if (!availablePos.isEmpty())
                     {
                         // if there are any routes with any length, that is a move
@@ -424,6 +625,10 @@ public class Logic {
                 }
             }
         }
+        event.dark = dark;
+        event.found = moves.size();
+        event.commit();
+        Metrics.moveGeneration(moves.size());
         return moves;
     }
 
@@ -434,6 +639,9 @@ public class Logic {
      */
     public List<Position> getAvailableKills(boolean color)
     {
+        MoveGenerationEvent event = new MoveGenerationEvent();
+        event.begin();
+
         List<Position> moves = new ArrayList<>();
 
         // tests all pieces
@@ -444,7 +652,7 @@ public class Logic {
                 // if a spot is not empty, and its color is the one we want
                 if (!board.getPiece(i,j).getEmpty() && board.getPiece(i,j).getDark() == color)
                 {
-                    List<Position> availablePos = getMoves(new Position(i,j));
+                    List<Position> availablePos = getMoves(Square.of(i, j));
 
                     if (!availablePos.isEmpty())
                     {
@@ -457,6 +665,11 @@ public class Logic {
                 }
             }
         }
+        event.dark = color;
+        event.captures = true;
+        event.found = moves.size();
+        event.commit();
+        Metrics.moveGeneration(moves.size());
         return moves;
     }
 
@@ -470,62 +683,21 @@ public class Logic {
     }
 
     /**
-     * Draws the board, tiles, and pieces in appropriate positions.
-     * @param gc the GraphicsContext being added to
+     * Returns the positions currently highlighted as legal, each with the route leading to it.
+     * @return the list of legal positions
      */
-    public void draw(GraphicsContext gc)
+    List<Position> getLegalPos()
     {
-        // line separating message from game
-        gc.setStroke(Color.DARKGREEN);
-        gc.strokeLine(0, 50, 400, 50);
-        gc.strokeLine(0, 450, 400, 450);
-
-        gc.setFill(Color.LIGHTYELLOW);
-        gc.fillRect(0, 50, 400, 400);
-
-        // drawing tiles
-        gc.setFill(Color.DARKSEAGREEN);
-        for (int i = 0; i < 8; i++)
-        {
-            for (int j = 0; j < 8; j+=2)
-            {
-                boolean even = i % 2 == 0;
-                if (even)
-                {
-                    gc.fillRect(i * 50, (j+1) * 50 + 50, 50, 50);
-                    gc.setStroke(Color.DARKGREEN);
-                    gc.strokeRect(i * 50, (j+1) * 50 + 50, 50, 50);
-                }
-                if (!even)
-                {
-                    gc.fillRect(i * 50, j * 50 + 50, 50, 50);
-                    gc.setStroke(Color.DARKGREEN);
-                    gc.strokeRect(i * 50, (j+1) * 50 + 50, 50, 50);
-                }
-            }
-        }
-
-        // changing color for all available routes
-        for (Position pos : legalPos)
-        {
-            gc.setFill(Color.DARKORANGE);
-            gc.fillRect(pos.getX() * 50, ((1 + pos.getY()) * 50), 50, 50);
-            gc.setFill(Color.SANDYBROWN);
-            if (pos.getRoute() != null)
-                for (Position step : pos.getRoute())
-                {
-                    gc.fillRect(step.getX() * 50, (step.getY() + 1) * 50, 50, 50);
-                }
-        }
+        return legalPos;
+    }
 
-        // drawing pieces
-        for (int i = 0; i < 8; i++)
-        {
-            for (int j = 0; j < 8; j++)
-            {
-                board.getPiece(i,j).draw(gc, i * 50, j * 50 + 50);
-            }
-        }
+    /**
+     * Returns the shape of the board the game is drawn on.
+     * @return the board's geometry
+     */
+    public BoardGeometry getGeometry()
+    {
+        return board.getGeometry();
     }
 
     /**
@@ -537,14 +709,15 @@ public class Logic {
      */
     public Position decodeMouse(double mouseX, double mouseY)
     {
+        int tile = board.getGeometry().getTileSize();
         // check the mouse is not clicking the message area
-        if (mouseY > 50 && mouseY < 450)
+        if (mouseY > BoardGeometry.TOP && mouseY < BoardGeometry.TOP + BoardGeometry.BOARD_PIXELS)
         {
 
-            int decodedX = (int)(mouseX / 50);
-            int decodedY = (int)((mouseY - 50 ) / 50);
+            int decodedX = (int)(mouseX / tile);
+            int decodedY = (int)((mouseY - BoardGeometry.TOP) / tile);
 
-            return new Position(decodedX, decodedY);
+            return new Position(Square.of(decodedX, decodedY));
         }
         else return null;
     }
@@ -555,24 +728,35 @@ public class Logic {
      */
     public boolean isGameOver()
     {
-        boolean tied = (lightPiecesLeft(board) == 1 && darkPiecesLeft(board) == 1);
+        GameOverCheckEvent event = new GameOverCheckEvent();
+        event.begin();
+        int light = lightPiecesLeft(board);
+        int dark = darkPiecesLeft(board);
+
+        // a tie is one piece each, a position repeated three times, or too many moves without progress
+        boolean tied = (light == 1 && dark == 1) || history.isDraw();
         if (tied)
         {
             tie = true;
         }
 
-        if (darkPiecesLeft(board) == 0)
+        if (dark == 0)
         {
             lightWinner = true;
         }
 
-        if (lightPiecesLeft(board) == 0)
+        if (light == 0)
         {
             darkWinner = true;
         }
 
         gameOver = lightWinner || darkWinner || tied;
 
+        event.gameOver = gameOver;
+        event.darkPieces = dark;
+        event.lightPieces = light;
+        event.commit();
+        Metrics.gameOverCheck();
         return gameOver;
     }
 
@@ -660,6 +844,159 @@ public class Logic {
         multikillAvailable = false;
         lightWinner = false;
         darkWinner = false;
+        CompactBoard start = CompactBoard.fromLogic(this);
+        history.clear();
+        history.push(start.hash(), true);
+        record.clear(start);
+        moveNumber = 0;
+        lastPath = new int[0];
+        lastCaptured = new int[0];
+        publish();
+        fireTurnStarted();
+    }
+
+    /**
+     * Sets up an arbitrary position and starts a new game history from it.
+     * @param pos the pieces and the side to move
+     */
+    void setPosition(CompactBoard pos)
+    {
+        placePieces(pos);
+        CompactBoard start = CompactBoard.fromLogic(this);
+        history.clear();
+        history.push(start.hash(), true);
+        record.clear(start);
+        moveNumber = 0;
+        lastPath = new int[0];
+        lastCaptured = new int[0];
+        publish();
+    }
+
+    /**
+     * Goes back or forward to a ply of the recorded game, for review, without forgetting the moves after it.
+     * The position is rebuilt from the nearest snapshot before the ply, so this replays at most
+     * GameRecord.getSnapshotInterval() - 1 moves however long the game is. Making a move from an earlier ply
+     * replaces the recorded moves that followed it. Turn listeners are not told, as with setPosition.
+     * @param ply the number of moves played, from 0 to getRecord().size()
+     */
+    public void seek(int ply)
+    {
+        placePieces(record.boardAt(ply));
+        history = record.historyAt(ply, history.getNoProgressLimit());
+        moveNumber = ply;
+        if (ply == 0)
+        {
+            lastPath = new int[0];
+            lastCaptured = new int[0];
+        }
+        else
+        {
+            setLastMove(record.getMove(ply - 1));
+        }
+        publish();
+    }
+
+    /**
+     * Takes over a recorded game and goes to its last position, for example to rebuild a server session.
+     * @param r the record, which is copied
+     */
+    void restore(GameRecord r)
+    {
+        record = new GameRecord(r);
+        seek(record.size());
+    }
+
+    /**
+     * Returns the record of every move made since the game was last reset or set up.
+     * It is changed as moves are made, so it should only be used on the thread playing the game.
+     * @return the game record
+     */
+    public GameRecord getRecord()
+    {
+        return record;
+    }
+
+    /**
+     * Sets the last move from its CompactBoard encoding, in the form recordLastMove gives.
+     * @param move the move encoded as in CompactBoard
+     */
+    private void setLastMove(int move)
+    {
+        int jumps = CompactBoard.moveJumps(move);
+        int from = Square.ofPlayable(CompactBoard.moveFrom(move)).index();
+        int to = Square.ofPlayable(CompactBoard.moveTo(move)).index();
+        if (jumps == 2)
+        {
+            int via = Square.ofPlayable(CompactBoard.moveVia(move)).index();
+            lastPath = new int[] {from, via, to};
+            lastCaptured = new int[] {(from + via) / 2, (via + to) / 2};
+        }
+        else
+        {
+            lastPath = new int[] {from, to};
+            lastCaptured = new int[] {jumps == 1 ? (from + to) / 2 : -1};
+        }
+    }
+
+    /**
+     * Puts the pieces of a position on the board and clears the state left by the last game.
+     * @param pos the pieces and the side to move
+     */
+    private void placePieces(CompactBoard pos)
+    {
+        for (int x = 0; x < 8; x++)
+        {
+            for (int y = 0; y < 8; y++)
+            {
+                board.getPiece(x, y).setEmpty(true);
+            }
+        }
+        for (int sq = 0; sq < CompactBoard.SQUARES; sq++)
+        {
+            boolean dark = (pos.getDark() & (1 << sq)) != 0;
+            boolean light = (pos.getLight() & (1 << sq)) != 0;
+            if (dark || light)
+            {
+                Piece piece = new Piece();
+                if (dark)
+                {
+                    piece.setDarkPiece();
+                }
+                else
+                {
+                    piece.setLightPiece();
+                }
+                piece.setKing((pos.getKings() & (1 << sq)) != 0);
+                board.setPieceOnBoard(Square.of(CompactBoard.x(sq), CompactBoard.y(sq)), piece);
+            }
+        }
+
+        lastDark = !pos.getTurn();
+        gameOver = false;
+        tie = false;
+        lightWinner = false;
+        darkWinner = false;
+        legalPos.clear();
+    }
+
+    /**
+     * Sets how many plies may be played without a capture or man move before the game is a tie.
+     * The history of the current game is kept only as its latest position.
+     * @param plies the no-progress limit in plies, or 0 to turn the rule off
+     */
+    public void setNoProgressLimit(int plies)
+    {
+        history = new PositionHistory(plies);
+        history.push(CompactBoard.fromLogic(this).hash(), true);
+    }
+
+    /**
+     * Returns the hashes of the positions played in this game, oldest first.
+     * @return the position history
+     */
+    PositionHistory getHistory()
+    {
+        return history;
     }
 
 
@@ -698,4 +1035,13 @@ public class Logic {
         return !lastDark;
     }
 
+    /**
+     * Returns the board of pieces this logic object is playing on.
+     * @return the current board
+     */
+    Board getBoard()
+    {
+        return board;
+    }
+
 }
@@ -0,0 +1,44 @@
+package com.kw.checkersgame;
+
+/**
+ * This class measures MCTS playouts per second and how well they scale with worker threads.
+ * Run it with an optional argument giving the seconds measured per thread count.
+ */
+public class MctsBenchmark {
+
+    /**
+     * Searches the starting position with 1, 2, 4... threads up to the number of cores and prints the rates.
+     * @param args optional seconds per measurement
+     */
+    public static void main(String[] args)
+    {
+        long millis = args.length > 0 ? (long) (Double.parseDouble(args[0]) * 1000) : 2000;
+        int cores = Runtime.getRuntime().availableProcessors();
+        double single = 0;
+
+        System.out.printf("cores=%d, %d ms per measurement%n", cores, millis);
+        for (int threads = 1; threads <= cores; threads = threads < cores && threads * 2 > cores ? cores : threads * 2)
+        {
+            MctsEngine engine = new MctsEngine(threads);
+
+            // warm up the JIT, then measure with a fresh tree
+            engine.search(CompactBoard.initial(), millis / 2);
+            engine.reset();
+            engine.search(CompactBoard.initial(), millis);
+
+            double rate = engine.getPlayoutsPerSecond();
+            if (threads == 1)
+            {
+                single = rate;
+            }
+            System.out.printf("threads=%2d  playouts/sec=%,12.0f  per core=%,10.0f  speedup=%5.2fx  efficiency=%3.0f%%%n",
+                    threads, rate, rate / threads, rate / single, 100 * rate / (single * threads));
+            engine.shutdown();
+
+            if (threads == cores)
+            {
+                break;
+            }
+        }
+    }
+}
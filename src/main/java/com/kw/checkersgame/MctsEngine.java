@@ -0,0 +1,631 @@
+package com.kw.checkersgame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class searches for moves with Monte Carlo Tree Search.
+ * Worker threads share one tree, select with UCT, and use virtual loss to spread out over different lines.
+ * Playouts are random games on a CompactBoard, and the tree is kept between moves so earlier work is reused.
+ */
+public class MctsEngine {
+    /** Returned by search when the position has no legal moves. */
+    public static final int NO_MOVE = -1;
+
+    private static final double EXPLORATION = 1.0;
+    private static final int MAX_PLAYOUT_PLIES = 200;
+    private static final int REUSE_DEPTH = 2;
+
+    /**
+     * Largest number of tree nodes a ponder search adds, about 100 MB. Pondering has no deadline, so without a limit
+     * the tree would grow for as long as the opponent thinks; once it is reached, playouts go on from the leaves
+     * without expanding them.
+     */
+    public static final long PONDER_MAX_NODES = 2_000_000;
+
+    private final int threads;
+    private final ExecutorService pool;
+    private final ExecutorService ponderThread;
+    private final SplittableRandom seeds;
+    private final LongAdder playouts;
+    private volatile boolean stopped;
+
+    // nodes added by the running search, and how many it may add
+    private final AtomicLong nodesAdded;
+    private volatile long maxNodes;
+
+    private Node root;
+    private CompactBoard rootBoard;
+    private long lastPlayouts, lastNanos, lastReusedVisits;
+
+    // pondering state: the tree root before the predicted reply, and the running background search
+    private Node ponderBase;
+    private CompactBoard ponderBaseBoard;
+    private Future<?> ponderTask;
+    private long ponderStart, ponderHits, ponderMisses;
+
+    /**
+     * Creates an engine that runs playouts on a given number of worker threads.
+     * @param threads the number of worker threads, at least 1
+     */
+    public MctsEngine(int threads)
+    {
+        this.threads = Math.max(1, threads);
+        pool = Executors.newFixedThreadPool(this.threads, r -> {
+            Thread t = new Thread(r, "mcts-worker");
+            t.setDaemon(true);
+            return t;
+        });
+        ponderThread = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "mcts-ponder");
+            t.setDaemon(true);
+            return t;
+        });
+        seeds = new SplittableRandom();
+        playouts = new LongAdder();
+        nodesAdded = new AtomicLong();
+    }
+
+    /**
+     * Searches a position for a fixed amount of time and returns the most visited move.
+     * @param pos the position to search, which is not changed
+     * @param millis the time to search for in milliseconds
+     * @return the best move encoded as in CompactBoard, or NO_MOVE if there is none
+     */
+    public int search(CompactBoard pos, long millis)
+    {
+        return search(pos, millis, Long.MAX_VALUE);
+    }
+
+    /**
+     * Searches a position until a time limit or playout budget is used up and returns the most visited move.
+     * @param pos the position to search, which is not changed
+     * @param millis the time to search for in milliseconds
+     * @param maxPlayouts the largest number of playouts to run
+     * @return the best move encoded as in CompactBoard, or NO_MOVE if there is none
+     */
+    public synchronized int search(CompactBoard pos, long millis, long maxPlayouts)
+    {
+        SearchEvent event = new SearchEvent();
+        event.begin();
+        long start = System.nanoTime();
+        long deadline = start + millis * 1_000_000L;
+
+        // on a ponder hit the time already spent pondering counts towards this move
+        if (stopPondering(pos))
+        {
+            deadline -= start - ponderStart;
+        }
+
+        setRoot(pos);
+        lastReusedVisits = root.visits;
+        stopped = false;
+        runWorkers(deadline, maxPlayouts, Long.MAX_VALUE);
+
+        lastNanos = System.nanoTime() - start;
+        lastPlayouts = playouts.sum();
+        int best = bestMove();
+
+        Metrics.search(lastPlayouts, lastNanos);
+        if (event.shouldCommit())
+        {
+            event.engine = "mcts";
+            event.nodes = lastPlayouts;
+            event.nodesPerSecond = (long) getPlayoutsPerSecond();
+            event.bestMove = best == NO_MOVE ? "none" : CompactBoard.moveToString(best);
+            event.commit();
+        }
+        return best;
+    }
+
+    /**
+     * Runs every worker on the current root until the deadline passes, the budget is used, or the search is stopped.
+     * @param deadline the System.nanoTime value to stop at
+     * @param maxPlayouts the largest number of playouts to run in total
+     * @param nodeLimit the largest number of nodes to add to the tree, after which leaves are no longer expanded
+     */
+    private void runWorkers(long deadline, long maxPlayouts, long nodeLimit)
+    {
+        long share = Math.max(1, maxPlayouts / threads);
+        playouts.reset();
+        nodesAdded.set(0);
+        maxNodes = nodeLimit;
+
+        // each worker gets its own random generator, split off here because split is not thread safe
+        List<Callable<Void>> workers = new ArrayList<>();
+        for (int i = 0; i < threads; i++)
+        {
+            SplittableRandom rng = seeds.split();
+            workers.add(() -> {
+                work(rng, deadline, share);
+                return null;
+            });
+        }
+        runAll(workers);
+    }
+
+    /**
+     * Starts searching in the background on the opponent's time.
+     * The opponent's most likely reply is predicted from the tree, and the position after it is searched until
+     * the next call to search, stop, or stopPondering, adding at most PONDER_MAX_NODES nodes to the tree.
+     * @param pos the position with the opponent to move
+     * @return true if pondering started, false if there was no reply to predict
+     */
+    public synchronized boolean ponder(CompactBoard pos)
+    {
+        stopPondering(null);
+        setRoot(pos);
+        Node predicted = bestChild(root);
+        if (predicted == null)
+        {
+            return false;
+        }
+
+        // keep the current root so the tree can still be used if the opponent plays something else
+        ponderBase = root;
+        ponderBaseBoard = rootBoard;
+        CompactBoard next = new CompactBoard(pos);
+        next.makeMove(predicted.move);
+        predicted.parent = null;
+        root = predicted;
+        rootBoard = next;
+
+        stopped = false;
+        ponderStart = System.nanoTime();
+        ponderTask = ponderThread.submit(() -> runWorkers(Long.MAX_VALUE, Long.MAX_VALUE, PONDER_MAX_NODES));
+        return true;
+    }
+
+    /**
+     * Stops a background ponder search and waits for its workers to finish.
+     * On a miss the tree is put back to the position before the predicted reply, so the actual reply can be found.
+     * @param pos the position that was actually reached, or null if it is unknown
+     * @return true if pondering was running and pos is the position that was pondered, false otherwise
+     */
+    public synchronized boolean stopPondering(CompactBoard pos)
+    {
+        if (ponderTask == null)
+        {
+            return false;
+        }
+
+        stopped = true;
+        try
+        {
+            ponderTask.get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        catch (ExecutionException e)
+        {
+            throw new IllegalStateException("MCTS ponder search failed", e.getCause());
+        }
+        ponderTask = null;
+
+        boolean hit = pos != null && pos.equals(rootBoard);
+        if (hit)
+        {
+            ponderHits++;
+        }
+        else
+        {
+            if (pos != null)
+            {
+                ponderMisses++;
+            }
+            root.parent = ponderBase;
+            root = ponderBase;
+            rootBoard = ponderBaseBoard;
+        }
+        ponderBase = null;
+        ponderBaseBoard = null;
+        return hit;
+    }
+
+    /**
+     * Returns whether a background ponder search is running.
+     * @return true if pondering, false otherwise
+     */
+    public synchronized boolean isPondering()
+    {
+        return ponderTask != null;
+    }
+
+    /**
+     * Runs a list of tasks on the worker pool and waits for all of them.
+     * @param tasks the tasks to run
+     */
+    private void runAll(List<Callable<Void>> tasks)
+    {
+        try
+        {
+            for (Future<Void> f : pool.invokeAll(tasks))
+            {
+                f.get();
+            }
+        }
+        catch (InterruptedException e)
+        {
+            stopped = true;
+            Thread.currentThread().interrupt();
+        }
+        catch (ExecutionException e)
+        {
+            throw new IllegalStateException("MCTS worker failed", e.getCause());
+        }
+    }
+
+    /**
+     * Asks a running search to stop as soon as possible.
+     */
+    public void stop()
+    {
+        stopped = true;
+    }
+
+    /**
+     * Drops the search tree so the next search starts from scratch.
+     */
+    public synchronized void reset()
+    {
+        stopPondering(null);
+        root = null;
+        rootBoard = null;
+    }
+
+    /**
+     * Stops the worker threads. The engine cannot search afterwards.
+     */
+    public void shutdown()
+    {
+        stopped = true;
+        ponderThread.shutdownNow();
+        pool.shutdownNow();
+    }
+
+    /**
+     * Runs playouts on one worker thread until the search is stopped, the deadline passes, or its budget is used.
+     * @param rng the random generator owned by this worker
+     * @param deadline the System.nanoTime value to stop at
+     * @param budget the largest number of playouts this worker may run
+     */
+    private void work(SplittableRandom rng, long deadline, long budget)
+    {
+        CompactBoard b = new CompactBoard();
+        int[] moves = new int[CompactBoard.MAX_MOVES];
+        PositionHistory history = new PositionHistory();
+
+        // at least one playout always runs, so the root is expanded even if the deadline has already passed
+        for (long done = 0; done < budget && !stopped && (done == 0 || System.nanoTime() < deadline); done++)
+        {
+            b.copyFrom(rootBoard);
+            Node node = root;
+            history.clear();
+            history.push(b.hash(), true);
+
+            // walk down the tree, adding a virtual loss to each node so other workers try other lines
+            Node[] children = node.children;
+            while (children != null && children.length > 0)
+            {
+                node = select(node, children);
+                Node.VIRTUAL_LOSS.incrementAndGet(node);
+                boolean irreversible = b.isIrreversible(node.move);
+                b.makeMove(node.move);
+                history.push(b.hash(), irreversible);
+                children = node.children;
+            }
+
+            // expand a leaf the second time it is reached, while the node limit allows, then step into one of its
+            // new children; the root is always expanded so there is a move to choose
+            if (children == null && (node == root || (node.visits > 0 && nodesAdded.get() < maxNodes)))
+            {
+                children = expand(node, b, moves);
+                if (children.length > 0)
+                {
+                    node = children[rng.nextInt(children.length)];
+                    Node.VIRTUAL_LOSS.incrementAndGet(node);
+                    boolean irreversible = b.isIrreversible(node.move);
+                    b.makeMove(node.move);
+                    history.push(b.hash(), irreversible);
+                }
+            }
+
+            backpropagate(node, playout(b, rng, moves, history));
+            playouts.increment();
+        }
+    }
+
+    /**
+     * Picks the child with the highest UCT value, counting virtual losses as lost visits.
+     * @param parent the node being walked through
+     * @param children the children of that node
+     * @return the selected child
+     */
+    private Node select(Node parent, Node[] children)
+    {
+        double logN = Math.log(Math.max(1, parent.visits + parent.virtualLoss));
+        Node best = children[0];
+        double bestValue = Double.NEGATIVE_INFINITY;
+
+        for (Node child : children)
+        {
+            int n = child.visits + child.virtualLoss;
+            if (n == 0)
+            {
+                return child;
+            }
+            double value = child.score / (2.0 * n) + EXPLORATION * Math.sqrt(logN / n);
+            if (value > bestValue)
+            {
+                bestValue = value;
+                best = child;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Creates the children of a leaf, once, even if several workers reach it together.
+     * @param node the leaf being expanded
+     * @param b the position at that leaf
+     * @param moves scratch space for move generation
+     * @return the children of the node, empty if the position is over
+     */
+    private Node[] expand(Node node, CompactBoard b, int[] moves)
+    {
+        synchronized (node)
+        {
+            if (node.children == null)
+            {
+                int count = b.isTie() ? 0 : b.generateMoves(moves);
+                Node[] children = new Node[count];
+                for (int i = 0; i < count; i++)
+                {
+                    children[i] = new Node(moves[i], node, b.getTurn());
+                }
+                nodesAdded.addAndGet(count);
+                node.children = children;
+            }
+            return node.children;
+        }
+    }
+
+    /**
+     * Plays random moves until the game ends or the ply limit is reached.
+     * @param b the position to play from, which is changed
+     * @param rng the random generator owned by this worker
+     * @param moves scratch space for move generation
+     * @param history the positions from the root down to b, extended as the playout goes on
+     * @return 1 if dark wins, -1 if light wins, 0 for a draw
+     */
+    private int playout(CompactBoard b, SplittableRandom rng, int[] moves, PositionHistory history)
+    {
+        for (int ply = 0; ply < MAX_PLAYOUT_PLIES; ply++)
+        {
+            if (b.isTie() || history.isDraw())
+            {
+                return 0;
+            }
+            int count = b.generateMoves(moves);
+            if (count == 0)
+            {
+                // the side to move has no pieces or is blocked, so it loses
+                return b.getTurn() ? -1 : 1;
+            }
+            int move = moves[rng.nextInt(count)];
+            boolean irreversible = b.isIrreversible(move);
+            b.makeMove(move);
+            history.push(b.hash(), irreversible);
+        }
+        return 0;
+    }
+
+    /**
+     * Adds a playout result to every node from a leaf up to the root and removes the virtual losses.
+     * @param leaf the node the playout started from
+     * @param winner 1 if dark won, -1 if light won, 0 for a draw
+     */
+    private void backpropagate(Node leaf, int winner)
+    {
+        for (Node n = leaf; n != null; n = n.parent)
+        {
+            if (n.parent != null)
+            {
+                Node.VIRTUAL_LOSS.decrementAndGet(n);
+            }
+            Node.VISITS.incrementAndGet(n);
+            int halfPoints = winner == 0 ? 1 : ((winner > 0) == n.darkMoved ? 2 : 0);
+            Node.SCORE.addAndGet(n, halfPoints);
+        }
+    }
+
+    /**
+     * Returns the most visited move at the root.
+     * @return the best move, or NO_MOVE if the root has no children
+     */
+    private int bestMove()
+    {
+        Node best = bestChild(root);
+        return best == null ? NO_MOVE : best.move;
+    }
+
+    /**
+     * Returns the most visited child of a node.
+     * @param node the node whose children are compared
+     * @return the most visited child, or null if there are none
+     */
+    Node bestChild(Node node)
+    {
+        Node[] children = node == null ? null : node.children;
+        Node best = null;
+        if (children != null)
+        {
+            for (Node child : children)
+            {
+                if (best == null || child.visits > best.visits)
+                {
+                    best = child;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Moves the root to a given position, reusing the old tree if the position was a node a few plies down.
+     * @param pos the position to search
+     */
+    private void setRoot(CompactBoard pos)
+    {
+        Node found = root == null ? null : find(root, rootBoard, pos, REUSE_DEPTH);
+        if (found == null)
+        {
+            root = new Node(0, null, !pos.getTurn());
+        }
+        else
+        {
+            // cut the link so results stop being passed to the discarded part of the tree
+            found.parent = null;
+            root = found;
+        }
+        rootBoard = new CompactBoard(pos);
+    }
+
+    /**
+     * Looks for the node of a target position among a node and its descendants.
+     * @param node the node to start from
+     * @param b the position at that node
+     * @param target the position being looked for
+     * @param depth how many plies further down to look
+     * @return the matching node, or null if it was not found
+     */
+    private Node find(Node node, CompactBoard b, CompactBoard target, int depth)
+    {
+        if (b.equals(target))
+        {
+            return node;
+        }
+        Node[] children = node.children;
+        if (depth == 0 || children == null)
+        {
+            return null;
+        }
+        CompactBoard next = new CompactBoard();
+        for (Node child : children)
+        {
+            next.copyFrom(b);
+            next.makeMove(child.move);
+            Node found = find(child, next, target, depth - 1);
+            if (found != null)
+            {
+                return found;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the number of worker threads.
+     * @return the number of threads
+     */
+    public int getThreads()
+    {
+        return threads;
+    }
+
+    /**
+     * Returns the number of playouts run by the last search.
+     * @return the playout count
+     */
+    public long getLastPlayouts()
+    {
+        return lastPlayouts;
+    }
+
+    /**
+     * Returns how long the last search took.
+     * @return the elapsed time in nanoseconds
+     */
+    public long getLastNanos()
+    {
+        return lastNanos;
+    }
+
+    /**
+     * Returns the playout rate of the last search.
+     * @return playouts per second
+     */
+    public double getPlayoutsPerSecond()
+    {
+        return lastNanos == 0 ? 0 : lastPlayouts * 1e9 / lastNanos;
+    }
+
+    /**
+     * Returns how many visits the root already had from earlier searches when the last search started.
+     * @return the reused visit count
+     */
+    public long getLastReusedVisits()
+    {
+        return lastReusedVisits;
+    }
+
+    /**
+     * Returns how many times the opponent played the reply that was pondered on.
+     * @return the number of ponder hits
+     */
+    public long getPonderHits()
+    {
+        return ponderHits;
+    }
+
+    /**
+     * Returns how many times the opponent played a reply other than the one pondered on.
+     * @return the number of ponder misses
+     */
+    public long getPonderMisses()
+    {
+        return ponderMisses;
+    }
+
+    /**
+     * A node of the search tree. Counters are updated atomically so workers never lock during playouts.
+     */
+    static final class Node {
+        static final AtomicIntegerFieldUpdater<Node> VISITS = AtomicIntegerFieldUpdater.newUpdater(Node.class, "visits");
+        static final AtomicIntegerFieldUpdater<Node> VIRTUAL_LOSS = AtomicIntegerFieldUpdater.newUpdater(Node.class, "virtualLoss");
+        static final AtomicLongFieldUpdater<Node> SCORE = AtomicLongFieldUpdater.newUpdater(Node.class, "score");
+
+        final int move;
+        final boolean darkMoved;
+        Node parent;
+        volatile Node[] children;
+        volatile int visits, virtualLoss;
+        // half points won by the side that made the move into this node
+        volatile long score;
+
+        /**
+         * Creates a node for a move.
+         * @param move the move leading to this node
+         * @param parent the node the move is made from
+         * @param darkMoved whether dark made the move
+         */
+        Node(int move, Node parent, boolean darkMoved)
+        {
+            this.move = move;
+            this.parent = parent;
+            this.darkMoved = darkMoved;
+        }
+    }
+}
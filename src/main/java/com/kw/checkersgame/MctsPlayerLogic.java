@@ -0,0 +1,79 @@
+package com.kw.checkersgame;
+
+/**
+ * The MctsPlayerLogic class is an AI player that chooses its moves with Monte Carlo Tree Search.
+ * It can be used anywhere an AIPlayerLogic is used.
+ */
+public class MctsPlayerLogic extends AIPlayerLogic {
+    private final MctsEngine engine;
+    private final long moveMillis;
+
+    /**
+     * Constructs an MCTS player using every core and one second per move.
+     */
+    public MctsPlayerLogic()
+    {
+        this(Runtime.getRuntime().availableProcessors(), 1000);
+    }
+
+    /**
+     * Constructs an MCTS player.
+     * @param threads the number of worker threads running playouts
+     * @param moveMillis the time spent searching each move in milliseconds
+     */
+    public MctsPlayerLogic(int threads, long moveMillis)
+    {
+        engine = new MctsEngine(threads);
+        this.moveMillis = moveMillis;
+    }
+
+    /**
+     * Searches for and makes the best move found for dark when it is dark's turn.
+     * @param board the current logic object being manipulated, which contains important information such as positions
+     */
+    @Override
+    public void makeMove(Logic board)
+    {
+        if (board.getAvailableMoves(true).isEmpty())
+        {
+            return;
+        }
+
+        int move = engine.search(CompactBoard.fromLogic(board), moveMillis);
+        if (move != MctsEngine.NO_MOVE)
+        {
+            applyMove(board, move);
+        }
+    }
+
+    /**
+     * Keeps searching the opponent's predicted reply in the background while they think.
+     * @param board the current logic object, with the opponent to move
+     */
+    @Override
+    public void ponder(Logic board)
+    {
+        if (isActive() && !board.getTurn())
+        {
+            engine.ponder(CompactBoard.fromLogic(board));
+        }
+    }
+
+    /**
+     * Stops the background search started by ponder and throws away its prediction.
+     */
+    @Override
+    public void stopPondering()
+    {
+        engine.stopPondering(null);
+    }
+
+    /**
+     * Returns the engine behind this player, for reading search statistics.
+     * @return the MCTS engine
+     */
+    public MctsEngine getEngine()
+    {
+        return engine;
+    }
+}
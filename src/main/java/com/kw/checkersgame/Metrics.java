@@ -0,0 +1,114 @@
+package com.kw.checkersgame;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class keeps running totals of the work the game does: move generation, searches, game over checks,
+ * moves played and frames drawn. Counters are LongAdders, so any number of threads can add to them
+ * without waiting on each other, and a snapshot can be taken at any time.
+ */
+public final class Metrics {
+    private static final LongAdder MOVE_GENERATIONS = new LongAdder();
+    private static final LongAdder PIECES_FOUND = new LongAdder();
+    private static final LongAdder SEARCHES = new LongAdder();
+    private static final LongAdder SEARCH_NODES = new LongAdder();
+    private static final LongAdder SEARCH_NANOS = new LongAdder();
+    private static final LongAdder GAME_OVER_CHECKS = new LongAdder();
+    private static final LongAdder MOVES_PLAYED = new LongAdder();
+    private static final LongAdder FRAMES = new LongAdder();
+    private static final LongAdder DIRTY_SQUARES = new LongAdder();
+
+    /**
+     * The class only has static methods.
+     */
+    private Metrics()
+    {
+    }
+
+    /**
+     * Counts a look for the pieces that can move.
+     * @param found the number of pieces found
+     */
+    static void moveGeneration(int found)
+    {
+        MOVE_GENERATIONS.increment();
+        PIECES_FOUND.add(found);
+    }
+
+    /**
+     * Counts a finished search.
+     * @param nodes the nodes or playouts searched
+     * @param nanos the time taken in nanoseconds
+     */
+    static void search(long nodes, long nanos)
+    {
+        SEARCHES.increment();
+        SEARCH_NODES.add(nodes);
+        SEARCH_NANOS.add(nanos);
+    }
+
+    /**
+     * Counts a check for the end of the game.
+     */
+    static void gameOverCheck()
+    {
+        GAME_OVER_CHECKS.increment();
+    }
+
+    /**
+     * Counts a move played on a Logic board.
+     */
+    static void movePlayed()
+    {
+        MOVES_PLAYED.increment();
+    }
+
+    /**
+     * Counts a drawn frame.
+     * @param dirty the number of squares it redrew
+     */
+    static void frame(int dirty)
+    {
+        FRAMES.increment();
+        DIRTY_SQUARES.add(dirty);
+    }
+
+    /**
+     * Returns the current value of every counter. Counters that change while the snapshot is taken
+     * may or may not include the change.
+     * @return an unchangeable map from counter name to value, in a fixed order
+     */
+    public static Map<String, Long> snapshot()
+    {
+        Map<String, Long> values = new LinkedHashMap<>();
+        values.put("moveGenerations", MOVE_GENERATIONS.sum());
+        values.put("piecesFound", PIECES_FOUND.sum());
+        values.put("searches", SEARCHES.sum());
+        values.put("searchNodes", SEARCH_NODES.sum());
+        values.put("searchNanos", SEARCH_NANOS.sum());
+        values.put("gameOverChecks", GAME_OVER_CHECKS.sum());
+        values.put("movesPlayed", MOVES_PLAYED.sum());
+        values.put("frames", FRAMES.sum());
+        values.put("dirtySquares", DIRTY_SQUARES.sum());
+        return Collections.unmodifiableMap(values);
+    }
+
+    /**
+     * Sets every counter back to 0.
+     */
+    public static void reset()
+    {
+        MOVE_GENERATIONS.reset();
+        PIECES_FOUND.reset();
+        SEARCHES.reset();
+        SEARCH_NODES.reset();
+        SEARCH_NANOS.reset();
+        GAME_OVER_CHECKS.reset();
+        MOVES_PLAYED.reset();
+        FRAMES.reset();
+        DIRTY_SQUARES.reset();
+    }
+}
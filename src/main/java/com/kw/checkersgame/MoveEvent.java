@@ -0,0 +1,147 @@
+package com.kw.checkersgame;
+
+/**
+ * This class packs a move event for spectators into a single long, so events can be copied into ring buffers
+ * and sent over the wire without creating objects. The low 17 bits hold the move encoded as in CompactBoard,
+ * bit 17 is set if dark moved, bit 18 marks a snapshot event, and the high 32 bits hold the move number.
+ * A snapshot event carries no move; it tells the spectator to reload the whole board instead.
+ */
+public final class MoveEvent {
+    /** The value returned when there is no event to read. Real events are never negative. */
+    public static final long NONE = -1L;
+
+    private static final long MOVE_MASK = (1L << 17) - 1;
+    private static final long DARK_BIT = 1L << 17;
+    private static final long SNAPSHOT_BIT = 1L << 18;
+
+    /**
+     * The class only has static methods.
+     */
+    private MoveEvent()
+    {
+    }
+
+    /**
+     * Packs a move into an event.
+     * @param moveNumber the number of moves made in the game including this one
+     * @param move the move encoded as in CompactBoard
+     * @param dark whether dark made the move
+     * @return the event
+     */
+    public static long encode(int moveNumber, int move, boolean dark)
+    {
+        return ((long) moveNumber << 32) | (move & MOVE_MASK) | (dark ? DARK_BIT : 0);
+    }
+
+    /**
+     * Packs a snapshot event, telling a spectator to reload the board.
+     * @param moveNumber the number of moves made in the game at the snapshot
+     * @return the event
+     */
+    public static long snapshot(int moveNumber)
+    {
+        return ((long) moveNumber << 32) | SNAPSHOT_BIT;
+    }
+
+    /**
+     * Packs the last move of a snapshot into an event.
+     * @param snapshot a snapshot taken just after a move, or after a reset
+     * @return the event of its last move, or a snapshot event if no move has been made
+     */
+    public static long fromSnapshot(BoardSnapshot snapshot)
+    {
+        int[] path = snapshot.getLastPath();
+        if (snapshot.getMoveNumber() == 0 || path.length < 2)
+        {
+            return snapshot(snapshot.getMoveNumber());
+        }
+
+        int move = toMove(path, snapshot.getLastCaptured());
+        int end = path[path.length - 1];
+        return encode(snapshot.getMoveNumber(), move, (snapshot.getPiece(end) & BoardSnapshot.DARK) != 0);
+    }
+
+    /**
+     * Encodes a move given as the squares it passed through, as Logic and BoardSnapshot keep the last move.
+     * @param path the squares the piece stood on, as x * 8 + y, from where it started to where it ended
+     * @param captured the square captured on each step of the path, or -1 for a step without a capture
+     * @return the move encoded as in CompactBoard
+     */
+    static int toMove(int[] path, int[] captured)
+    {
+        int jumps = 0;
+        for (int square : captured)
+        {
+            if (square >= 0)
+            {
+                jumps++;
+            }
+        }
+        int via = path.length == 3 ? toSquare(path[1]) : 0;
+        return CompactBoard.encodeMove(toSquare(path[0]), toSquare(path[path.length - 1]), via, jumps);
+    }
+
+    /**
+     * Converts a snapshot square index into a CompactBoard square.
+     * @param index the square index, x * 8 + y
+     * @return the CompactBoard square
+     */
+    private static int toSquare(int index)
+    {
+        return CompactBoard.square(index / 8, index % 8);
+    }
+
+    /**
+     * Returns the move number of an event.
+     * @param event the event
+     * @return the number of moves made in the game including this one
+     */
+    public static int moveNumber(long event)
+    {
+        return (int) (event >>> 32);
+    }
+
+    /**
+     * Returns the move of an event.
+     * @param event the event, which must not be a snapshot event
+     * @return the move encoded as in CompactBoard
+     */
+    public static int move(long event)
+    {
+        return (int) (event & MOVE_MASK);
+    }
+
+    /**
+     * Returns whether dark made the move of an event.
+     * @param event the event
+     * @return true if dark moved, false if light moved
+     */
+    public static boolean isDark(long event)
+    {
+        return (event & DARK_BIT) != 0;
+    }
+
+    /**
+     * Returns whether an event is a snapshot event.
+     * @param event the event
+     * @return true if the spectator should reload the board, false if the event is a move
+     */
+    public static boolean isSnapshot(long event)
+    {
+        return (event & SNAPSHOT_BIT) != 0;
+    }
+
+    /**
+     * Writes an event as text, for logging.
+     * @param event the event
+     * @return the event as text
+     */
+    public static String toString(long event)
+    {
+        if (isSnapshot(event))
+        {
+            return moveNumber(event) + ". snapshot";
+        }
+        return moveNumber(event) + ". " + (isDark(event) ? "dark " : "light ") + CompactBoard.moveToString(move(event));
+    }
+}
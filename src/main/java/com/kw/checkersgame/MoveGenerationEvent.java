@@ -0,0 +1,25 @@
+package com.kw.checkersgame;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * This Flight Recorder event is recorded each time Logic looks for the pieces of one side that can move or capture.
+ * When no recording is running, creating and committing it costs nothing.
+ */
+@Name("com.kw.checkersgame.MoveGeneration")
+@Label("Move Generation")
+@Category("Checkers")
+@Description("Finding the pieces of one side that can move or capture")
+public final class MoveGenerationEvent extends jdk.jfr.Event {
+    @Label("Dark")
+    boolean dark;
+
+    @Label("Captures Only")
+    boolean captures;
+
+    @Label("Pieces Found")
+    int found;
+}
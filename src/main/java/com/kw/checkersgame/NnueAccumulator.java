@@ -0,0 +1,87 @@
+package com.kw.checkersgame;
+
+/**
+ * This class holds the first layer of an NNUE network for one position: the input biases plus one weight row
+ * for each piece on the board. Moving to another position only adds and subtracts the rows of the pieces that
+ * differ, which after a move is two or three rows instead of one per piece.
+ */
+public final class NnueAccumulator {
+    private final NnueNetwork network;
+    private final NnueKernel kernel;
+    private final float[] values;
+    private int dark, light, kings;
+
+    /**
+     * Creates an accumulator for the empty board.
+     * @param network the network whose weights are added up
+     * @param kernel the kernel doing the arithmetic
+     */
+    public NnueAccumulator(NnueNetwork network, NnueKernel kernel)
+    {
+        this.network = network;
+        this.kernel = kernel;
+        values = network.inputBias.clone();
+    }
+
+    /**
+     * Sets the accumulator to a position from scratch.
+     * @param b the position
+     */
+    public void refresh(CompactBoard b)
+    {
+        System.arraycopy(network.inputBias, 0, values, 0, NnueNetwork.HIDDEN);
+        dark = 0;
+        light = 0;
+        kings = 0;
+        update(b);
+    }
+
+    /**
+     * Moves the accumulator to a position, adding and subtracting only the pieces that changed.
+     * @param b the new position
+     */
+    public void update(CompactBoard b)
+    {
+        int newDark = b.getDark(), newLight = b.getLight(), newKings = b.getKings();
+
+        // a square changes if its piece appears, disappears, changes colour or is crowned
+        int changed = (dark ^ newDark) | (light ^ newLight) | ((dark | light) & (kings ^ newKings));
+        for (int bits = changed; bits != 0; bits &= bits - 1)
+        {
+            int sq = Integer.numberOfTrailingZeros(bits);
+            int mask = 1 << sq;
+            if (((dark | light) & mask) != 0)
+            {
+                kernel.subtract(values, network.inputWeights, row(sq, dark, kings));
+            }
+            if (((newDark | newLight) & mask) != 0)
+            {
+                kernel.add(values, network.inputWeights, row(sq, newDark, newKings));
+            }
+        }
+        dark = newDark;
+        light = newLight;
+        kings = newKings;
+    }
+
+    /**
+     * Returns the first weight of the row of the piece on a square.
+     * @param sq the square, which holds a piece
+     * @param darkPieces the dark pieces
+     * @param kingPieces the kings
+     * @return the offset of the row in the input weights
+     */
+    private static int row(int sq, int darkPieces, int kingPieces)
+    {
+        return NnueNetwork.feature(sq, (darkPieces >>> sq & 1) != 0, (kingPieces >>> sq & 1) != 0) * NnueNetwork.HIDDEN;
+    }
+
+    /**
+     * Runs the output layer on the current position.
+     * @return dark's score in hundredths of a man
+     */
+    public float output()
+    {
+        return kernel.output(values, network.outputWeights) + network.outputBias;
+    }
+}
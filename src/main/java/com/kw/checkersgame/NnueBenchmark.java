@@ -0,0 +1,131 @@
+package com.kw.checkersgame;
+
+import java.util.SplittableRandom;
+
+/**
+ * This program measures how many positions per second the hand-written Evaluator and the NNUE evaluator score,
+ * with the scalar and, if present, the vector kernel, both updating the accumulator move by move and rebuilding it.
+ * The network is built with NnueNetwork.fromEvaluator, so both give the same scores and only the cost differs.
+ * Run with --add-modules jdk.incubator.vector to include the vector kernel.
+ */
+public class NnueBenchmark {
+    private static final int POSITIONS = 1 << 14;
+
+    /**
+     * Runs the benchmark.
+     * @param args the number of seconds to run each measurement, 1 if not given
+     */
+    public static void main(String[] args)
+    {
+        long millis = args.length > 0 ? (long) (Double.parseDouble(args[0]) * 1000) : 1000;
+        CompactBoard[] positions = randomGames(POSITIONS, 42);
+        Evaluator evaluator = new Evaluator();
+        NnueNetwork network = NnueNetwork.fromEvaluator(evaluator);
+
+        NnueKernel best = NnueKernel.best();
+        NnueKernel[] kernels = best instanceof ScalarNnueKernel
+                ? new NnueKernel[] {best} : new NnueKernel[] {new ScalarNnueKernel(), best};
+
+        System.out.printf("%d positions from random games, %d ms per measurement%n", POSITIONS, millis);
+        double base = measure("hand-written", evaluator, positions, millis);
+        for (NnueKernel kernel : kernels)
+        {
+            NnueEvaluator nnue = new NnueEvaluator(network, kernel);
+            int worst = 0;
+            for (CompactBoard b : positions)
+            {
+                worst = Math.max(worst, Math.abs(nnue.evaluate(b) - evaluator.evaluate(b)));
+            }
+            double rate = measure("nnue " + kernel.name() + " incremental", nnue, positions, millis);
+            System.out.printf("    largest difference from hand-written: %d, speed %.2fx%n", worst, rate / base);
+            rate = measure("nnue " + kernel.name() + " refresh", new RefreshingEvaluator(network, kernel), positions,
+                    millis);
+            System.out.printf("    speed %.2fx%n", rate / base);
+        }
+    }
+
+    /**
+     * Scores positions over and over for a while and prints the rate.
+     * @param name the name printed
+     * @param evaluator the evaluator measured
+     * @param positions the positions, in the order they are scored
+     * @param millis how long to measure, after the same time spent warming up
+     * @return positions scored per second
+     */
+    private static double measure(String name, Evaluator evaluator, CompactBoard[] positions, long millis)
+    {
+        long sink = 0;
+        for (int pass = 0; pass < 2; pass++)
+        {
+            long start = System.nanoTime(), end = start + millis * 1_000_000L, count = 0;
+            while (System.nanoTime() < end)
+            {
+                for (CompactBoard b : positions)
+                {
+                    sink += evaluator.evaluate(b);
+                }
+                count += positions.length;
+            }
+            if (pass == 1)
+            {
+                double rate = count * 1e9 / (System.nanoTime() - start);
+                System.out.printf("%-36s %,14.0f evals/sec  (%d)%n", name, rate, sink & 1);
+                return rate;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Plays random games back to back and keeps every position, so consecutive positions are a move apart
+     * as they are in a search.
+     * @param count the number of positions
+     * @param seed the random seed
+     * @return the positions
+     */
+    private static CompactBoard[] randomGames(int count, long seed)
+    {
+        SplittableRandom random = new SplittableRandom(seed);
+        CompactBoard[] positions = new CompactBoard[count];
+        CompactBoard b = CompactBoard.initial();
+        int[] moves = new int[CompactBoard.MAX_MOVES];
+        for (int i = 0; i < count; i++)
+        {
+            int n = b.isTie() ? 0 : b.generateMoves(moves);
+            if (n == 0)
+            {
+                b = CompactBoard.initial();
+                n = b.generateMoves(moves);
+            }
+            b.makeMove(moves[random.nextInt(n)]);
+            positions[i] = new CompactBoard(b);
+        }
+        return positions;
+    }
+
+    /**
+     * An NNUE evaluator that rebuilds its accumulator for every position, to show what the incremental
+     * update saves.
+     */
+    private static final class RefreshingEvaluator extends Evaluator {
+        private final NnueAccumulator accumulator;
+
+        /**
+         * Creates the evaluator.
+         * @param network the network
+         * @param kernel the kernel
+         */
+        RefreshingEvaluator(NnueNetwork network, NnueKernel kernel)
+        {
+            accumulator = new NnueAccumulator(network, kernel);
+        }
+
+        @Override
+        public int evaluate(CompactBoard b)
+        {
+            accumulator.refresh(b);
+            int score = Math.round(accumulator.output());
+            return b.getTurn() ? score : -score;
+        }
+    }
+}
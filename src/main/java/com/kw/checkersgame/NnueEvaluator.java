@@ -0,0 +1,59 @@
+package com.kw.checkersgame;
+
+/**
+ * This evaluator scores positions with an NNUE network instead of the hand-written features, so it can be
+ * given to AlphaBetaEngine in place of Evaluator. It keeps one accumulator and moves it from each evaluated
+ * position to the next, which in a search are usually a few moves apart, so most evaluations only touch the
+ * pieces that differ. It keeps state, so each engine needs its own. The hand-written weights it inherits are not used.
+ */
+public class NnueEvaluator extends Evaluator {
+    // beyond this many changed squares, starting again is as cheap as updating
+    private static final int REFRESH_CHANGES = 12;
+
+    private final NnueAccumulator accumulator;
+    private final CompactBoard last;
+
+    /**
+     * Creates an evaluator using the fastest kernel available.
+     * @param network the network to evaluate with
+     */
+    public NnueEvaluator(NnueNetwork network)
+    {
+        this(network, NnueKernel.best());
+    }
+
+    /**
+     * Creates an evaluator.
+     * @param network the network to evaluate with
+     * @param kernel the kernel doing the arithmetic
+     */
+    public NnueEvaluator(NnueNetwork network, NnueKernel kernel)
+    {
+        accumulator = new NnueAccumulator(network, kernel);
+        last = new CompactBoard();
+    }
+
+    /**
+     * Scores a position for the side to move.
+     * @param b the position to score
+     * @return the score, positive when the side to move is better
+     */
+    @Override
+    public int evaluate(CompactBoard b)
+    {
+        int changed = Integer.bitCount((last.getDark() ^ b.getDark()) | (last.getLight() ^ b.getLight())
+                | (last.getKings() ^ b.getKings()));
+        if (changed > REFRESH_CHANGES)
+        {
+            accumulator.refresh(b);
+        }
+        else
+        {
+            accumulator.update(b);
+        }
+        last.copyFrom(b);
+
+        int score = Math.round(accumulator.output());
+        return b.getTurn() ? score : -score;
+    }
+}
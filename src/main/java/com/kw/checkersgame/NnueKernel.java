@@ -0,0 +1,61 @@
+package com.kw.checkersgame;
+
+/**
+ * The arithmetic of NNUE inference: adding weight rows to an accumulator and computing the output.
+ * ScalarNnueKernel works everywhere; VectorNnueKernel uses SIMD through the incubating Vector API
+ * and is only available when the JVM is started with --add-modules jdk.incubator.vector.
+ */
+public interface NnueKernel {
+    /**
+     * Adds one row of weights to an accumulator.
+     * @param accumulator the HIDDEN accumulator values
+     * @param weights the weight rows
+     * @param offset the index of the first weight of the row
+     */
+    void add(float[] accumulator, float[] weights, int offset);
+
+    /**
+     * Subtracts one row of weights from an accumulator.
+     * @param accumulator the HIDDEN accumulator values
+     * @param weights the weight rows
+     * @param offset the index of the first weight of the row
+     */
+    void subtract(float[] accumulator, float[] weights, int offset);
+
+    /**
+     * Clamps each accumulator value to [0, 1] and returns their weighted sum.
+     * @param accumulator the HIDDEN accumulator values
+     * @param weights the HIDDEN output weights
+     * @return the weighted sum
+     */
+    float output(float[] accumulator, float[] weights);
+
+    /**
+     * Returns a short name for reports.
+     * @return the name
+     */
+    String name();
+
+    /**
+     * Returns the fastest kernel this JVM can run: the vector kernel if the Vector API module is present,
+     * the scalar kernel otherwise.
+     * @return the kernel
+     */
+    static NnueKernel best()
+    {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent())
+        {
+            try
+            {
+                // loaded by name so this interface never links against the optional module
+                return (NnueKernel) Class.forName("com.kw.checkersgame.VectorNnueKernel")
+                        .getDeclaredConstructor().newInstance();
+            }
+            catch (ReflectiveOperationException | LinkageError e)
+            {
+                return new ScalarNnueKernel();
+            }
+        }
+        return new ScalarNnueKernel();
+    }
+}
@@ -0,0 +1,171 @@
+package com.kw.checkersgame;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * This class holds the weights of a small NNUE-style evaluation network.
+ * The input is one feature per piece kind on each of CompactBoard's 32 squares (dark man, dark king, light man,
+ * light king), so a position has at most 24 active inputs out of 128. The first layer adds up one row of weights
+ * per active input into an accumulator of HIDDEN values, which NnueAccumulator keeps up to date move by move.
+ * The output clamps each accumulator value to [0, 1] and takes a weighted sum, giving dark's score in hundredths
+ * of a man. Weights are read and written as a small binary file.
+ */
+public final class NnueNetwork {
+    /** Number of input features. */
+    public static final int INPUTS = 4 * CompactBoard.SQUARES;
+    /** Number of values in the accumulator. */
+    public static final int HIDDEN = 64;
+
+    private static final int MAGIC = 0x4E4E5545;
+
+    // how a linear evaluator's dark and light totals are shifted and scaled to fit the [0, 1] clamp
+    private static final float LINEAR_OFFSET = 1024;
+    private static final float LINEAR_SCALE = 8192;
+
+    final float[] inputWeights;
+    final float[] inputBias;
+    final float[] outputWeights;
+    final float outputBias;
+
+    /**
+     * Creates a network. The arrays are copied.
+     * @param inputWeights INPUTS rows of HIDDEN weights, row by row
+     * @param inputBias HIDDEN starting values of the accumulator
+     * @param outputWeights HIDDEN output weights
+     * @param outputBias the value added to the output
+     */
+    public NnueNetwork(float[] inputWeights, float[] inputBias, float[] outputWeights, float outputBias)
+    {
+        if (inputWeights.length != INPUTS * HIDDEN || inputBias.length != HIDDEN || outputWeights.length != HIDDEN)
+        {
+            throw new IllegalArgumentException("expected " + INPUTS + " x " + HIDDEN + " input weights and "
+                    + HIDDEN + " biases and output weights");
+        }
+        this.inputWeights = inputWeights.clone();
+        this.inputBias = inputBias.clone();
+        this.outputWeights = outputWeights.clone();
+        this.outputBias = outputBias;
+    }
+
+    /**
+     * Returns the input feature of a piece.
+     * @param square the CompactBoard square the piece is on
+     * @param dark whether the piece is dark
+     * @param king whether the piece is a king
+     * @return the feature index, below INPUTS
+     */
+    public static int feature(int square, boolean dark, boolean king)
+    {
+        return ((dark ? 0 : 2) + (king ? 1 : 0)) * CompactBoard.SQUARES + square;
+    }
+
+    /**
+     * Builds a network that gives the same scores as a hand-written evaluator, as a starting point for training.
+     * Every feature of Evaluator is a sum over pieces, so one accumulator value adds up dark's pieces and another
+     * light's, and the output takes their difference. The other accumulator values start with no weight.
+     * @param evaluator the evaluator to copy
+     * @return the network
+     */
+    public static NnueNetwork fromEvaluator(Evaluator evaluator)
+    {
+        float[] inputWeights = new float[INPUTS * HIDDEN];
+        float[] inputBias = new float[HIDDEN];
+        float[] outputWeights = new float[HIDDEN];
+        for (int sq = 0; sq < CompactBoard.SQUARES; sq++)
+        {
+            for (int kind = 0; kind < 4; kind++)
+            {
+                boolean dark = kind < 2, king = (kind & 1) != 0;
+
+                // the score of a board holding just this piece is the piece's share of any score
+                char[] text = "................................................................".toCharArray();
+                text[CompactBoard.y(sq) * 8 + CompactBoard.x(sq)] = "dDlL".charAt(kind);
+                int score = evaluator.evaluate(CompactBoard.fromText(new String(text), true));
+                int row = feature(sq, dark, king) * HIDDEN;
+                inputWeights[row + (dark ? 0 : 1)] = (dark ? score : -score) / LINEAR_SCALE;
+            }
+        }
+        inputBias[0] = LINEAR_OFFSET / LINEAR_SCALE;
+        inputBias[1] = LINEAR_OFFSET / LINEAR_SCALE;
+        outputWeights[0] = LINEAR_SCALE;
+        outputWeights[1] = -LINEAR_SCALE;
+        return new NnueNetwork(inputWeights, inputBias, outputWeights, 0);
+    }
+
+    /**
+     * Reads a network written by save.
+     * @param file the file to read
+     * @return the network
+     * @throws IOException if the file cannot be read or is not a network of this shape
+     */
+    public static NnueNetwork load(Path file) throws IOException
+    {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file))))
+        {
+            if (in.readInt() != MAGIC || in.readInt() != INPUTS || in.readInt() != HIDDEN)
+            {
+                throw new IOException(file + " is not a " + INPUTS + " x " + HIDDEN + " network");
+            }
+            float[] inputWeights = readFloats(in, INPUTS * HIDDEN);
+            float[] inputBias = readFloats(in, HIDDEN);
+            float[] outputWeights = readFloats(in, HIDDEN);
+            return new NnueNetwork(inputWeights, inputBias, outputWeights, in.readFloat());
+        }
+    }
+
+    /**
+     * Writes the network to a file that load can read.
+     * @param file the file to write
+     * @throws IOException if the file cannot be written
+     */
+    public void save(Path file) throws IOException
+    {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file))))
+        {
+            out.writeInt(MAGIC);
+            out.writeInt(INPUTS);
+            out.writeInt(HIDDEN);
+            writeFloats(out, inputWeights);
+            writeFloats(out, inputBias);
+            writeFloats(out, outputWeights);
+            out.writeFloat(outputBias);
+        }
+    }
+
+    /**
+     * Reads a number of floats.
+     * @param in the stream to read from
+     * @param count how many to read
+     * @return the floats
+     * @throws IOException if the stream cannot be read
+     */
+    private static float[] readFloats(DataInputStream in, int count) throws IOException
+    {
+        float[] values = new float[count];
+        for (int i = 0; i < count; i++)
+        {
+            values[i] = in.readFloat();
+        }
+        return values;
+    }
+
+    /**
+     * Writes an array of floats.
+     * @param out the stream to write to
+     * @param values the floats
+     * @throws IOException if the stream cannot be written
+     */
+    private static void writeFloats(DataOutputStream out, float[] values) throws IOException
+    {
+        for (float value : values)
+        {
+            out.writeFloat(value);
+        }
+    }
+}
@@ -1,10 +1,7 @@
 package com.kw.checkersgame;
 
-import javafx.scene.canvas.GraphicsContext;
-import javafx.scene.paint.Color;
-
 /**
- * This class stores information for pieces and draws them.
+ * This class stores information for pieces. BoardRenderer draws them.
  */
 public class Piece
 {
@@ -95,54 +92,4 @@ public class Piece
     {
         king = k;
     }
-
-    /**
-     * Draws the piece in a given position.
-     * @param gc GraphicsContext that the piece will be in
-     * @param x logical x-coordinate of the piece on the board
-     * @param y logical y-coordinate of the piece on the board
-     */
-    public void draw(GraphicsContext gc, double x, double y)
-    {
-        if (empty)
-        {
-            return;
-        }
-
-        // sets fill color and fills oval
-        if (dark)
-        {
-            gc.setFill(Color.LIGHTCORAL);
-        }
-        if (!dark)
-        {
-            gc.setFill(Color.WHITE);
-        }
-        gc.fillOval(x + 0.1 * 50, y + 0.1 * 50, 40, 40);
-
-
-        // sets stroke color and fills stroke
-        if (dark)
-        {
-            gc.setStroke(Color.DARKRED);
-            gc.strokeOval(x + 0.1 * 50, y + 0.1 * 50, 40, 40);
-        }
-        if (!dark)
-        {
-            gc.setStroke(Color.DARKGREEN);
-            gc.strokeOval(x + 0.1 * 50, y + 0.1 * 50, 40, 40);
-        }
-
-        gc.setFill(Color.DARKGREEN);
-
-        // sets fill for kings
-        if (dark)
-        {
-            gc.setFill(Color.DARKRED);
-        }
-        if (king)
-        {
-            gc.fillText("K", x + 0.3 * 50, y + 0.7 * 50);
-        }
-    }
 }
@@ -0,0 +1,126 @@
+package com.kw.checkersgame;
+
+import javafx.scene.Scene;
+import javafx.scene.SnapshotParameters;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.transform.Transform;
+import javafx.stage.Window;
+
+/**
+ * This class keeps the four piece pictures (dark or light, man or king) drawn once as images.
+ * Pictures are drawn at the screen's output scale so they stay sharp, and are redrawn only when that
+ * scale or the colour theme changes. It must be used on the JavaFX application thread.
+ */
+public final class PieceSprites {
+    /** Width and height of a square, in logical pixels. */
+    public static final double SIZE = 50;
+
+    private static final Image[] SPRITES = new Image[4];
+    private static double spriteScale = 1;
+    private static Color darkFill = Color.LIGHTCORAL, darkStroke = Color.DARKRED;
+    private static Color lightFill = Color.WHITE, lightStroke = Color.DARKGREEN;
+
+    /**
+     * The class only has static methods.
+     */
+    private PieceSprites()
+    {
+    }
+
+    /**
+     * Returns the picture of a piece, drawing it first if it is not cached at this scale.
+     * @param dark whether the piece is dark
+     * @param king whether the piece is a king
+     * @param scale the output scale of the screen, 1 for ordinary displays
+     * @return the picture, SIZE logical pixels wide at the given scale
+     */
+    public static Image get(boolean dark, boolean king, double scale)
+    {
+        if (scale != spriteScale)
+        {
+            invalidate();
+            spriteScale = scale;
+        }
+        int index = (dark ? 2 : 0) | (king ? 1 : 0);
+        if (SPRITES[index] == null)
+        {
+            SPRITES[index] = render(dark, king, scale);
+        }
+        return SPRITES[index];
+    }
+
+    /**
+     * Returns the output scale of the screen a GraphicsContext is shown on.
+     * @param gc the GraphicsContext being drawn on
+     * @return the output scale, or 1 if the canvas is not on screen yet
+     */
+    public static double outputScale(GraphicsContext gc)
+    {
+        Scene scene = gc.getCanvas().getScene();
+        Window window = scene == null ? null : scene.getWindow();
+        return window == null ? 1 : window.getOutputScaleX();
+    }
+
+    /**
+     * Changes the piece colours and throws the cached pictures away.
+     * @param newDarkFill the fill of dark pieces
+     * @param newDarkStroke the outline and king letter of dark pieces
+     * @param newLightFill the fill of light pieces
+     * @param newLightStroke the outline and king letter of light pieces
+     */
+    public static void setTheme(Color newDarkFill, Color newDarkStroke, Color newLightFill, Color newLightStroke)
+    {
+        darkFill = newDarkFill;
+        darkStroke = newDarkStroke;
+        lightFill = newLightFill;
+        lightStroke = newLightStroke;
+        invalidate();
+    }
+
+    /**
+     * Throws the cached pictures away so they are drawn again on next use.
+     */
+    public static void invalidate()
+    {
+        for (int i = 0; i < SPRITES.length; i++)
+        {
+            SPRITES[i] = null;
+        }
+    }
+
+    /**
+     * Draws one piece picture onto a transparent image.
+     * @param dark whether the piece is dark
+     * @param king whether the piece is a king
+     * @param scale the output scale to draw at
+     * @return the picture
+     */
+    private static WritableImage render(boolean dark, boolean king, double scale)
+    {
+        Canvas canvas = new Canvas(SIZE, SIZE);
+        GraphicsContext gc = canvas.getGraphicsContext2D();
+
+        gc.setFill(dark ? darkFill : lightFill);
+        gc.fillOval(0.1 * SIZE, 0.1 * SIZE, 40, 40);
+        gc.setStroke(dark ? darkStroke : lightStroke);
+        gc.strokeOval(0.1 * SIZE, 0.1 * SIZE, 40, 40);
+
+        if (king)
+        {
+            gc.setFont(new Font("Verdana", 27));
+            gc.setFill(dark ? darkStroke : lightStroke);
+            gc.fillText("K", 0.3 * SIZE, 0.7 * SIZE);
+        }
+
+        SnapshotParameters params = new SnapshotParameters();
+        params.setFill(Color.TRANSPARENT);
+        params.setTransform(Transform.scale(scale, scale));
+        int pixels = (int) Math.ceil(SIZE * scale);
+        return canvas.snapshot(params, new WritableImage(pixels, pixels));
+    }
+}
@@ -1,16 +1,22 @@
 package com.kw.checkersgame;
 
-import java.util.ArrayList;
+import java.util.AbstractList;
 import java.util.List;
 
 /**
- * This class stores x and y coordinates, known as positions.
- * A position may have a route associated with it, which is a list of positions that lead to that position.
- * This class has methods for obtaining, calculating, and manipulating positions.
+ * This class is a move destination: a square, known as a position, with the route that leads to it.
+ * The route is the squares passed on the way, ending with the square the piece starts on. It is packed into a
+ * single long at 5 bits per playable square, with a bitmask of the captured squares beside it, so a move is one
+ * small object however long its route.
  */
 public class Position {
-    private int x, y;
-    private List<Position> route;
+    private static final int STEP_BITS = 5;
+    private static final int STEP_MASK = (1 << STEP_BITS) - 1;
+    private static final int MAX_ROUTE = Long.SIZE / STEP_BITS;
+
+    private final Square square;
+    private long route;
+    private int routeLength, captured;
 
     /**
      * Constructs a position based on given x and y coordinates.
@@ -19,10 +25,16 @@ public class Position {
      */
     public Position(int x, int y)
     {
-        // sorry, had to use the 'this' keyword :( not many ways to shorten x or y
-        this.x = x;
-        this.y = y;
+        this(Square.of(x, y));
+    }
 
+    /**
+     * Constructs a position on a square, with no route.
+     * @param square the square of the new position
+     */
+    public Position(Square square)
+    {
+        this.square = square;
     }
 
     /**
@@ -31,57 +43,53 @@ public class Position {
      */
     public Position(Position pos)
     {
-        x = pos.x;
-        y = pos.y;
-        if (pos.route != null)
-        {
-            route = new ArrayList<>(pos.route);
-        }
+        square = pos.square;
+        route = pos.route;
+        routeLength = pos.routeLength;
+        captured = pos.captured;
     }
 
     /**
-     * Calculates a new position based on shifts being added to x and y.
-     * @param addX the shift being added to the x coordinate
-     * @param addY the shift being added to the y coordinate
-     * @return the new, shifted position
+     * Adds a square to the route.
+     * @param step the square to be added to the route, which must be a playable square
      */
-    public Position shift(int addX, int addY)
+    public void addToRoute(Square step)
     {
-        return new Position(x + addX, y + addY);
+        if (step.playableIndex() < 0 || routeLength == MAX_ROUTE)
+        {
+            throw new IllegalArgumentException("cannot add " + step + " to a route of length " + routeLength);
+        }
+        route |= (long) step.playableIndex() << (STEP_BITS * routeLength);
+        routeLength++;
     }
 
     /**
-     * Calculates the position between two positions by finding the average.
-     * @param avgX the x coordinate of the position we want to average our current position with
-     * @param avgY the y coordinate of the position we want to average our current position with
-     * @return the average between the current and given positions, a.k.a the piece in between the two positions
+     * Adds a square whose piece is jumped to the route.
+     * @param step the square of the captured piece
      */
-    public Position average(int avgX, int avgY)
+    public void addCaptureToRoute(Square step)
     {
-        return new Position ((x + avgX) / 2, (y + avgY) / 2);
+        addToRoute(step);
+        captured |= 1 << step.playableIndex();
     }
 
-
     /**
-     * Adds a position to the route.
-     * @param step the position to be added to the route
+     * Returns one square of the route.
+     * @param i the place of the square in the route, from 0
+     * @return the square
      */
-    public void addToRoute(Position step)
+    public Square getRouteStep(int i)
     {
-        if (route == null)
-        {
-            route = new ArrayList<>();
-        }
-        route.add(step);
+        return Square.ofPlayable((int) (route >>> (STEP_BITS * i)) & STEP_MASK);
     }
 
     /**
      * Returns the last position saved in a route, which is the position that is about to move.
      * @return - piece that is about to move
      */
-    public Position getLastInRoute()
+    public Square getLastInRoute()
     {
-        return route.get(route.size() - 1);
+        return getRouteStep(routeLength - 1);
     }
 
     /**
@@ -90,24 +98,42 @@ public class Position {
      */
     public int routeLength()
     {
-        if (route == null)
-        {
-            return 0;
-        }
-        else return route.size();
+        return routeLength;
     }
 
     /**
-     * Returns the route of a position.
+     * Returns the route of a position as a list, for iterating over it.
+     * The list reads the packed route directly and cannot be changed.
      * @return the route of a pos
      */
-    public List<Position> getRoute()
+    public List<Square> getRoute()
     {
-        if (route == null)
-        {
-            return new ArrayList<>();
-        }
-        return route;
+        return new AbstractList<>() {
+            @Override
+            public Square get(int i)
+            {
+                if (i < 0 || i >= routeLength)
+                {
+                    throw new IndexOutOfBoundsException(i);
+                }
+                return getRouteStep(i);
+            }
+
+            @Override
+            public int size()
+            {
+                return routeLength;
+            }
+        };
+    }
+
+    /**
+     * Returns the squares whose pieces this move captures.
+     * @return a bitmask with bit n set for playable square n, as used by CompactBoard
+     */
+    public int getCapturedMask()
+    {
+        return captured;
     }
 
     /**
@@ -116,7 +142,7 @@ public class Position {
      */
     public int getX()
     {
-        return x;
+        return square.getX();
     }
 
     /**
@@ -125,7 +151,7 @@ public class Position {
      */
     public int getY()
     {
-        return y;
+        return square.getY();
     }
 
     /**
@@ -134,6 +160,25 @@ public class Position {
      */
     public boolean inBounds()
     {
-        return x >= 0 && y >= 0 && x < 8 && y < 8;
+        return square.inBounds();
+    }
+
+    /**
+     * Returns whether a position is on a board of a given shape.
+     * @param geometry the board's geometry
+     * @return true if a position is in bounds, false otherwise
+     */
+    public boolean inBounds(BoardGeometry geometry)
+    {
+        return square.inBounds(geometry);
+    }
+
+    /**
+     * Returns the square of a position.
+     * @return the shared square at the position's coordinates
+     */
+    public Square getSquare()
+    {
+        return square;
     }
 }
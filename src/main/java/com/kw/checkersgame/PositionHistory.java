@@ -0,0 +1,279 @@
+package com.kw.checkersgame;
+
+import java.util.Arrays;
+
+/**
+ * This class remembers the hashes of the positions in a game, to find draws by repetition or lack of progress.
+ * Hashes are kept on a stack so moves can be taken back, and an open-addressed table counts how often each
+ * hash is on the stack, so every push, pop and draw check is O(1) amortized and cheap enough for searches.
+ */
+public final class PositionHistory {
+    /** Number of times a position must occur to be a draw. */
+    public static final int REPETITIONS_FOR_DRAW = 3;
+
+    /** Default number of plies without a capture or man move before the game is drawn (40 moves each). */
+    public static final int DEFAULT_NO_PROGRESS_LIMIT = 80;
+
+    private final int noProgressLimit;
+
+    // stack of pushed hashes, with the no-progress count reached at each of them
+    private long[] hashes;
+    private int[] quietPlies;
+    private int size;
+
+    // open-addressed hash -> occurrences table; slots whose count drops to zero keep their key until a resize
+    private long[] keys;
+    private int[] counts;
+
+    // the slots given a key since the table was last rebuilt or cleared, the first used of them being in use
+    private int[] claimed;
+    private int used;
+
+    /**
+     * Creates an empty history with the default no-progress limit.
+     */
+    public PositionHistory()
+    {
+        this(DEFAULT_NO_PROGRESS_LIMIT);
+    }
+
+    /**
+     * Creates an empty history.
+     * @param noProgressLimit plies without a capture or man move before the game is drawn, 0 to turn the rule off
+     */
+    public PositionHistory(int noProgressLimit)
+    {
+        this.noProgressLimit = noProgressLimit;
+        hashes = new long[64];
+        quietPlies = new int[64];
+        keys = new long[128];
+        counts = new int[128];
+        claimed = new int[64];
+    }
+
+    /**
+     * Makes a copy of a given history, which can then be extended without changing the original.
+     * @param h the history to make a copy of
+     */
+    public PositionHistory(PositionHistory h)
+    {
+        noProgressLimit = h.noProgressLimit;
+        hashes = h.hashes.clone();
+        quietPlies = h.quietPlies.clone();
+        size = h.size;
+        keys = h.keys.clone();
+        counts = h.counts.clone();
+        claimed = h.claimed.clone();
+        used = h.used;
+    }
+
+    /**
+     * Removes every position from the history.
+     */
+    public void clear()
+    {
+        // only claimed slots can be in use, including those of popped hashes no longer on the stack,
+        // so clearing costs O(claimed slots), not O(table)
+        for (int j = 0; j < used; j++)
+        {
+            keys[claimed[j]] = 0;
+            counts[claimed[j]] = 0;
+        }
+        size = 0;
+        used = 0;
+    }
+
+    /**
+     * Adds the position reached by a move.
+     * @param hash the hash of the new position
+     * @param irreversible whether the move leading to it was a capture or man move, which resets the no-progress count
+     */
+    public void push(long hash, boolean irreversible)
+    {
+        if (size == hashes.length)
+        {
+            hashes = Arrays.copyOf(hashes, size * 2);
+            quietPlies = Arrays.copyOf(quietPlies, size * 2);
+        }
+        hashes[size] = hash;
+        quietPlies[size] = irreversible || size == 0 ? 0 : quietPlies[size - 1] + 1;
+        size++;
+
+        // slot may resize the table, so it is looked up before the counts array is read
+        int i = slot(hash);
+        counts[i]++;
+    }
+
+    /**
+     * Removes the most recently added position, undoing its push.
+     */
+    public void pop()
+    {
+        size--;
+        counts[slot(hashes[size])]--;
+    }
+
+    /**
+     * Returns how many times a position occurs in the history.
+     * @param hash the hash of the position
+     * @return the number of occurrences
+     */
+    public int occurrences(long hash)
+    {
+        int mask = keys.length - 1;
+        for (int i = mix(hash) & mask; counts[i] != 0 || keys[i] != 0; i = (i + 1) & mask)
+        {
+            if (keys[i] == hash)
+            {
+                return counts[i];
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Returns whether the latest position has occurred often enough to be a draw.
+     * @return true if the latest position is a repetition draw, false otherwise
+     */
+    public boolean isRepetitionDraw()
+    {
+        return size > 0 && occurrences(hashes[size - 1]) >= REPETITIONS_FOR_DRAW;
+    }
+
+    /**
+     * Returns whether the no-progress limit has been reached.
+     * @return true if the game is drawn by the no-progress rule, false otherwise
+     */
+    public boolean isNoProgressDraw()
+    {
+        return noProgressLimit > 0 && getNoProgressPlies() >= noProgressLimit;
+    }
+
+    /**
+     * Returns whether the latest position is a draw by either rule.
+     * @return true if the game is drawn, false otherwise
+     */
+    public boolean isDraw()
+    {
+        return isNoProgressDraw() || isRepetitionDraw();
+    }
+
+    /**
+     * Returns the number of plies since the last capture or man move.
+     * @return the no-progress ply count
+     */
+    public int getNoProgressPlies()
+    {
+        return size == 0 ? 0 : quietPlies[size - 1];
+    }
+
+    /**
+     * Returns the number of plies without a capture or man move after which the game is drawn.
+     * @return the no-progress limit, or 0 if the rule is off
+     */
+    public int getNoProgressLimit()
+    {
+        return noProgressLimit;
+    }
+
+    /**
+     * Returns the number of positions in the history.
+     * @return the number of pushed positions
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Returns the hash of a position in the history.
+     * @param ply the index of the position, 0 being the first pushed
+     * @return the hash of that position
+     */
+    public long get(int ply)
+    {
+        return hashes[ply];
+    }
+
+    /**
+     * Finds the table slot of a hash, claiming an empty slot for it if it is not in the table yet.
+     * @param hash the position hash
+     * @return the index of its slot
+     */
+    private int slot(long hash)
+    {
+        int mask = keys.length - 1;
+        int i = mix(hash) & mask;
+        while (counts[i] != 0 || keys[i] != 0)
+        {
+            if (keys[i] == hash)
+            {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+
+        // keep the table at most half full, counting slots left behind by popped positions
+        if (used * 2 >= keys.length)
+        {
+            resize();
+            return slot(hash);
+        }
+        keys[i] = hash;
+        claimed[used++] = i;
+        return i;
+    }
+
+    /**
+     * Rebuilds the table, dropping slots whose count went back to zero and growing it if it is still busy.
+     */
+    private void resize()
+    {
+        long[] oldKeys = keys;
+        int[] oldCounts = counts;
+        int live = 0;
+        for (int c : oldCounts)
+        {
+            if (c != 0)
+            {
+                live++;
+            }
+        }
+
+        int capacity = oldKeys.length;
+        while (live * 4 >= capacity)
+        {
+            capacity *= 2;
+        }
+        keys = new long[capacity];
+        counts = new int[capacity];
+        claimed = new int[capacity / 2];
+        used = 0;
+
+        int mask = capacity - 1;
+        for (int j = 0; j < oldKeys.length; j++)
+        {
+            if (oldCounts[j] != 0)
+            {
+                int i = mix(oldKeys[j]) & mask;
+                while (counts[i] != 0)
+                {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                counts[i] = oldCounts[j];
+                claimed[used++] = i;
+            }
+        }
+    }
+
+    /**
+     * Folds a 64-bit hash into a table index.
+     * @param hash the position hash
+     * @return well-mixed low bits of the hash
+     */
+    private static int mix(long hash)
+    {
+        return (int) (hash ^ (hash >>> 32));
+    }
+}
@@ -0,0 +1,655 @@
+package com.kw.checkersgame;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * This class answers "which stored games reached this position, and how did they end?" from an index file built
+ * once from a GameArchive. Every game is replayed through Logic, every position it reaches is hashed as by
+ * CompactBoard.hash, and the file lists the distinct hashes in sorted order, each with the ids of the games that
+ * reached it and how many of those dark won, light won and drew. A game's id is its place in the archive, from 0.
+ * <p>
+ * Building replays one chunk of games at a time on every core, sorts the chunk's positions and writes them to a
+ * temporary run file, then merges the runs into the index, so archives far larger than memory can be indexed.
+ * A lookup is a binary search over the file's sorted hashes with a few small reads, which the operating system
+ * keeps cached, so it takes well under a millisecond. Any number of threads may look up positions in one instance.
+ * <pre>
+ * build ARCHIVE INDEX [CHUNK]        indexes an archive, replaying CHUNK games at a time
+ * query INDEX [moves m...]           prints what the index knows about the position after the moves
+ * </pre>
+ */
+public final class PositionIndex implements AutoCloseable {
+    /** System property naming an index file for the game and the engine protocol to look positions up in. */
+    public static final String INDEX_PROPERTY = "checkers.index";
+
+    // "CHKINDEX" in ASCII
+    private static final long MAGIC = 0x4348_4B49_4E44_4558L;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 64;
+    private static final int KEY_BYTES = 32;
+    private static final int DEFAULT_CHUNK_GAMES = 50_000;
+
+    // result codes kept in the low bits of each game's entry while building
+    private static final int DARK_WINS = 0, LIGHT_WINS = 1, DRAWS = 2;
+
+    private final FileChannel channel;
+    private final long games, positions, postings, keysOffset;
+
+    /**
+     * Opens an index file written by build.
+     * @param file the index
+     * @throws IOException if the file cannot be opened or is not an index
+     */
+    public PositionIndex(Path file) throws IOException
+    {
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        try
+        {
+            ByteBuffer header = read(0, HEADER_BYTES);
+            if (header.getLong(0) != MAGIC || header.getInt(8) != VERSION)
+            {
+                throw new IOException(file + " is not a version " + VERSION + " position index");
+            }
+            games = header.getLong(16);
+            positions = header.getLong(24);
+            postings = header.getLong(32);
+            keysOffset = header.getLong(40);
+            if (channel.size() < keysOffset + positions * KEY_BYTES)
+            {
+                throw new IOException(file + " is cut short");
+            }
+        }
+        catch (IOException | RuntimeException e)
+        {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Opens the index named by the checkers.index system property, if it is set.
+     * @return the index, or null if the property is not set
+     * @throws UncheckedIOException if the property is set and the file cannot be opened
+     */
+    public static PositionIndex configured()
+    {
+        String file = System.getProperty(INDEX_PROPERTY);
+        if (file == null)
+        {
+            return null;
+        }
+        try
+        {
+            return new PositionIndex(Path.of(file));
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException("cannot open position index " + file, e);
+        }
+    }
+
+    /**
+     * Looks up a position.
+     * @param b the position
+     * @return what the index knows about it; an entry with no games if no stored game reached it
+     * @throws IOException if the file cannot be read
+     */
+    public Entry lookup(CompactBoard b) throws IOException
+    {
+        return lookup(b.hash());
+    }
+
+    /**
+     * Looks up a position by its hash.
+     * @param hash the position hash, as by CompactBoard.hash
+     * @return what the index knows about it; an entry with no games if no stored game reached it
+     * @throws IOException if the file cannot be read
+     */
+    public Entry lookup(long hash) throws IOException
+    {
+        // the hashes are sorted as unsigned numbers
+        long low = 0, high = positions - 1;
+        while (low <= high)
+        {
+            long middle = (low + high) >>> 1;
+            ByteBuffer key = read(keysOffset + middle * KEY_BYTES, KEY_BYTES);
+            int order = Long.compareUnsigned(key.getLong(0), hash);
+            if (order < 0)
+            {
+                low = middle + 1;
+            }
+            else if (order > 0)
+            {
+                high = middle - 1;
+            }
+            else
+            {
+                return new Entry(hash, key.getLong(8), key.getInt(16), key.getInt(20), key.getInt(24));
+            }
+        }
+        return new Entry(hash, 0, 0, 0, 0);
+    }
+
+    /**
+     * Returns the ids of the first games that reached a position, in archive order.
+     * @param entry the position, as found by lookup
+     * @param limit the most ids wanted
+     * @return the game ids
+     * @throws IOException if the file cannot be read
+     */
+    public int[] gameIds(Entry entry, int limit) throws IOException
+    {
+        int count = (int) Math.min(limit, entry.getGames());
+        int[] ids = new int[count];
+        if (count > 0)
+        {
+            read(HEADER_BYTES + entry.first * Integer.BYTES, count * Integer.BYTES).asIntBuffer().get(ids);
+        }
+        return ids;
+    }
+
+    /**
+     * Reads part of the file. Positional reads leave the channel's own position alone, so threads do not interfere.
+     * @param position where to start
+     * @param length the number of bytes
+     * @return the bytes, from index 0
+     * @throws IOException if the file ends first or cannot be read
+     */
+    private ByteBuffer read(long position, int length) throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining())
+        {
+            if (channel.read(buffer, position + buffer.position()) < 0)
+            {
+                throw new EOFException();
+            }
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * Returns the number of games indexed.
+     * @return the game count
+     */
+    public long getGames()
+    {
+        return games;
+    }
+
+    /**
+     * Returns the number of distinct positions indexed.
+     * @return the position count
+     */
+    public long getPositions()
+    {
+        return positions;
+    }
+
+    /**
+     * Returns the number of times any game reached any position, counting each position once per game.
+     * @return the posting count
+     */
+    public long getPostings()
+    {
+        return postings;
+    }
+
+    /**
+     * Closes the file.
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException
+    {
+        channel.close();
+    }
+
+    /**
+     * What the index knows about one position.
+     */
+    public static final class Entry {
+        private final long hash, first;
+        private final int darkWins, lightWins, draws;
+
+        /**
+         * Creates an entry.
+         * @param hash the position hash
+         * @param first where the position's game ids start among all the game ids
+         * @param darkWins the number of its games dark won
+         * @param lightWins the number of its games light won
+         * @param draws the number of its games drawn
+         */
+        Entry(long hash, long first, int darkWins, int lightWins, int draws)
+        {
+            this.hash = hash;
+            this.first = first;
+            this.darkWins = darkWins;
+            this.lightWins = lightWins;
+            this.draws = draws;
+        }
+
+        /**
+         * Returns the position hash.
+         * @return the hash
+         */
+        public long getHash()
+        {
+            return hash;
+        }
+
+        /**
+         * Returns the number of stored games that reached the position.
+         * @return the game count
+         */
+        public long getGames()
+        {
+            return (long) darkWins + lightWins + draws;
+        }
+
+        /**
+         * Returns the number of those games dark won.
+         * @return the count
+         */
+        public int getDarkWins()
+        {
+            return darkWins;
+        }
+
+        /**
+         * Returns the number of those games light won.
+         * @return the count
+         */
+        public int getLightWins()
+        {
+            return lightWins;
+        }
+
+        /**
+         * Returns the number of those games that were drawn.
+         * @return the count
+         */
+        public int getDraws()
+        {
+            return draws;
+        }
+
+        /**
+         * Returns the entry as "games G dark D light L draw R".
+         * @return the text
+         */
+        @Override
+        public String toString()
+        {
+            return "games " + getGames() + " dark " + darkWins + " light " + lightWins + " draw " + draws;
+        }
+    }
+
+    /**
+     * Indexes an archive, replaying each chunk of games on every core.
+     * @param archive the archive to read
+     * @param index the index file to write
+     * @param chunkGames the number of games replayed and sorted in memory at a time
+     * @return the number of games indexed
+     * @throws IOException if a file cannot be read or written
+     */
+    public static long build(Path archive, Path index, int chunkGames) throws IOException
+    {
+        Path directory = index.toAbsolutePath().getParent();
+        List<Path> runs = new ArrayList<>();
+        long games = 0;
+        try
+        {
+            try (Stream<GameArchive.Game> stream = GameArchive.read(archive))
+            {
+                Iterator<GameArchive.Game> it = stream.iterator();
+                List<GameArchive.Game> chunk = new ArrayList<>(chunkGames);
+                while (it.hasNext())
+                {
+                    chunk.add(it.next());
+                    if (chunk.size() == chunkGames || !it.hasNext())
+                    {
+                        Path run = Files.createTempFile(directory, "index-run", ".tmp");
+                        runs.add(run);
+                        writeRun(chunk, games, run);
+                        games += chunk.size();
+                        chunk.clear();
+                    }
+                }
+            }
+            merge(runs, games, index);
+        }
+        finally
+        {
+            for (Path run : runs)
+            {
+                Files.deleteIfExists(run);
+            }
+        }
+        return games;
+    }
+
+    /**
+     * Replays a chunk of games in parallel and writes their positions to a run file, sorted by hash.
+     * @param chunk the games
+     * @param firstId the id of the first game of the chunk
+     * @param run the file to write
+     * @throws IOException if the file cannot be written
+     */
+    private static void writeRun(List<GameArchive.Game> chunk, long firstId, Path run) throws IOException
+    {
+        // each game gives its position hashes in the order they were reached
+        long[][] reached = IntStream.range(0, chunk.size()).parallel()
+                .mapToObj(i -> positionsOf(chunk.get(i)))
+                .toArray(long[][]::new);
+        int total = 0;
+        for (long[] hashes : reached)
+        {
+            total += hashes.length;
+        }
+
+        // the entry beside each hash is the game id and result code, filled in game order, so sorting by hash
+        // alone keeps each hash's games in archive order
+        long[] hashes = new long[total], entries = new long[total];
+        int n = 0;
+        for (int g = 0; g < reached.length; g++)
+        {
+            long entry = (firstId + g) << 2 | resultCode(chunk.get(g).getResult());
+            for (long hash : reached[g])
+            {
+                hashes[n] = hash;
+                entries[n++] = entry;
+            }
+        }
+        sort(hashes, entries);
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run), 1 << 16)))
+        {
+            out.writeInt(total);
+            for (int i = 0; i < total; i++)
+            {
+                out.writeLong(hashes[i]);
+                out.writeLong(entries[i]);
+            }
+        }
+    }
+
+    /**
+     * Replays a game through Logic and hashes every position it reaches.
+     * @param game the game
+     * @return the hashes, in the order they were reached
+     */
+    private static long[] positionsOf(GameArchive.Game game)
+    {
+        long[] hashes = new long[game.moveCount() + 1];
+        int count = game.replay((logic, ply) -> hashes[ply] = CompactBoard.fromLogic(logic).hash());
+        return Arrays.copyOf(hashes, count + 1);
+    }
+
+    /**
+     * Returns the code kept for a game's result while building.
+     * @param result GameArchive.DARK, LIGHT or DRAW
+     * @return DARK_WINS, LIGHT_WINS or DRAWS
+     */
+    private static int resultCode(String result)
+    {
+        return result.equals(GameArchive.DARK) ? DARK_WINS : result.equals(GameArchive.LIGHT) ? LIGHT_WINS : DRAWS;
+    }
+
+    /**
+     * Sorts hashes as unsigned numbers, moving each entry with its hash. The sort is stable: a radix sort
+     * on 16 bits at a time, which beats comparing pairs for the millions of positions in a chunk.
+     * @param hashes the hashes
+     * @param entries the entries beside them
+     */
+    private static void sort(long[] hashes, long[] entries)
+    {
+        int n = hashes.length;
+        long[] hashesTo = new long[n], entriesTo = new long[n];
+        int[] counts = new int[1 << 16];
+        for (int shift = 0; shift < Long.SIZE; shift += 16)
+        {
+            Arrays.fill(counts, 0);
+            for (long hash : hashes)
+            {
+                counts[(int) (hash >>> shift) & 0xFFFF]++;
+            }
+            for (int i = 0, sum = 0; i < counts.length; i++)
+            {
+                int count = counts[i];
+                counts[i] = sum;
+                sum += count;
+            }
+            for (int i = 0; i < n; i++)
+            {
+                int at = counts[(int) (hashes[i] >>> shift) & 0xFFFF]++;
+                hashesTo[at] = hashes[i];
+                entriesTo[at] = entries[i];
+            }
+            long[] swap = hashes;
+            hashes = hashesTo;
+            hashesTo = swap;
+            swap = entries;
+            entries = entriesTo;
+            entriesTo = swap;
+        }
+        // four passes leave the sorted data back in the arrays passed in
+    }
+
+    /**
+     * One run file being merged, positioned at its next position.
+     */
+    private static final class Run {
+        private final DataInputStream in;
+        private final int order;
+        private int left;
+        private long hash, entry;
+
+        /**
+         * Opens a run file at its first position.
+         * @param file the run file
+         * @param order the run's place among the runs, which keeps games in archive order when hashes tie
+         * @throws IOException if the file cannot be read
+         */
+        Run(Path file, int order) throws IOException
+        {
+            InputStream stream = Files.newInputStream(file);
+            in = new DataInputStream(new BufferedInputStream(stream, 1 << 16));
+            this.order = order;
+            left = in.readInt();
+        }
+
+        /**
+         * Moves to the next position.
+         * @return false if the run has no more positions
+         * @throws IOException if the file cannot be read
+         */
+        boolean next() throws IOException
+        {
+            if (left == 0)
+            {
+                in.close();
+                return false;
+            }
+            left--;
+            hash = in.readLong();
+            entry = in.readLong();
+            return true;
+        }
+    }
+
+    /**
+     * Merges sorted run files into an index: the header, then every game id grouped by position, then one key
+     * per position. The keys are written to a temporary file alongside and copied on at the end, when the
+     * number of game ids is known.
+     * @param runs the run files, in archive order
+     * @param games the number of games in the archive
+     * @param index the index file to write
+     * @throws IOException if a file cannot be read or written
+     */
+    private static void merge(List<Path> runs, long games, Path index) throws IOException
+    {
+        PriorityQueue<Run> queue = new PriorityQueue<>((a, b) -> {
+            int order = Long.compareUnsigned(a.hash, b.hash);
+            return order != 0 ? order : Integer.compare(a.order, b.order);
+        });
+        Path keysFile = Files.createTempFile(index.toAbsolutePath().getParent(), "index-keys", ".tmp");
+        long positions = 0, postings = 0;
+        try
+        {
+            try (DataOutputStream ids = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(index), 1 << 16));
+                 DataOutputStream keys = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(keysFile), 1 << 16)))
+            {
+                ids.write(new byte[HEADER_BYTES]);
+                for (int i = 0; i < runs.size(); i++)
+                {
+                    Run run = new Run(runs.get(i), i);
+                    if (run.next())
+                    {
+                        queue.add(run);
+                    }
+                }
+
+                long hash = 0, first = 0, lastEntry = -1;
+                int[] results = new int[3];
+                while (!queue.isEmpty())
+                {
+                    Run run = queue.poll();
+                    if (positions == 0 || run.hash != hash)
+                    {
+                        if (positions > 0)
+                        {
+                            writeKey(keys, hash, first, results);
+                        }
+                        hash = run.hash;
+                        first = postings;
+                        lastEntry = -1;
+                        Arrays.fill(results, 0);
+                        positions++;
+                    }
+
+                    // a game that comes back to a position is counted there once
+                    if (run.entry != lastEntry)
+                    {
+                        ids.writeInt((int) (run.entry >>> 2));
+                        results[(int) run.entry & 3]++;
+                        lastEntry = run.entry;
+                        postings++;
+                    }
+                    if (run.next())
+                    {
+                        queue.add(run);
+                    }
+                }
+                if (positions > 0)
+                {
+                    writeKey(keys, hash, first, results);
+                }
+            }
+
+            try (FileChannel out = FileChannel.open(index, StandardOpenOption.WRITE);
+                 FileChannel in = FileChannel.open(keysFile, StandardOpenOption.READ))
+            {
+                long at = out.size(), size = in.size();
+                for (long copied = 0; copied < size; )
+                {
+                    copied += out.transferFrom(in, at + copied, size - copied);
+                }
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+                header.putLong(0, MAGIC).putInt(8, VERSION).putLong(16, games).putLong(24, positions)
+                        .putLong(32, postings).putLong(40, HEADER_BYTES + postings * Integer.BYTES);
+                out.write(header, 0);
+            }
+        }
+        finally
+        {
+            for (Run run : queue)
+            {
+                run.in.close();
+            }
+            Files.deleteIfExists(keysFile);
+        }
+    }
+
+    /**
+     * Writes one position's key.
+     * @param keys the stream of keys
+     * @param hash the position hash
+     * @param first where the position's game ids start
+     * @param results the number of its games dark won, light won and drew
+     * @throws IOException if the stream cannot be written
+     */
+    private static void writeKey(DataOutputStream keys, long hash, long first, int[] results) throws IOException
+    {
+        keys.writeLong(hash);
+        keys.writeLong(first);
+        keys.writeInt(results[DARK_WINS]);
+        keys.writeInt(results[LIGHT_WINS]);
+        keys.writeInt(results[DRAWS]);
+        keys.writeInt(0);
+    }
+
+    /**
+     * Builds an index or looks up a position in one.
+     * @param args "build ARCHIVE INDEX [CHUNK]" or "query INDEX [moves m...]"
+     * @throws IOException if a file cannot be read or written
+     */
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length >= 3 && args[0].equals("build"))
+        {
+            long start = System.nanoTime();
+            long games = build(Path.of(args[1]), Path.of(args[2]),
+                    args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_CHUNK_GAMES);
+            try (PositionIndex index = new PositionIndex(Path.of(args[2])))
+            {
+                System.out.printf("indexed %d games, %d positions, %d postings in %.1f s%n", games,
+                        index.getPositions(), index.getPostings(), (System.nanoTime() - start) / 1e9);
+            }
+        }
+        else if (args.length >= 2 && args[0].equals("query"))
+        {
+            Logic game = new Logic();
+            game.setOpponent();
+            for (int i = args.length > 2 && args[2].equals("moves") ? 3 : 2; i < args.length; i++)
+            {
+                int move = CompactBoard.fromLogic(game).findMove(args[i]);
+                if (move == AlphaBetaEngine.NO_MOVE || !game.playMove(move))
+                {
+                    System.out.println("illegal move " + args[i]);
+                    return;
+                }
+            }
+            try (PositionIndex index = new PositionIndex(Path.of(args[1])))
+            {
+                long start = System.nanoTime();
+                Entry entry = index.lookup(CompactBoard.fromLogic(game));
+                int[] ids = index.gameIds(entry, 20);
+                System.out.printf("%s in %d us, first games %s%n", entry, (System.nanoTime() - start) / 1000,
+                        Arrays.toString(ids));
+            }
+        }
+        else
+        {
+            System.out.println("usage: build ARCHIVE INDEX [CHUNK] | query INDEX [moves m...]");
+        }
+    }
+}
@@ -0,0 +1,365 @@
+package com.kw.checkersgame;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * This class finds tactics puzzles in stored games: positions where exactly one move is good. Every game is replayed
+ * through Logic, and a position is looked at closely only if Logic.getAvailableKills finds a capture for the side to
+ * move or a capture the other side threatens. The engine then searches its two best moves. The position is a puzzle
+ * when the best move is at least a man better than any other and either
+ * <ul>
+ * <li>wins material: the best move gains a man or more on the position's own evaluation ("win"), or</li>
+ * <li>avoids a loss: every other move loses a man or more on it ("save").</li>
+ * </ul>
+ * Games are replayed and searched on every core, a chunk at a time. Each position is kept once, from the first game
+ * that reached it, and the results do not depend on how threads were scheduled, since every search starts with an
+ * empty table. Puzzles are written one per line as Puzzle.toString gives, so the game can set them up and the
+ * "solve" command can run them as a test of the engine's speed and accuracy.
+ * <pre>
+ * mine PUZZLES DEPTH ARCHIVE...      searches the archives, or every file in archive directories, for puzzles
+ * solve PUZZLES DEPTH                searches each puzzle and reports how many were solved, and how fast
+ * </pre>
+ */
+public class PuzzleMiner {
+    /** Theme of a puzzle whose solution wins material. */
+    public static final String WIN = "win";
+    /** Theme of a puzzle whose solution is the only move that does not lose material. */
+    public static final String SAVE = "save";
+
+    // a man, in the evaluator's hundredths of a man
+    private static final int MAN = 100;
+    private static final int CHUNK_GAMES = 1000;
+
+    private final ThreadLocal<AlphaBetaEngine> engines;
+    private final int depth;
+
+    /**
+     * Creates a miner.
+     * @param depth the number of plies each position is searched to
+     */
+    public PuzzleMiner(int depth)
+    {
+        engines = ThreadLocal.withInitial(() -> new AlphaBetaEngine(Evaluator.configured(), 1 << 16));
+        this.depth = depth;
+    }
+
+    /**
+     * Finds the puzzles in one game.
+     * @param game the game
+     * @param source the archive it came from
+     * @param id its place in the archive, from 0
+     * @return the puzzles, in the order they came up
+     */
+    public List<Puzzle> mine(GameArchive.Game game, String source, long id)
+    {
+        List<Puzzle> found = new ArrayList<>();
+        int[] moves = new int[CompactBoard.MAX_MOVES];
+        game.replay((logic, ply) -> {
+            CompactBoard pos = CompactBoard.fromLogic(logic);
+            boolean dark = pos.getTurn();
+
+            // only a capture, or the threat of one, can leave a single good move
+            boolean captures = !logic.getAvailableKills(dark).isEmpty();
+            boolean threatened = !logic.getAvailableKills(!dark).isEmpty();
+            if ((!captures && !threatened) || pos.isTie() || pos.generateMoves(moves) < 2)
+            {
+                return;
+            }
+
+            AlphaBetaEngine engine = engines.get();
+            engine.clearTable();
+            SearchInfo[] lines = engine.analyze(pos, new PositionHistory(logic.getHistory()), 2, null, depth, null);
+            if (lines.length < 2)
+            {
+                return;
+            }
+            int best = lines[0].getScore(), second = lines[1].getScore();
+            int now = engine.getEvaluator().evaluate(pos);
+            if (best - second < MAN)
+            {
+                return;
+            }
+            String theme = null;
+            if (captures && best - now >= MAN)
+            {
+                theme = WIN;
+            }
+            else if (threatened && now - second >= MAN && now - best < MAN)
+            {
+                theme = SAVE;
+            }
+            if (theme != null)
+            {
+                found.add(new Puzzle(pos, lines[0].getMove(), theme, best, best - second, source, id, ply));
+            }
+        });
+        return found;
+    }
+
+    /**
+     * Mines archives into a puzzle file, replaying a chunk of games at a time on every core.
+     * Positions already found in an earlier game are left out.
+     * @param archives the archives, in order
+     * @param puzzles the file to write
+     * @return the number of puzzles written
+     * @throws IOException if a file cannot be read or written
+     */
+    public long mine(List<Path> archives, Path puzzles) throws IOException
+    {
+        Set<Long> seen = new HashSet<>();
+        long written = 0;
+        try (BufferedWriter out = Files.newBufferedWriter(puzzles, StandardCharsets.UTF_8))
+        {
+            out.write("# puzzles searched to depth " + depth + ": board side solution theme score margin source game ply\n");
+            for (Path archive : archives)
+            {
+                String source = archive.getFileName().toString();
+                try (Stream<GameArchive.Game> games = GameArchive.read(archive))
+                {
+                    Iterator<GameArchive.Game> it = games.iterator();
+                    List<GameArchive.Game> chunk = new ArrayList<>(CHUNK_GAMES);
+                    long first = 0;
+                    while (it.hasNext())
+                    {
+                        chunk.add(it.next());
+                        if (chunk.size() == CHUNK_GAMES || !it.hasNext())
+                        {
+                            long base = first;
+                            List<GameArchive.Game> batch = chunk;
+                            List<List<Puzzle>> found = IntStream.range(0, batch.size()).parallel()
+                                    .mapToObj(i -> mine(batch.get(i), source, base + i))
+                                    .toList();
+
+                            // games are gone through in archive order, so the first game to reach a position keeps it
+                            for (List<Puzzle> list : found)
+                            {
+                                for (Puzzle puzzle : list)
+                                {
+                                    if (seen.add(puzzle.getBoard().hash()))
+                                    {
+                                        out.write(puzzle + "\n");
+                                        written++;
+                                    }
+                                }
+                            }
+                            first += batch.size();
+                            chunk = new ArrayList<>(CHUNK_GAMES);
+                        }
+                    }
+                }
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Reads a puzzle file.
+     * @param file the file written by mine
+     * @return the puzzles
+     * @throws IOException if the file cannot be read
+     */
+    public static List<Puzzle> read(Path file) throws IOException
+    {
+        try (Stream<String> lines = Files.lines(file))
+        {
+            return lines.map(String::trim)
+                    .filter(line -> !line.isEmpty() && line.charAt(0) != '#')
+                    .map(Puzzle::parse)
+                    .toList();
+        }
+    }
+
+    /**
+     * One puzzle: a position, the move that solves it and where it was found.
+     */
+    public static final class Puzzle {
+        private final CompactBoard board;
+        private final int solution;
+        private final String theme;
+        private final int score, margin;
+        private final String source;
+        private final long game;
+        private final int ply;
+
+        /**
+         * Creates a puzzle.
+         * @param board the position, which is copied
+         * @param solution the only good move, encoded as in CompactBoard
+         * @param theme WIN or SAVE
+         * @param score the solution's search score, for the side to move
+         * @param margin how much better the solution scored than the next best move
+         * @param source the archive the puzzle came from
+         * @param game the game's place in the archive, from 0
+         * @param ply the number of moves played in the game before the position
+         */
+        public Puzzle(CompactBoard board, int solution, String theme, int score, int margin, String source,
+                      long game, int ply)
+        {
+            this.board = new CompactBoard(board);
+            this.solution = solution;
+            this.theme = theme;
+            this.score = score;
+            this.margin = margin;
+            this.source = source;
+            this.game = game;
+            this.ply = ply;
+        }
+
+        /**
+         * Reads a puzzle from one line of a puzzle file.
+         * @param line the line
+         * @return the puzzle
+         * @throws IllegalArgumentException if the line is not a puzzle or its solution is not a legal move
+         */
+        public static Puzzle parse(String line)
+        {
+            String[] words = line.trim().split("\\s+");
+            if (words.length != 9)
+            {
+                throw new IllegalArgumentException("not a puzzle: " + line);
+            }
+            CompactBoard board = CompactBoard.fromText(words[0], words[1].equals("dark"));
+            int solution = board.findMove(words[2]);
+            if (solution == AlphaBetaEngine.NO_MOVE)
+            {
+                throw new IllegalArgumentException("illegal solution in " + line);
+            }
+            return new Puzzle(board, solution, words[3], Integer.parseInt(words[4]), Integer.parseInt(words[5]),
+                    words[6], Long.parseLong(words[7]), Integer.parseInt(words[8]));
+        }
+
+        /**
+         * Returns the position.
+         * @return a copy of the position
+         */
+        public CompactBoard getBoard()
+        {
+            return new CompactBoard(board);
+        }
+
+        /**
+         * Returns the move that solves the puzzle.
+         * @return the move, encoded as in CompactBoard
+         */
+        public int getSolution()
+        {
+            return solution;
+        }
+
+        /**
+         * Returns what the solution achieves.
+         * @return WIN or SAVE
+         */
+        public String getTheme()
+        {
+            return theme;
+        }
+
+        /**
+         * Returns the solution's search score.
+         * @return the score for the side to move, in hundredths of a man
+         */
+        public int getScore()
+        {
+            return score;
+        }
+
+        /**
+         * Returns how much better the solution scored than the next best move.
+         * @return the margin, in hundredths of a man
+         */
+        public int getMargin()
+        {
+            return margin;
+        }
+
+        /**
+         * Returns the puzzle as "board side solution theme score margin source game ply", with the board written
+         * as by CompactBoard.toText, as EngineProtocol's "position board" reads it.
+         * @return the line, without a line break
+         */
+        @Override
+        public String toString()
+        {
+            return board.toText() + (board.getTurn() ? " dark " : " light ") + CompactBoard.moveToString(solution)
+                    + ' ' + theme + ' ' + score + ' ' + margin + ' ' + source + ' ' + game + ' ' + ply;
+        }
+    }
+
+    /**
+     * Searches every puzzle in a file with an empty table and prints how many the engine solved, and how fast.
+     * @param file the puzzle file
+     * @param depth the number of plies each puzzle is searched to
+     * @throws IOException if the file cannot be read
+     */
+    private static void solve(Path file, int depth) throws IOException
+    {
+        List<Puzzle> puzzles = read(file);
+        AlphaBetaEngine engine = new AlphaBetaEngine(Evaluator.configured(), 1 << 16);
+        int solved = 0;
+        long nodes = 0, nanos = 0;
+        for (Puzzle puzzle : puzzles)
+        {
+            engine.clearTable();
+            SearchInfo[] lines = engine.analyze(puzzle.getBoard(), null, 1, null, depth, null);
+            if (lines.length > 0 && lines[0].getMove() == puzzle.getSolution())
+            {
+                solved++;
+            }
+            nodes += engine.getNodes();
+            nanos += engine.getLastNanos();
+        }
+        System.out.printf("solved %d of %d at depth %d, %d nodes in %.1f s, %.0f nodes/s%n", solved, puzzles.size(),
+                depth, nodes, nanos / 1e9, nanos == 0 ? 0 : nodes * 1e9 / nanos);
+    }
+
+    /**
+     * Mines puzzles or tests the engine on them.
+     * @param args "mine PUZZLES DEPTH ARCHIVE..." or "solve PUZZLES DEPTH"
+     * @throws IOException if a file cannot be read or written
+     */
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length >= 4 && args[0].equals("mine"))
+        {
+            List<Path> archives = new ArrayList<>();
+            for (int i = 3; i < args.length; i++)
+            {
+                Path path = Path.of(args[i]);
+                if (Files.isDirectory(path))
+                {
+                    try (Stream<Path> files = Files.list(path))
+                    {
+                        files.filter(Files::isRegularFile).sorted().forEach(archives::add);
+                    }
+                }
+                else
+                {
+                    archives.add(path);
+                }
+            }
+            long start = System.nanoTime();
+            long written = new PuzzleMiner(Integer.parseInt(args[2])).mine(archives, Path.of(args[1]));
+            System.out.printf("wrote %d puzzles to %s in %.1f s%n", written, args[1], (System.nanoTime() - start) / 1e9);
+        }
+        else if (args.length >= 3 && args[0].equals("solve"))
+        {
+            solve(Path.of(args[1]), Integer.parseInt(args[2]));
+        }
+        else
+        {
+            System.out.println("usage: mine PUZZLES DEPTH ARCHIVE... | solve PUZZLES DEPTH");
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.kw.checkersgame;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * This Flight Recorder event is recorded for each frame BoardRenderer draws.
+ */
+@Name("com.kw.checkersgame.RenderFrame")
+@Label("Render Frame")
+@Category("Checkers")
+@Description("Drawing the squares that changed since the last frame")
+public final class RenderFrameEvent extends jdk.jfr.Event {
+    @Label("Dirty Squares")
+    int dirtySquares;
+
+    @Label("Background Drawn")
+    boolean backgroundDrawn;
+}
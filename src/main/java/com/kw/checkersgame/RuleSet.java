@@ -0,0 +1,104 @@
+package com.kw.checkersgame;
+
+/**
+ * This class is a set of draughts rules that DraughtsBoard plays by: the board geometry and the few rules in
+ * which the common variants differ. New variants are made by giving another combination, without touching the
+ * move generator.
+ */
+public final class RuleSet {
+    /** American checkers on 8*8: men capture forwards only, kings move one square, any capture may be chosen. */
+    public static final RuleSet AMERICAN = new RuleSet("american", BoardGeometry.AMERICAN, false, false, false, true);
+    /**
+     * International draughts on 10*10: men capture backwards too, kings fly along whole diagonals, the capture
+     * taking the most pieces must be chosen, and a man only becomes a king if its move ends on the last row.
+     */
+    public static final RuleSet INTERNATIONAL = new RuleSet("international", BoardGeometry.INTERNATIONAL,
+            true, true, true, false);
+
+    private final String name;
+    private final BoardGeometry geometry;
+    private final boolean menCaptureBackwards;
+    private final boolean flyingKings;
+    private final boolean majorityCapture;
+    private final boolean crowningEndsMove;
+
+    /**
+     * Creates a rule set.
+     * @param name the variant's name
+     * @param geometry the board it is played on
+     * @param menCaptureBackwards whether men may capture backwards as well as forwards
+     * @param flyingKings whether kings move and capture any distance along a diagonal
+     * @param majorityCapture whether a capture taking the most pieces must be chosen
+     * @param crowningEndsMove whether a man reaching the last row during a capture stops there as a king
+     */
+    public RuleSet(String name, BoardGeometry geometry, boolean menCaptureBackwards, boolean flyingKings,
+                   boolean majorityCapture, boolean crowningEndsMove)
+    {
+        this.name = name;
+        this.geometry = geometry;
+        this.menCaptureBackwards = menCaptureBackwards;
+        this.flyingKings = flyingKings;
+        this.majorityCapture = majorityCapture;
+        this.crowningEndsMove = crowningEndsMove;
+    }
+
+    /**
+     * Returns the variant's name.
+     * @return the name
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * Returns the board the variant is played on.
+     * @return the geometry
+     */
+    public BoardGeometry getGeometry()
+    {
+        return geometry;
+    }
+
+    /**
+     * Returns whether men may capture backwards as well as forwards.
+     * @return true if they may
+     */
+    public boolean menCaptureBackwards()
+    {
+        return menCaptureBackwards;
+    }
+
+    /**
+     * Returns whether kings move and capture any distance along a diagonal.
+     * @return true for flying kings, false for kings that move one square
+     */
+    public boolean flyingKings()
+    {
+        return flyingKings;
+    }
+
+    /**
+     * Returns whether a capture taking the most pieces must be chosen.
+     * @return true if the majority rule applies, false if any complete capture may be chosen
+     */
+    public boolean majorityCapture()
+    {
+        return majorityCapture;
+    }
+
+    /**
+     * Returns whether a man reaching the last row during a capture is crowned and stops there.
+     * @return true if crowning ends the move, false if the man captures on and is only crowned where it stops
+     */
+    public boolean crowningEndsMove()
+    {
+        return crowningEndsMove;
+    }
+
+    @Override
+    public String toString()
+    {
+        return name + " on " + geometry;
+    }
+}
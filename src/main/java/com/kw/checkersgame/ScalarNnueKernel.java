@@ -0,0 +1,42 @@
+package com.kw.checkersgame;
+
+/**
+ * This class does NNUE arithmetic one float at a time. It is the fallback when the Vector API is not available,
+ * and the reference the vector kernel is checked against.
+ */
+public final class ScalarNnueKernel implements NnueKernel {
+    @Override
+    public void add(float[] accumulator, float[] weights, int offset)
+    {
+        for (int i = 0; i < NnueNetwork.HIDDEN; i++)
+        {
+            accumulator[i] += weights[offset + i];
+        }
+    }
+
+    @Override
+    public void subtract(float[] accumulator, float[] weights, int offset)
+    {
+        for (int i = 0; i < NnueNetwork.HIDDEN; i++)
+        {
+            accumulator[i] -= weights[offset + i];
+        }
+    }
+
+    @Override
+    public float output(float[] accumulator, float[] weights)
+    {
+        float sum = 0;
+        for (int i = 0; i < NnueNetwork.HIDDEN; i++)
+        {
+            sum += Math.min(1f, Math.max(0f, accumulator[i])) * weights[i];
+        }
+        return sum;
+    }
+
+    @Override
+    public String name()
+    {
+        return "scalar";
+    }
+}
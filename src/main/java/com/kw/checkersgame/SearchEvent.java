@@ -0,0 +1,38 @@
+package com.kw.checkersgame;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * This Flight Recorder event is recorded once for each search an engine runs to choose a move.
+ * For MctsEngine, nodes are playouts and the depth and table hit rate are 0.
+ */
+@Name("com.kw.checkersgame.Search")
+@Label("AI Search")
+@Category("Checkers")
+@Description("One search for the best move")
+public final class SearchEvent extends jdk.jfr.Event {
+    @Label("Engine")
+    String engine;
+
+    @Label("Depth")
+    int depth;
+
+    @Label("Nodes")
+    long nodes;
+
+    @Label("Nodes per Second")
+    long nodesPerSecond;
+
+    @Label("Table Hit Rate")
+    @Description("Share of transposition table probes during the search that found an entry")
+    double tableHitRate;
+
+    @Label("Score")
+    int score;
+
+    @Label("Best Move")
+    String bestMove;
+}
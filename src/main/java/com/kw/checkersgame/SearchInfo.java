@@ -0,0 +1,128 @@
+package com.kw.checkersgame;
+
+/**
+ * This class holds one line of search output: a root move with its score and expected continuation,
+ * as known after a given depth.
+ */
+public final class SearchInfo {
+    private final int depth, rank, score;
+    private final long nodes, nanos;
+    private final int[] pv;
+
+    /**
+     * Creates a line of search output.
+     * @param depth the depth the line was searched to
+     * @param rank 1 for the best line, 2 for the second best, and so on
+     * @param score the score from the side to move at the root
+     * @param nodes the positions searched so far
+     * @param nanos the time spent so far in nanoseconds
+     * @param pv the moves of the line, starting with the root move
+     */
+    public SearchInfo(int depth, int rank, int score, long nodes, long nanos, int[] pv)
+    {
+        this.depth = depth;
+        this.rank = rank;
+        this.score = score;
+        this.nodes = nodes;
+        this.nanos = nanos;
+        this.pv = pv.clone();
+    }
+
+    /**
+     * Returns the depth the line was searched to.
+     * @return the depth
+     */
+    public int getDepth()
+    {
+        return depth;
+    }
+
+    /**
+     * Returns the rank of the line among the root moves.
+     * @return 1 for the best line, 2 for the second best, and so on
+     */
+    public int getRank()
+    {
+        return rank;
+    }
+
+    /**
+     * Returns the score of the line.
+     * @return the score from the side to move at the root, in hundredths of a man
+     */
+    public int getScore()
+    {
+        return score;
+    }
+
+    /**
+     * Returns the root move of the line.
+     * @return the move encoded as in CompactBoard
+     */
+    public int getMove()
+    {
+        return pv[0];
+    }
+
+    /**
+     * Returns the moves of the line.
+     * @return the moves, starting with the root move
+     */
+    public int[] getPv()
+    {
+        return pv.clone();
+    }
+
+    /**
+     * Returns the positions searched when the line was reported.
+     * @return the node count
+     */
+    public long getNodes()
+    {
+        return nodes;
+    }
+
+    /**
+     * Returns the time spent when the line was reported.
+     * @return the elapsed time in nanoseconds
+     */
+    public long getNanos()
+    {
+        return nanos;
+    }
+
+    /**
+     * Returns whether the score is a forced win or loss.
+     * @return true if the score is a win or loss, false otherwise
+     */
+    public boolean isWinOrLoss()
+    {
+        return Math.abs(score) >= AlphaBetaEngine.WIN - AlphaBetaEngine.MAX_PLY;
+    }
+
+    /**
+     * Returns the line in the form "depth 5 multipv 1 score 23 nodes 1234 time 12 pv (1,2)-(2,3) ...".
+     * @return the line as text
+     */
+    @Override
+    public String toString()
+    {
+        StringBuilder sb = new StringBuilder();
+        sb.append("depth ").append(depth).append(" multipv ").append(rank).append(" score ");
+        if (isWinOrLoss())
+        {
+            int plies = AlphaBetaEngine.WIN - Math.abs(score);
+            sb.append(score > 0 ? "win " : "loss ").append(plies);
+        }
+        else
+        {
+            sb.append(score);
+        }
+        sb.append(" nodes ").append(nodes).append(" time ").append(nanos / 1_000_000L).append(" pv");
+        for (int move : pv)
+        {
+            sb.append(' ').append(CompactBoard.moveToString(move));
+        }
+        return sb.toString();
+    }
+}
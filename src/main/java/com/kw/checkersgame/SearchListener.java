@@ -0,0 +1,14 @@
+package com.kw.checkersgame;
+
+/**
+ * Receives search results as they are found, so callers get a first answer quickly and refinements later.
+ * Calls are made on the searching thread, so listeners should return quickly.
+ */
+@FunctionalInterface
+public interface SearchListener {
+    /**
+     * Called each time a line has been searched to a new depth.
+     * @param info the line with its depth, score and expected continuation
+     */
+    void lineFound(SearchInfo info);
+}
@@ -0,0 +1,202 @@
+package com.kw.checkersgame;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class is a search cache kept in a memory-mapped file, so it outlives the process and is shared by every
+ * engine process on the machine that opens the same file. A restarted worker starts with everything earlier
+ * workers found. Entries are packed as by TranspositionTable.pack, one slot per hash with the deeper result kept,
+ * like TranspositionTable, and AlphaBetaEngine keys them by CompactBoard.hash as it does the table.
+ * <p>
+ * Each slot is two longs written without locks: the entry, and the hash XORed with the entry. A reader only
+ * accepts a slot whose two words agree, so when two processes write one slot at once, the reader sees one
+ * whole entry or a miss, never a mix of the two. Any number of threads may use one instance.
+ */
+public final class SharedSearchCache implements AutoCloseable {
+    /** Largest number of slots, so the file fits one mapping. */
+    public static final int MAX_SLOTS = 1 << 26;
+
+    // "CHKCACHE" in ASCII
+    private static final long MAGIC = 0x4348_4B43_4143_4845L;
+    // version 3 keys entries by CompactBoard.hash; version 2 keyed them by canonicalHash, so its files are dropped
+    private static final int VERSION = 3;
+    private static final int HEADER_BYTES = 64;
+    private static final int SLOT_BYTES = 16;
+
+    // atomic 8-byte access to the mapped file, in a fixed byte order so every process reads the same values
+    private static final VarHandle LONGS = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int mask;
+    private final LongAdder probes, hits;
+
+    /**
+     * Opens a cache file, creating it with the given number of slots if it does not exist.
+     * An existing file keeps the size it was created with.
+     * @param file the cache file
+     * @param slots the number of slots for a new file, rounded up to a power of two, at most MAX_SLOTS
+     * @throws IOException if the file cannot be opened or is not a cache file
+     */
+    public SharedSearchCache(Path file, int slots) throws IOException
+    {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try
+        {
+            int size;
+
+            // only one process at a time sets up or checks the header
+            FileLock lock = channel.lock();
+            try
+            {
+                size = channel.size() == 0 ? create(slots) : readHeader(file);
+            }
+            finally
+            {
+                lock.release();
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + (long) size * SLOT_BYTES);
+            mask = size - 1;
+        }
+        catch (IOException | RuntimeException e)
+        {
+            channel.close();
+            throw e;
+        }
+        probes = new LongAdder();
+        hits = new LongAdder();
+    }
+
+    /**
+     * Writes the header of a new file and makes the file its full length.
+     * @param slots the number of slots wanted
+     * @return the number of slots, a power of two
+     * @throws IOException if the file cannot be written
+     */
+    private int create(int slots) throws IOException
+    {
+        int size = Math.min(MAX_SLOTS, Integer.highestOneBit(Math.max(2, slots - 1)) << 1);
+        MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+        header.order(ByteOrder.LITTLE_ENDIAN).putLong(0, MAGIC).putInt(8, VERSION).putInt(12, size);
+        header.force();
+
+        // writing the last byte makes the file full length; the slots in between read as empty
+        channel.write(ByteBuffer.allocate(1), HEADER_BYTES + (long) size * SLOT_BYTES - 1);
+        return size;
+    }
+
+    /**
+     * Reads and checks the header of an existing file.
+     * @param file the file, for error messages
+     * @return the number of slots
+     * @throws IOException if the file is not a cache file of this version
+     */
+    private int readHeader(Path file) throws IOException
+    {
+        MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+        header.order(ByteOrder.LITTLE_ENDIAN);
+        int size = header.getInt(12);
+        if (header.getLong(0) != MAGIC || header.getInt(8) != VERSION || Integer.bitCount(size) != 1
+                || size > MAX_SLOTS || channel.size() < HEADER_BYTES + (long) size * SLOT_BYTES)
+        {
+            throw new IOException(file + " is not a version " + VERSION + " search cache");
+        }
+        return size;
+    }
+
+    /**
+     * Looks up a position.
+     * @param hash the position hash
+     * @return the packed entry, or 0 if the position is not stored
+     */
+    public long probe(long hash)
+    {
+        probes.increment();
+        int offset = offset(hash);
+        long entry = (long) LONGS.getOpaque(buffer, offset);
+        long check = (long) LONGS.getOpaque(buffer, offset + 8);
+        if (entry != 0 && (check ^ entry) == hash)
+        {
+            hits.increment();
+            return entry;
+        }
+        return 0;
+    }
+
+    /**
+     * Stores a packed entry, unless the slot holds a deeper result for another position.
+     * @param hash the position hash
+     * @param entry the entry packed as by TranspositionTable.pack
+     */
+    public void store(long hash, long entry)
+    {
+        int offset = offset(hash);
+        long old = (long) LONGS.getOpaque(buffer, offset);
+        long oldCheck = (long) LONGS.getOpaque(buffer, offset + 8);
+        if (old != 0 && (oldCheck ^ old) != hash && TranspositionTable.depth(old) > TranspositionTable.depth(entry))
+        {
+            return;
+        }
+        LONGS.setOpaque(buffer, offset, entry);
+        LONGS.setOpaque(buffer, offset + 8, hash ^ entry);
+    }
+
+    /**
+     * Returns where the slot of a hash starts in the file.
+     * @param hash the position hash
+     * @return the byte offset
+     */
+    private int offset(long hash)
+    {
+        return HEADER_BYTES + ((int) hash & mask) * SLOT_BYTES;
+    }
+
+    /**
+     * Returns the number of slots.
+     * @return the slot count
+     */
+    public int getSlots()
+    {
+        return mask + 1;
+    }
+
+    /**
+     * Returns the number of lookups made through this instance.
+     * @return the probe count
+     */
+    public long getProbes()
+    {
+        return probes.sum();
+    }
+
+    /**
+     * Returns the number of lookups through this instance that found their position.
+     * @return the hit count
+     */
+    public long getHits()
+    {
+        return hits.sum();
+    }
+
+    /**
+     * Writes changes out to the file and closes it. The mapping stays valid until it is garbage collected,
+     * so the cache must not be used after closing.
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException
+    {
+        buffer.force();
+        channel.close();
+    }
+}
@@ -0,0 +1,163 @@
+package com.kw.checkersgame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * This class measures how many move events per second a SpectatorChannel can broadcast.
+ * One thread publishes the moves of random games while reader threads drain every subscriber. A few subscribers
+ * are made slow on purpose, to show that they overflow on their own without slowing the publisher.
+ */
+public class SpectatorBenchmark {
+
+    /**
+     * Runs the benchmark with both overflow policies and prints the rates.
+     * @param args optional subscribers (default 1000), seconds per policy (default 3), buffer capacity
+     *             (default 256) and the share of slow subscribers (default 0.01)
+     * @throws InterruptedException if interrupted while waiting for the threads
+     */
+    public static void main(String[] args) throws InterruptedException
+    {
+        int subscribers = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        long millis = args.length > 1 ? (long) (Double.parseDouble(args[1]) * 1000) : 3000;
+        int capacity = args.length > 2 ? Integer.parseInt(args[2]) : 256;
+        double slowShare = args.length > 3 ? Double.parseDouble(args[3]) : 0.01;
+        long[] events = randomGames(200);
+
+        System.out.printf("subscribers=%d, capacity=%d, slow=%.0f%%, cores=%d%n", subscribers, capacity,
+                slowShare * 100, Runtime.getRuntime().availableProcessors());
+        for (SpectatorChannel.OverflowPolicy policy : SpectatorChannel.OverflowPolicy.values())
+        {
+            run(events, subscribers, millis, capacity, slowShare, policy);
+        }
+    }
+
+    /**
+     * Publishes events for a fixed time and prints the publish rate, the delivery rate and the overflows.
+     * @param events the events to publish, repeated as needed
+     * @param subscribers the number of subscribers
+     * @param millis how long to publish for
+     * @param capacity the buffer capacity of each subscriber
+     * @param slowShare the share of subscribers that read only every 50 ms
+     * @param policy what happens when a subscriber's buffer is full
+     * @throws InterruptedException if interrupted while waiting for the threads
+     */
+    private static void run(long[] events, int subscribers, long millis, int capacity, double slowShare,
+                            SpectatorChannel.OverflowPolicy policy) throws InterruptedException
+    {
+        SpectatorChannel channel = new SpectatorChannel();
+        List<SpectatorChannel.Subscription> fast = new ArrayList<>();
+        List<SpectatorChannel.Subscription> slow = new ArrayList<>();
+        int slowCount = (int) Math.round(subscribers * slowShare);
+        for (int i = 0; i < subscribers; i++)
+        {
+            (i < slowCount ? slow : fast).add(channel.subscribe(capacity, policy));
+        }
+
+        // readers split the fast subscribers between them and all share the slow ones
+        int readerCount = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        LongAdder delivered = new LongAdder();
+        long[] sink = new long[readerCount];
+        long end = System.nanoTime() + millis * 1_000_000;
+        List<Thread> readers = new ArrayList<>();
+        for (int r = 0; r < readerCount; r++)
+        {
+            int reader = r;
+            readers.add(Thread.ofPlatform().start(() -> {
+                long nextSlowRead = 0;
+                while (System.nanoTime() < end)
+                {
+                    long count = 0;
+                    for (int i = reader; i < fast.size(); i += readerCount)
+                    {
+                        count += fast.get(i).drain(event -> sink[reader] += event);
+                    }
+                    if (reader == 0 && System.nanoTime() > nextSlowRead)
+                    {
+                        for (SpectatorChannel.Subscription subscription : slow)
+                        {
+                            count += subscription.drain(event -> sink[reader] += event);
+                        }
+                        nextSlowRead = System.nanoTime() + 50_000_000L;
+                    }
+                    delivered.add(count);
+                    if (count == 0)
+                    {
+                        Thread.onSpinWait();
+                    }
+                }
+            }));
+        }
+
+        // the publisher never waits for readers; its slowest publish shows whether anyone held it up
+        long published = 0, worstNanos = 0;
+        long start = System.nanoTime();
+        while (System.nanoTime() < end)
+        {
+            long t = System.nanoTime();
+            channel.publish(events[(int) (published % events.length)]);
+            worstNanos = Math.max(worstNanos, System.nanoTime() - t);
+            published++;
+
+            // give the readers a chance when they share one core with the publisher
+            if ((published & 63) == 0)
+            {
+                Thread.yield();
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        for (Thread reader : readers)
+        {
+            reader.join();
+        }
+
+        long dropped = 0, snapshots = 0;
+        for (SpectatorChannel.Subscription subscription : slow)
+        {
+            dropped += subscription.getDropped();
+            snapshots += subscription.getSnapshots() - 1;
+        }
+        long fastDropped = 0;
+        for (SpectatorChannel.Subscription subscription : fast)
+        {
+            fastDropped += subscription.getDropped();
+        }
+        System.out.printf("%-8s published/sec=%,11.0f  delivered/sec=%,13.0f  worst publish=%,8.1f us  "
+                        + "slow dropped=%,d snapshots=%,d  fast dropped=%,d%n",
+                policy, published / seconds, delivered.sum() / seconds, worstNanos / 1e3, dropped, snapshots,
+                fastDropped);
+    }
+
+    /**
+     * Plays random games and packs their moves as events.
+     * @param games the number of games to play
+     * @return the events of every move, in order
+     */
+    private static long[] randomGames(int games)
+    {
+        SplittableRandom random = new SplittableRandom(1);
+        List<Long> events = new ArrayList<>();
+        int[] moves = new int[CompactBoard.MAX_MOVES];
+        int moveNumber = 0;
+        for (int g = 0; g < games; g++)
+        {
+            CompactBoard board = CompactBoard.initial();
+            events.add(MoveEvent.snapshot(moveNumber));
+            for (int ply = 0; ply < 200 && !board.isTie(); ply++)
+            {
+                int count = board.generateMoves(moves);
+                if (count == 0)
+                {
+                    break;
+                }
+                int move = moves[random.nextInt(count)];
+                boolean dark = board.getTurn();
+                board.makeMove(move);
+                events.add(MoveEvent.encode(++moveNumber, move, dark));
+            }
+        }
+        return events.stream().mapToLong(Long::longValue).toArray();
+    }
+}
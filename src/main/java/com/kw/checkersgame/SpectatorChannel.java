@@ -0,0 +1,236 @@
+package com.kw.checkersgame;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+
+/**
+ * This class broadcasts the moves of a game to any number of spectators.
+ * Add it to a game with Logic.addTurnListener and every move made by tryMovingTo is published as a MoveEvent.
+ * Each spectator has its own fixed-size ring buffer, and publishing never waits: when a spectator's buffer is
+ * full, its new events are either dropped or replaced by a single snapshot event telling it to reload the board,
+ * so a slow spectator only ever falls behind itself and never holds up the game.
+ */
+public class SpectatorChannel implements TurnListener {
+
+    /**
+     * What happens to a spectator whose buffer is full.
+     */
+    public enum OverflowPolicy {
+        /** New events are thrown away and counted; the spectator sees a gap in the move numbers. */
+        DROP,
+        /** Queued events are thrown away and the spectator is sent a snapshot event to catch up from. */
+        SNAPSHOT
+    }
+
+    private final List<Subscription> subscriptions;
+    private volatile BoardSnapshot latest;
+
+    /**
+     * Creates a channel with no spectators.
+     */
+    public SpectatorChannel()
+    {
+        subscriptions = new CopyOnWriteArrayList<>();
+    }
+
+    /**
+     * Publishes the move that started this turn, or a snapshot event after a reset.
+     * @param game the game whose turn changed
+     * @param dark true if it is now dark's turn, false if it is light's turn
+     */
+    @Override
+    public void turnStarted(Logic game, boolean dark)
+    {
+        BoardSnapshot snapshot = game.getSnapshot();
+        latest = snapshot;
+        publish(MoveEvent.fromSnapshot(snapshot));
+    }
+
+    /**
+     * Sends an event to every spectator without waiting for any of them.
+     * Must only be called by one thread at a time, normally the game's.
+     * @param event the event packed by MoveEvent
+     */
+    public void publish(long event)
+    {
+        for (Subscription subscription : subscriptions)
+        {
+            subscription.offer(event);
+        }
+    }
+
+    /**
+     * Adds a spectator. Its first event is a snapshot event, so it starts from the current board.
+     * @param capacity the most events its buffer holds, rounded up to a power of two
+     * @param policy what happens when its buffer is full
+     * @return the new subscription, to be read from the spectator's own thread
+     */
+    public Subscription subscribe(int capacity, OverflowPolicy policy)
+    {
+        Subscription subscription = new Subscription(this, capacity, policy);
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    /**
+     * Returns the board as of the last published event, for spectators handling a snapshot event.
+     * @return the latest snapshot, or null if nothing has been published
+     */
+    public BoardSnapshot getSnapshot()
+    {
+        return latest;
+    }
+
+    /**
+     * Sets the board returned by getSnapshot, for channels that publish events themselves.
+     * @param snapshot the board as of the last published event
+     */
+    public void setSnapshot(BoardSnapshot snapshot)
+    {
+        latest = snapshot;
+    }
+
+    /**
+     * Returns the number of spectators.
+     * @return the subscription count
+     */
+    public int getSubscriberCount()
+    {
+        return subscriptions.size();
+    }
+
+    /**
+     * One spectator's buffer of events. It has a single writer, the publishing thread, and a single reader,
+     * the spectator, so no locks are needed: each side only moves its own end of the ring.
+     */
+    public static final class Subscription {
+        private final SpectatorChannel channel;
+        private final long[] ring;
+        private final int mask;
+        private final OverflowPolicy policy;
+
+        // the writer owns tail and the reader owns head; resync is set by the writer and cleared by the reader
+        private final AtomicLong head, tail;
+        private volatile boolean resync;
+        private volatile int lastMoveNumber;
+        private long dropped, snapshots;
+
+        /**
+         * Creates a subscription.
+         * @param channel the channel it reads from
+         * @param capacity the most events the buffer holds, rounded up to a power of two
+         * @param policy what happens when the buffer is full
+         */
+        private Subscription(SpectatorChannel channel, int capacity, OverflowPolicy policy)
+        {
+            this.channel = channel;
+            int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+            ring = new long[size];
+            mask = size - 1;
+            this.policy = policy;
+            head = new AtomicLong();
+            tail = new AtomicLong();
+            resync = true;
+        }
+
+        /**
+         * Adds an event to the buffer, or handles the overflow if it is full. Called by the publishing thread.
+         * @param event the event
+         */
+        private void offer(long event)
+        {
+            lastMoveNumber = MoveEvent.moveNumber(event);
+            if (resync)
+            {
+                // the reader will reload the board, which already includes this event
+                return;
+            }
+
+            long t = tail.get();
+            if (t - head.get() > mask)
+            {
+                if (policy == OverflowPolicy.SNAPSHOT)
+                {
+                    resync = true;
+                }
+                dropped++;
+                return;
+            }
+            ring[(int) (t & mask)] = event;
+            tail.lazySet(t + 1);
+        }
+
+        /**
+         * Takes the next event. Called by the spectator.
+         * After a snapshot event, the spectator should reload the board with SpectatorChannel.getSnapshot and
+         * ignore later events whose move number is not above the snapshot's.
+         * @return the next event, or MoveEvent.NONE if there is none yet
+         */
+        public long poll()
+        {
+            if (resync)
+            {
+                // everything queued is replaced by one snapshot of the present
+                head.set(tail.get());
+                resync = false;
+                snapshots++;
+                return MoveEvent.snapshot(lastMoveNumber);
+            }
+
+            long h = head.get();
+            if (h == tail.get())
+            {
+                return MoveEvent.NONE;
+            }
+            long event = ring[(int) (h & mask)];
+            head.lazySet(h + 1);
+            return event;
+        }
+
+        /**
+         * Passes every waiting event to a consumer. Called by the spectator.
+         * @param consumer receives each event in order
+         * @return the number of events passed
+         */
+        public int drain(LongConsumer consumer)
+        {
+            int count = 0;
+            long event;
+            while ((event = poll()) != MoveEvent.NONE)
+            {
+                consumer.accept(event);
+                count++;
+            }
+            return count;
+        }
+
+        /**
+         * Returns how many events were thrown away because the buffer was full.
+         * The count is written by the publishing thread, so it may lag slightly when read by the spectator.
+         * @return the number of dropped events
+         */
+        public long getDropped()
+        {
+            return dropped;
+        }
+
+        /**
+         * Returns how many snapshot events this spectator has been sent, including the first.
+         * @return the number of snapshot events
+         */
+        public long getSnapshots()
+        {
+            return snapshots;
+        }
+
+        /**
+         * Stops receiving events.
+         */
+        public void close()
+        {
+            channel.subscriptions.remove(this);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package com.kw.checkersgame;
+
+/**
+ * This class is one square of the board, given by its x and y coordinates. Squares never change and are shared:
+ * Square.of returns the same object for the same coordinates, so using squares costs no allocations, and they
+ * can be compared with == and used as map keys.
+ * The 64 board squares are made once, along with a border two squares wide around the board, so shifting a
+ * square by a jump and checking inBounds never creates objects either.
+ */
+public final class Square {
+    // the widest step a move takes off the board is a jump of two squares
+    private static final int MARGIN = 2;
+    private static final int SPAN = 8 + 2 * MARGIN;
+    private static final Square[] CACHE = new Square[SPAN * SPAN];
+    private static final Square[] BOARD = new Square[64];
+    private static final Square[] PLAYABLE = new Square[32];
+
+    static
+    {
+        for (int x = -MARGIN; x < 8 + MARGIN; x++)
+        {
+            for (int y = -MARGIN; y < 8 + MARGIN; y++)
+            {
+                Square square = new Square(x, y);
+                CACHE[(x + MARGIN) * SPAN + y + MARGIN] = square;
+                if (square.inBounds())
+                {
+                    BOARD[square.index()] = square;
+                }
+                if (square.playableIndex() >= 0)
+                {
+                    PLAYABLE[square.playableIndex()] = square;
+                }
+            }
+        }
+    }
+
+    private final int x, y;
+
+    /**
+     * Creates a square. Use Square.of instead.
+     * @param x the x coordinate
+     * @param y the y coordinate
+     */
+    private Square(int x, int y)
+    {
+        this.x = x;
+        this.y = y;
+    }
+
+    /**
+     * Returns the square at given coordinates.
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @return the shared square, or a new one for coordinates far off the board
+     */
+    public static Square of(int x, int y)
+    {
+        if (x >= -MARGIN && y >= -MARGIN && x < 8 + MARGIN && y < 8 + MARGIN)
+        {
+            return CACHE[(x + MARGIN) * SPAN + y + MARGIN];
+        }
+        return new Square(x, y);
+    }
+
+    /**
+     * Returns a board square from its index.
+     * @param index the index, x * 8 + y
+     * @return the shared square
+     */
+    public static Square ofIndex(int index)
+    {
+        return BOARD[index];
+    }
+
+    /**
+     * Returns a playable square from its number.
+     * @param playable the number of the square among the 32 playable ones, as used by CompactBoard
+     * @return the shared square
+     */
+    public static Square ofPlayable(int playable)
+    {
+        return PLAYABLE[playable];
+    }
+
+    /**
+     * Returns the square shifted by given amounts.
+     * @param addX the shift added to the x coordinate
+     * @param addY the shift added to the y coordinate
+     * @return the shifted square
+     */
+    public Square shift(int addX, int addY)
+    {
+        return of(x + addX, y + addY);
+    }
+
+    /**
+     * Returns the square halfway between this square and given coordinates, which is the square a jump passes over.
+     * @param avgX the x coordinate of the other square
+     * @param avgY the y coordinate of the other square
+     * @return the square in between
+     */
+    public Square average(int avgX, int avgY)
+    {
+        return of((x + avgX) / 2, (y + avgY) / 2);
+    }
+
+    /**
+     * Returns the x coordinate of the square.
+     * @return the x coordinate
+     */
+    public int getX()
+    {
+        return x;
+    }
+
+    /**
+     * Returns the y coordinate of the square.
+     * @return the y coordinate
+     */
+    public int getY()
+    {
+        return y;
+    }
+
+    /**
+     * Returns the index of the square, as used by BoardSnapshot.
+     * @return x * 8 + y, or -1 if the square is off the board
+     */
+    public int index()
+    {
+        return inBounds() ? x * 8 + y : -1;
+    }
+
+    /**
+     * Returns the number of the square among the 32 playable ones, as used by CompactBoard.
+     * @return y * 4 + x / 2, or -1 if pieces can never stand on the square
+     */
+    public int playableIndex()
+    {
+        return inBounds() && ((x + y) & 1) == 1 ? y * 4 + (x >> 1) : -1;
+    }
+
+    /**
+     * Returns whether the square is on the 8*8 board.
+     * @return true if the square is in bounds, false otherwise
+     */
+    public boolean inBounds()
+    {
+        return x >= 0 && y >= 0 && x < 8 && y < 8;
+    }
+
+    /**
+     * Returns whether the square is on a board of a given shape.
+     * @param geometry the board's geometry
+     * @return true if the square is in bounds, false otherwise
+     */
+    public boolean inBounds(BoardGeometry geometry)
+    {
+        return geometry.inBounds(x, y);
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (!(o instanceof Square))
+        {
+            return false;
+        }
+        Square s = (Square) o;
+        return x == s.x && y == s.y;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return x * 31 + y;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "(" + x + "," + y + ")";
+    }
+}
@@ -0,0 +1,191 @@
+package com.kw.checkersgame;
+
+/**
+ * This class decides how long the engine may think about one move.
+ * It sets a soft limit, checked between iterative-deepening iterations and adjusted by how stable the best
+ * move is, and a hard limit that the search polls and never goes past.
+ */
+public class TimeManager {
+    // time kept back for move generation, applying the move and thread handoff
+    private static final long OVERHEAD_MILLIS = 10;
+    // expected number of moves still to play when sharing out a sudden-death or increment clock
+    private static final int MOVES_TO_GO = 25;
+    // never spend more than this fraction of the remaining time on one move
+    private static final double MAX_FRACTION = 0.3;
+
+    private final long softMillis, hardMillis;
+    private long start, lastIterationStart, lastIterationNanos;
+    private int lastBestMove, stableIterations;
+
+    /**
+     * Creates a time manager with given limits.
+     * @param softMillis the time after which no new iteration is started, before stability scaling
+     * @param hardMillis the time at which the search must stop
+     */
+    public TimeManager(long softMillis, long hardMillis)
+    {
+        this.hardMillis = Math.max(1, hardMillis);
+        this.softMillis = Math.max(0, Math.min(softMillis, this.hardMillis));
+        lastBestMove = -1;
+        start();
+    }
+
+    /**
+     * Creates a time manager that thinks for up to a fixed time, stopping early when the best move is stable.
+     * @param millis the time per move
+     * @return the new time manager
+     */
+    public static TimeManager fixed(long millis)
+    {
+        long hard = Math.max(1, millis - OVERHEAD_MILLIS);
+        return new TimeManager(hard / 2, hard);
+    }
+
+    /**
+     * Creates a time manager for a player on a clock.
+     * The share of the remaining time is scaled by how complex the position is.
+     * @param clock the game clock
+     * @param dark whether the engine is playing dark
+     * @param legalMoves the number of legal moves in the position
+     * @param jumps whether the legal moves are jumps
+     * @return the new time manager
+     */
+    public static TimeManager forClock(GameClock clock, boolean dark, int legalMoves, boolean jumps)
+    {
+        long remaining = Math.max(0, clock.remainingMillis(dark) - OVERHEAD_MILLIS);
+        if (clock.getMode() == GameClock.Mode.FIXED_PER_MOVE)
+        {
+            return fixed(remaining + OVERHEAD_MILLIS);
+        }
+
+        // a forced move needs no thought at all
+        if (legalMoves <= 1)
+        {
+            return new TimeManager(0, Math.min(remaining, OVERHEAD_MILLIS));
+        }
+
+        long base = remaining / MOVES_TO_GO + clock.getIncrementMillis() * 3 / 4;
+        double complexity;
+        if (jumps && legalMoves <= 2)
+        {
+            complexity = 0.5;
+        }
+        else if (legalMoves >= 10)
+        {
+            complexity = 1.25;
+        }
+        else
+        {
+            complexity = 1.0;
+        }
+
+        long soft = (long) (base * complexity);
+        long hard = Math.min(soft * 4, (long) (remaining * MAX_FRACTION));
+        return new TimeManager(Math.min(soft, hard), hard);
+    }
+
+    /**
+     * Starts the time for a new search.
+     */
+    public void start()
+    {
+        start = System.nanoTime();
+        lastIterationStart = start;
+        lastIterationNanos = 0;
+        stableIterations = 0;
+        lastBestMove = -1;
+    }
+
+    /**
+     * Returns the System.nanoTime value at which the search must stop.
+     * @return the hard deadline
+     */
+    public long hardDeadline()
+    {
+        return start + hardMillis * 1_000_000L;
+    }
+
+    /**
+     * Returns whether the hard limit has been reached.
+     * @return true if the search must stop now, false otherwise
+     */
+    public boolean hardStop()
+    {
+        return System.nanoTime() >= hardDeadline();
+    }
+
+    /**
+     * Records a finished iteration and decides whether another one should be started.
+     * A best move that keeps changing earns more time, and one that has stayed the same for a while earns less.
+     * The next iteration is skipped if it would probably not finish before the hard limit.
+     * @param bestMove the best move found by the iteration that just finished
+     * @return true if the search should go one iteration deeper, false if it should stop
+     */
+    public boolean nextIteration(int bestMove)
+    {
+        long now = System.nanoTime();
+        lastIterationNanos = now - lastIterationStart;
+        lastIterationStart = now;
+
+        if (bestMove == lastBestMove)
+        {
+            stableIterations++;
+        }
+        else
+        {
+            stableIterations = lastBestMove == -1 ? 1 : 0;
+            lastBestMove = bestMove;
+        }
+
+        double scale;
+        if (stableIterations >= 4)
+        {
+            scale = 0.5;
+        }
+        else if (stableIterations >= 2)
+        {
+            scale = 0.8;
+        }
+        else if (stableIterations == 0)
+        {
+            scale = 1.5;
+        }
+        else
+        {
+            scale = 1.0;
+        }
+
+        long elapsed = now - start;
+        long soft = (long) (Math.min(hardMillis, softMillis * scale) * 1_000_000L);
+
+        // iterations grow a few times longer each depth, so do not start one that cannot finish
+        return elapsed < soft && now + lastIterationNanos * 3 < hardDeadline();
+    }
+
+    /**
+     * Returns the time used since start.
+     * @return elapsed milliseconds
+     */
+    public long elapsedMillis()
+    {
+        return (System.nanoTime() - start) / 1_000_000L;
+    }
+
+    /**
+     * Returns the soft limit before stability scaling.
+     * @return the soft limit in milliseconds
+     */
+    public long getSoftMillis()
+    {
+        return softMillis;
+    }
+
+    /**
+     * Returns the hard limit.
+     * @return the hard limit in milliseconds
+     */
+    public long getHardMillis()
+    {
+        return hardMillis;
+    }
+}
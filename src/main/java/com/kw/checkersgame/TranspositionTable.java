@@ -0,0 +1,185 @@
+package com.kw.checkersgame;
+
+import java.util.Arrays;
+
+/**
+ * This class caches search results by position hash so the alpha-beta search does not repeat work.
+ * Each entry is two longs, the full hash and a packed word with the score, depth, bound type and best move.
+ * When two positions share a slot, the one searched deeper is kept.
+ * AlphaBetaEngine keys it by CompactBoard.hash; the flipped form's entry only lends its move for ordering.
+ */
+public final class TranspositionTable {
+    /** The stored score is exact. */
+    public static final int EXACT = 1;
+    /** The stored score is a lower bound (the search failed high). */
+    public static final int LOWER = 2;
+    /** The stored score is an upper bound (the search failed low). */
+    public static final int UPPER = 3;
+
+    private final long[] keys;
+    private final long[] data;
+    private final int mask;
+    private long probes, hits;
+
+    /**
+     * Creates a table with about the given number of entries, rounded up to a power of two.
+     * @param entries the minimum number of entries
+     */
+    public TranspositionTable(int entries)
+    {
+        int size = Integer.highestOneBit(Math.max(2, entries - 1)) << 1;
+        keys = new long[size];
+        data = new long[size];
+        mask = size - 1;
+    }
+
+    /**
+     * Looks up a position.
+     * @param hash the position hash
+     * @return the packed entry, or 0 if the position is not stored
+     */
+    public long probe(long hash)
+    {
+        probes++;
+        int i = (int) hash & mask;
+        if (keys[i] == hash && data[i] != 0)
+        {
+            hits++;
+            return data[i];
+        }
+        return 0;
+    }
+
+    /**
+     * Looks up a position without counting it in the statistics, for reading back the principal variation.
+     * @param hash the position hash
+     * @return the packed entry, or 0 if the position is not stored
+     */
+    public long peek(long hash)
+    {
+        int i = (int) hash & mask;
+        return keys[i] == hash ? data[i] : 0;
+    }
+
+    /**
+     * Stores a search result, unless the slot holds a deeper result for another position.
+     * @param hash the position hash
+     * @param score the score found
+     * @param depth the remaining depth it was searched to
+     * @param bound EXACT, LOWER or UPPER
+     * @param move the best move found, or -1 if none
+     */
+    public void store(long hash, int score, int depth, int bound, int move)
+    {
+        storeEntry(hash, pack(score, depth, bound, move));
+    }
+
+    /**
+     * Stores an already packed entry, for example one found in a SharedSearchCache,
+     * unless the slot holds a deeper result for another position.
+     * @param hash the position hash
+     * @param entry the packed entry, which is not 0
+     */
+    public void storeEntry(long hash, long entry)
+    {
+        int i = (int) hash & mask;
+        if (keys[i] != hash && data[i] != 0 && depth(data[i]) > depth(entry))
+        {
+            return;
+        }
+        keys[i] = hash;
+        data[i] = entry;
+    }
+
+    /**
+     * Packs a search result into one long. The result is never 0, since the bound is never 0.
+     * @param score the score found
+     * @param depth the remaining depth it was searched to
+     * @param bound EXACT, LOWER or UPPER
+     * @param move the best move found, or -1 if none
+     * @return the packed entry
+     */
+    public static long pack(int score, int depth, int bound, int move)
+    {
+        return (score & 0xFFFFL) | ((long) (depth & 0xFF) << 16) | ((long) bound << 24) | ((long) (move & 0x1FFFF) << 26)
+                | (move < 0 ? 0 : 1L << 43);
+    }
+
+    /**
+     * Returns the score of a packed entry.
+     * @param entry a packed entry from probe
+     * @return the stored score
+     */
+    public static int score(long entry)
+    {
+        return (short) entry;
+    }
+
+    /**
+     * Returns the depth of a packed entry.
+     * @param entry a packed entry from probe
+     * @return the stored depth
+     */
+    public static int depth(long entry)
+    {
+        return (byte) (entry >>> 16);
+    }
+
+    /**
+     * Returns the bound type of a packed entry.
+     * @param entry a packed entry from probe
+     * @return EXACT, LOWER or UPPER
+     */
+    public static int bound(long entry)
+    {
+        return (int) (entry >>> 24) & 3;
+    }
+
+    /**
+     * Returns the best move of a packed entry.
+     * @param entry a packed entry from probe
+     * @return the stored move, or -1 if none was stored
+     */
+    public static int move(long entry)
+    {
+        return (entry & (1L << 43)) == 0 ? -1 : (int) (entry >>> 26) & 0x1FFFF;
+    }
+
+    /**
+     * Removes every entry and resets the statistics.
+     */
+    public void clear()
+    {
+        Arrays.fill(keys, 0);
+        Arrays.fill(data, 0);
+        probes = 0;
+        hits = 0;
+    }
+
+    /**
+     * Returns the number of lookups since the last clear.
+     * @return the probe count
+     */
+    public long getProbes()
+    {
+        return probes;
+    }
+
+    /**
+     * Returns the number of successful lookups since the last clear.
+     * @return the hit count
+     */
+    public long getHits()
+    {
+        return hits;
+    }
+
+    /**
+     * Returns the fraction of lookups that found their position.
+     * @return the hit rate between 0 and 1
+     */
+    public double getHitRate()
+    {
+        return probes == 0 ? 0 : (double) hits / probes;
+    }
+}
@@ -0,0 +1,15 @@
+package com.kw.checkersgame;
+
+/**
+ * Receives a call each time a new turn begins in a game, so players can act without being polled.
+ * Calls are made on the thread that made the move, so listeners should return quickly.
+ */
+@FunctionalInterface
+public interface TurnListener {
+    /**
+     * Called after a move has been made or the game has been reset.
+     * @param game the game whose turn changed, already showing the new position
+     * @param dark true if it is now dark's turn, false if it is light's turn
+     */
+    void turnStarted(Logic game, boolean dark);
+}
@@ -0,0 +1,54 @@
+package com.kw.checkersgame;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * This class does NNUE arithmetic with SIMD instructions through the incubating Vector API, as many floats
+ * at a time as the CPU's widest registers hold. HIDDEN is a multiple of every vector length up to 512 bits,
+ * so no loop needs a scalar tail. Only create it through NnueKernel.best, which checks the module is present.
+ */
+public final class VectorNnueKernel implements NnueKernel {
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+    @Override
+    public void add(float[] accumulator, float[] weights, int offset)
+    {
+        for (int i = 0; i < NnueNetwork.HIDDEN; i += SPECIES.length())
+        {
+            FloatVector.fromArray(SPECIES, accumulator, i)
+                    .add(FloatVector.fromArray(SPECIES, weights, offset + i))
+                    .intoArray(accumulator, i);
+        }
+    }
+
+    @Override
+    public void subtract(float[] accumulator, float[] weights, int offset)
+    {
+        for (int i = 0; i < NnueNetwork.HIDDEN; i += SPECIES.length())
+        {
+            FloatVector.fromArray(SPECIES, accumulator, i)
+                    .sub(FloatVector.fromArray(SPECIES, weights, offset + i))
+                    .intoArray(accumulator, i);
+        }
+    }
+
+    @Override
+    public float output(float[] accumulator, float[] weights)
+    {
+        FloatVector sum = FloatVector.zero(SPECIES);
+        for (int i = 0; i < NnueNetwork.HIDDEN; i += SPECIES.length())
+        {
+            FloatVector clamped = FloatVector.fromArray(SPECIES, accumulator, i).max(0f).min(1f);
+            sum = clamped.fma(FloatVector.fromArray(SPECIES, weights, i), sum);
+        }
+        return sum.reduceLanes(VectorOperators.ADD);
+    }
+
+    @Override
+    public String name()
+    {
+        return "vector " + SPECIES.vectorBitSize() + "-bit";
+    }
+}
@@ -0,0 +1,444 @@
+package com.kw.checkersgame;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ObjDoubleConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * This class tunes the Evaluator's weights from stored games with Texel's method. Every quiet position of every
+ * game is labelled with the game's result, and the weights are moved by gradient descent until the evaluation,
+ * turned into an expected score by a sigmoid, predicts those results as well as it can.
+ * Games are replayed through Logic, so only positions the game's own rules reach are used, and the loss and its
+ * gradient are added up across all cores with fork-join.
+ * <pre>
+ * generate ARCHIVE GAMES [DEPTH]     plays games of the AI against itself and writes them as a GameArchive
+ * tune ARCHIVE WEIGHTS [ITERATIONS]  tunes the weights on an archive and writes them for Evaluator.load
+ * </pre>
+ * The man weight stays fixed so scores keep meaning hundredths of a man; the others are tuned.
+ */
+public class WeightTuner {
+    // positions with fewer samples than this are added up on one thread
+    private static final int SPLIT_SIZE = 8192;
+    private static final int RANDOM_OPENING_PLIES = 6;
+    private static final int MAX_PLIES = 200;
+    private static final double LEARNING_RATE = 0.5;
+
+    private final Samples samples;
+    private final ForkJoinPool pool;
+    private double scale;
+
+    /**
+     * Creates a tuner for a set of labelled positions.
+     * @param samples the positions to tune on
+     * @param pool the pool the loss is computed on
+     */
+    public WeightTuner(Samples samples, ForkJoinPool pool)
+    {
+        this.samples = samples;
+        this.pool = pool;
+        scale = 1;
+    }
+
+    /**
+     * Finds the sigmoid scale that best fits the results to the evaluation with the given weights,
+     * so tuning improves the weights rather than just stretching them.
+     * @param weights the weights to fit the scale for
+     * @return the scale found
+     */
+    public double fitScale(double[] weights)
+    {
+        // the loss has one minimum in the scale, so a ternary search finds it
+        double low = 0.01, high = 10;
+        for (int i = 0; i < 60; i++)
+        {
+            double a = low + (high - low) / 3, b = high - (high - low) / 3;
+            scale = a;
+            double lossA = loss(weights)[0];
+            scale = b;
+            double lossB = loss(weights)[0];
+            if (lossA < lossB)
+            {
+                high = b;
+            }
+            else
+            {
+                low = a;
+            }
+        }
+        scale = (low + high) / 2;
+        return scale;
+    }
+
+    /**
+     * Runs gradient descent with Adam step sizes, keeping the man weight fixed.
+     * @param start the weights to start from
+     * @param iterations the number of steps
+     * @param report receives the iteration and the loss every 50 steps, or null
+     * @return the tuned weights
+     */
+    public double[] tune(double[] start, int iterations, ObjDoubleConsumer<Integer> report)
+    {
+        double[] w = start.clone();
+        double[] m = new double[w.length], v = new double[w.length];
+        for (int t = 1; t <= iterations; t++)
+        {
+            double[] lossAndGradient = loss(w);
+            for (int i = 0; i < w.length; i++)
+            {
+                if (i == Evaluator.MAN)
+                {
+                    continue;
+                }
+                double g = lossAndGradient[i + 1];
+                m[i] = 0.9 * m[i] + 0.1 * g;
+                v[i] = 0.999 * v[i] + 0.001 * g * g;
+                double mHat = m[i] / (1 - Math.pow(0.9, t));
+                double vHat = v[i] / (1 - Math.pow(0.999, t));
+                w[i] -= LEARNING_RATE * mHat / (Math.sqrt(vHat) + 1e-9);
+            }
+            if (report != null && (t % 50 == 0 || t == iterations))
+            {
+                report.accept(t, lossAndGradient[0]);
+            }
+        }
+        return w;
+    }
+
+    /**
+     * Returns the mean squared error of the predicted results and its gradient in each weight.
+     * @param weights the weights to measure
+     * @return the loss, followed by one partial derivative per weight
+     */
+    public double[] loss(double[] weights)
+    {
+        double[] sums = pool.invoke(new LossTask(samples, weights, scale, 0, samples.size()));
+        for (int i = 0; i < sums.length; i++)
+        {
+            sums[i] /= Math.max(1, samples.size());
+        }
+        return sums;
+    }
+
+    /**
+     * Adds up the squared error and its gradient over a range of samples, splitting large ranges in two.
+     */
+    private static final class LossTask extends RecursiveTask<double[]> {
+        private static final long serialVersionUID = 1L;
+
+        // tasks are never serialized, so the samples need not be serializable
+        private final transient Samples samples;
+        private final transient double[] weights;
+        private final transient double scale;
+        private final transient int from, to;
+
+        /**
+         * Creates a task for a range of samples.
+         * @param samples all the samples
+         * @param weights the weights being measured
+         * @param scale the sigmoid scale
+         * @param from the first sample of the range
+         * @param to one past the last sample of the range
+         */
+        LossTask(Samples samples, double[] weights, double scale, int from, int to)
+        {
+            this.samples = samples;
+            this.weights = weights;
+            this.scale = scale;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected double[] compute()
+        {
+            if (to - from > SPLIT_SIZE)
+            {
+                int middle = (from + to) >>> 1;
+                LossTask left = new LossTask(samples, weights, scale, from, middle);
+                left.fork();
+                double[] right = new LossTask(samples, weights, scale, middle, to).compute();
+                double[] sums = left.join();
+                for (int i = 0; i < sums.length; i++)
+                {
+                    sums[i] += right[i];
+                }
+                return sums;
+            }
+
+            int n = Evaluator.WEIGHT_COUNT;
+            double[] sums = new double[n + 1];
+            short[] features = samples.features;
+            for (int s = from; s < to; s++)
+            {
+                int base = s * n;
+                double eval = 0;
+                for (int i = 0; i < n; i++)
+                {
+                    eval += weights[i] * features[base + i];
+                }
+                double predicted = sigmoid(scale * eval);
+                double error = samples.labels[s] - predicted;
+                sums[0] += error * error;
+
+                // d(error^2)/dw = -2 * error * sigmoid' * scale * feature, with eval in hundredths of a man
+                double slope = -2 * error * predicted * (1 - predicted) * scale * Math.log(10) / 400;
+                for (int i = 0; i < n; i++)
+                {
+                    sums[i + 1] += slope * features[base + i];
+                }
+            }
+            return sums;
+        }
+    }
+
+    /**
+     * Turns a scaled evaluation into an expected score for dark, as in Texel's method.
+     * @param eval the evaluation in hundredths of a man, times the scale
+     * @return the expected score, between 0 and 1
+     */
+    private static double sigmoid(double eval)
+    {
+        return 1 / (1 + Math.pow(10, -eval / 400));
+    }
+
+    /**
+     * Labelled positions stored as flat arrays, WEIGHT_COUNT feature values per position from dark's point of view
+     * and dark's final score in the game. Built in parallel and merged.
+     */
+    public static final class Samples {
+        private short[] features;
+        private float[] labels;
+        private int size;
+
+        /**
+         * Creates an empty set of samples.
+         */
+        public Samples()
+        {
+            features = new short[1024 * Evaluator.WEIGHT_COUNT];
+            labels = new float[1024];
+        }
+
+        /**
+         * Replays a game through Logic and adds each of its quiet positions.
+         * Positions where the side to move must capture are left out, since their evaluation says little
+         * about who is winning.
+         * @param game the game to add
+         */
+        public void addGame(GameArchive.Game game)
+        {
+            float label = (float) game.darkScore();
+            int[] moves = new int[CompactBoard.MAX_MOVES];
+            game.replay((logic, ply) -> {
+                CompactBoard b = CompactBoard.fromLogic(logic);
+                int count = b.generateMoves(moves);
+                if (count > 0 && CompactBoard.moveJumps(moves[0]) == 0)
+                {
+                    add(b, label);
+                }
+            });
+        }
+
+        /**
+         * Adds one position.
+         * @param b the position
+         * @param label dark's score in the game it came from
+         */
+        public void add(CompactBoard b, float label)
+        {
+            if (size == labels.length)
+            {
+                labels = Arrays.copyOf(labels, size * 2);
+                features = Arrays.copyOf(features, size * 2 * Evaluator.WEIGHT_COUNT);
+            }
+            for (int i = 0; i < Evaluator.WEIGHT_COUNT; i++)
+            {
+                features[size * Evaluator.WEIGHT_COUNT + i] = (short) Evaluator.feature(b, i);
+            }
+            labels[size++] = label;
+        }
+
+        /**
+         * Adds all the samples of another set.
+         * @param other the set to add
+         */
+        public void addAll(Samples other)
+        {
+            int n = Evaluator.WEIGHT_COUNT;
+            if (size + other.size > labels.length)
+            {
+                int capacity = Math.max(size + other.size, labels.length * 2);
+                labels = Arrays.copyOf(labels, capacity);
+                features = Arrays.copyOf(features, capacity * n);
+            }
+            System.arraycopy(other.labels, 0, labels, size, other.size);
+            System.arraycopy(other.features, 0, features, size * n, other.size * n);
+            size += other.size;
+        }
+
+        /**
+         * Returns the number of positions.
+         * @return the sample count
+         */
+        public int size()
+        {
+            return size;
+        }
+    }
+
+    /**
+     * Reads an archive in parallel, replaying every game.
+     * @param archive the archive file
+     * @return the labelled positions of all its games
+     * @throws IOException if the archive cannot be read
+     */
+    public static Samples readSamples(Path archive) throws IOException
+    {
+        try (Stream<GameArchive.Game> games = GameArchive.read(archive))
+        {
+            return games.parallel().collect(Samples::new, Samples::addGame, Samples::addAll);
+        }
+    }
+
+    /**
+     * Plays one game of the AI against itself, starting with a few random moves so games differ.
+     * @param engine the engine choosing moves
+     * @param depth the search depth
+     * @param seed the seed for the random opening
+     * @return the game, or null if it ended in a position Logic would not continue from
+     */
+    static GameArchive.Game selfPlay(AlphaBetaEngine engine, int depth, long seed)
+    {
+        SplittableRandom random = new SplittableRandom(seed);
+        Logic game = new Logic();
+        game.setOpponent();
+        engine.clearTable();
+        int[] moves = new int[CompactBoard.MAX_MOVES];
+        String[] played = new String[MAX_PLIES];
+        int plies = 0;
+
+        while (plies < MAX_PLIES && GameArchive.resultOf(game).equals(GameArchive.NONE))
+        {
+            CompactBoard pos = CompactBoard.fromLogic(game);
+            int move;
+            if (plies < RANDOM_OPENING_PLIES)
+            {
+                move = moves[random.nextInt(pos.generateMoves(moves))];
+            }
+            else
+            {
+                SearchInfo[] lines = engine.analyze(pos, new PositionHistory(game.getHistory()), 1, null, depth, null);
+                move = lines[0].getMove();
+            }
+            if (!game.playMove(move))
+            {
+                return null;
+            }
+            played[plies++] = CompactBoard.moveToString(move);
+        }
+
+        String result = GameArchive.resultOf(game);
+        return new GameArchive.Game(result.equals(GameArchive.NONE) ? GameArchive.DRAW : result,
+                Arrays.copyOf(played, plies));
+    }
+
+    /**
+     * Generates an archive or tunes weights on one.
+     * @param args "generate ARCHIVE GAMES [DEPTH]" or "tune ARCHIVE WEIGHTS [ITERATIONS]"
+     * @throws IOException if a file cannot be read or written
+     */
+    public static void main(String[] args) throws IOException
+    {
+        if (args.length >= 3 && args[0].equals("generate"))
+        {
+            generate(Path.of(args[1]), Integer.parseInt(args[2]), args.length > 3 ? Integer.parseInt(args[3]) : 4);
+        }
+        else if (args.length >= 3 && args[0].equals("tune"))
+        {
+            tune(Path.of(args[1]), Path.of(args[2]), args.length > 3 ? Integer.parseInt(args[3]) : 500);
+        }
+        else
+        {
+            System.out.println("usage: generate ARCHIVE GAMES [DEPTH] | tune ARCHIVE WEIGHTS [ITERATIONS]");
+        }
+    }
+
+    /**
+     * Plays games of the AI against itself on every core and writes them to an archive.
+     * @param archive the file to write
+     * @param games the number of games to play
+     * @param depth the search depth of each move
+     * @throws IOException if the file cannot be written
+     */
+    private static void generate(Path archive, int games, int depth) throws IOException
+    {
+        ThreadLocal<AlphaBetaEngine> engines = ThreadLocal.withInitial(
+                () -> new AlphaBetaEngine(Evaluator.configured(), 1 << 16));
+        AtomicInteger written = new AtomicInteger();
+        long start = System.nanoTime();
+        try (BufferedWriter out = Files.newBufferedWriter(archive, StandardCharsets.UTF_8))
+        {
+            out.write("# " + games + " games of self play at depth " + depth + "\n");
+            IntStream.range(0, games).parallel()
+                    .mapToObj(i -> selfPlay(engines.get(), depth, i))
+                    .filter(game -> game != null)
+                    .forEach(game -> {
+                        synchronized (out)
+                        {
+                            try
+                            {
+                                out.write(game + "\n");
+                                written.incrementAndGet();
+                            }
+                            catch (IOException e)
+                            {
+                                throw new UncheckedIOException(e);
+                            }
+                        }
+                    });
+        }
+        System.out.printf("wrote %d games to %s in %.1f s%n", written.get(), archive, (System.nanoTime() - start) / 1e9);
+    }
+
+    /**
+     * Tunes the configured weights on an archive and writes the result.
+     * @param archive the archive to read
+     * @param weightsFile the file to write the tuned weights to
+     * @param iterations the number of gradient steps
+     * @throws IOException if a file cannot be read or written
+     */
+    private static void tune(Path archive, Path weightsFile, int iterations) throws IOException
+    {
+        long start = System.nanoTime();
+        Samples samples = readSamples(archive);
+        System.out.printf("%,d positions read in %.1f s%n", samples.size(), (System.nanoTime() - start) / 1e9);
+
+        WeightTuner tuner = new WeightTuner(samples, ForkJoinPool.commonPool());
+        double[] weights = Arrays.stream(Evaluator.configured().getWeights()).asDoubleStream().toArray();
+        System.out.printf("scale %.3f, loss %.6f%n", tuner.fitScale(weights), tuner.loss(weights)[0]);
+
+        start = System.nanoTime();
+        double[] tuned = tuner.tune(weights, iterations,
+                (t, loss) -> System.out.printf("iteration %d loss %.6f%n", t, loss));
+        System.out.printf("%d iterations in %.1f s%n", iterations, (System.nanoTime() - start) / 1e9);
+
+        int[] rounded = new int[tuned.length];
+        for (int i = 0; i < tuned.length; i++)
+        {
+            rounded[i] = (int) Math.round(tuned[i]);
+            System.out.printf("%s=%d%n", Evaluator.WEIGHT_NAMES[i], rounded[i]);
+        }
+        new Evaluator(rounded).save(weightsFile, "tuned on " + samples.size() + " positions from " + archive);
+    }
+}
@@ -2,5 +2,9 @@ module com.kw.checkersgame {
     exports com.kw.checkersgame;
     requires javafx.controls;
     requires javafx.fxml;
+    requires jdk.httpserver;
+    requires java.net.http;
+    requires jdk.jfr;
+    requires static jdk.incubator.vector;
 
 }
\ No newline at end of file